@@ -1,27 +1,58 @@
 package net.echo.hypermixins;
 
+import net.echo.hypermixins.agent.ClassFilter;
+import net.echo.hypermixins.agent.DynamicRedirects;
+import net.echo.hypermixins.agent.MemoCache;
+import net.echo.hypermixins.agent.MethodMetrics;
+import net.echo.hypermixins.agent.MixinIndex;
 import net.echo.hypermixins.agent.MixinMapping;
 import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.Offloads;
+import net.echo.hypermixins.agent.WeaveCache;
+import net.echo.hypermixins.agent.WeaveMetrics;
 
 import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 /**
  * Entry point for registering and applying HyperMixins through the Java Instrumentation API.
  * <p>
- * This class is intended to be used exclusively from within a Java agent
- * (typically inside the {@code premain} method).
+ * This class is intended to be used from within a Java agent, either started with the
+ * application ({@code premain}) or attached to it later ({@link #agentmain}).
  * It wires user-defined mixin classes to their target classes by installing
  * a {@link net.echo.hypermixins.agent.MixinTransformer} and triggering class retransformation.
  *
+ * Mixins compiled with {@link net.echo.hypermixins.processor.MixinProcessor} are validated at
+ * build time and can be registered from their index through {@link #register(Instrumentation, ClassLoader)}.
+ * To weave at build time instead, and start without an agent, see {@link JarWeaver}.
+ * Mixins can be added, replaced or removed while the application runs through
+ * {@link #addMixins} and {@link #removeMixins}.
+ *
  * @author xEcho1337
  * @apiNote This API operates at bytecode level and relies on class retransformation.
- *          Calling it outside an agent context or after application startup
- *          may lead to undefined behavior or {@link UnsupportedOperationException}s.
+ *          A class that is already loaded cannot gain or lose fields or methods, so a mixin
+ *          overwriting methods of a loaded class only applies to it after a restart.
  */
 public class HyperMixins {
     
+    /**
+     * Release version of HyperMixins, part of the identity of the weaver in every
+     * {@link WeaveCache} key, see {@link WeaveCache#FORMAT}.
+     */
+    public static final String VERSION = "1.2";
+    
+    private static volatile Instrumentation instrumentation;
+    private static volatile WeaveCache cache;
+    private static volatile MixinTransformer transformer;
+    
     /**
      * Registers one or more mixin classes and applies them via the provided
      * {@link Instrumentation} instance.
@@ -32,32 +63,476 @@ public class HyperMixins {
      * <p>
      * This method performs class retransformation and therefore requires the
      * instrumentation instance to support retransformation.
+     * <p>
+     * If the {@value WeaveCache#DIRECTORY_PROPERTY} system property is set, woven classes
+     * are persisted in that directory and reused across restarts, see {@link WeaveCache}.
      *
      * @param inst the {@link Instrumentation} instance provided by the Java agent
      * @param mixinClasses one or more classes annotated as mixins to be applied
      * @throws RuntimeException if mixin analysis, transformer installation, or class retransformation fails
      * @implNote
-     *     This method must be invoked from {@code premain}.
-     *     Invoking it multiple times or after classes have already been transformed
-     *     may result in duplicate transformations or unexpected behavior.
+     *     This method is meant to be invoked from {@code premain}. Invoking it again adds the
+     *     mixins to the ones already registered, like {@link #addMixins} but leaving loaded
+     *     targets that cannot be reweaved as they are.
+     */
+    public static void register(
+        Instrumentation inst,
+        Class<?>... mixinClasses
+    ) {
+        try {
+            reweave(inst, merge(mappings(null, mixinClasses)), false);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Registers mixin classes like {@link #register(Instrumentation, Class[])}, applying them only
+     * to the targets defined by the class loaders matching a scope.
+     * <p>
+     * When several loaders define classes of the same name, such as isolated plugin loaders,
+     * the scope tells which of them get the mixins. Without a scope, a mixin applies to every
+     * loader that can see its class.
+     *
+     * @param inst the {@link Instrumentation} instance provided by the Java agent
+     * @param scope the class loaders of the targets, tested with {@code null} for the bootstrap class loader
+     * @param mixinClasses one or more classes annotated as mixins to be applied
+     * @throws RuntimeException if mixin analysis, transformer installation, or class retransformation fails
      */
     public static void register(
         Instrumentation inst,
+        Predicate<ClassLoader> scope,
         Class<?>... mixinClasses
     ) {
         try {
-            List<MixinMapping> mappings = new ArrayList<>();
+            reweave(inst, merge(mappings(scope, mixinClasses)), false);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Registers the mixins listed in the {@link MixinIndex} generated at compile time by
+     * {@link net.echo.hypermixins.processor.MixinProcessor}, and applies them via the
+     * provided {@link Instrumentation} instance.
+     * <p>
+     * Unlike {@link #register(Instrumentation, Class[])}, the mappings are read from the index
+     * without reflection and the mixin classes are not loaded, they are woven the first time
+     * the application loads them. The mixins were validated by the processor, so a malformed
+     * mixin fails the build instead of the startup.
+     *
+     * @param inst the {@link Instrumentation} instance provided by the Java agent
+     * @param loader the class loader of the mixins, usually the one of the agent class
+     * @throws RuntimeException if the index cannot be read, transformer installation, or class retransformation fails
+     * @implNote This method is meant to be invoked from {@code premain}, like {@link #register(Instrumentation, Class[])}.
+     */
+    public static void register(Instrumentation inst, ClassLoader loader) {
+        try {
+            // mixins and targets already loaded missed the transformer, they are retransformed
+            reweave(inst, merge(MixinIndex.load(loader)), false);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Adds mixins to a running application, replacing the registered mixins of the same name,
+     * and reweaves every loaded class they affect in a single retransformation.
+     * <p>
+     * Redirects can always be added or changed this way. Overwrites cannot on a target that is
+     * already loaded, as a retransformation cannot add or remove the fields and methods they
+     * bring, see {@link net.echo.hypermixins.agent.ClassSchema}. The change is all or nothing:
+     * if one loaded class cannot be reweaved, the previous mixins stay registered and no
+     * class is retransformed.
+     *
+     * @param mixinClasses the mixin classes to add or replace
+     * @throws IllegalStateException if HyperMixins was never registered, or a loaded class cannot be reweaved
+     * @throws RuntimeException if mixin analysis or class retransformation fails
+     * @throws LinkageError if the JVM rejects a woven class, the previous mixins stay registered
+     */
+    public static void addMixins(Class<?>... mixinClasses) {
+        try {
+            reweave(installed(), merge(mappings(null, mixinClasses)), true);
+        } catch (UnmodifiableClassException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Removes mixins from a running application and restores the loaded classes they were
+     * applied to, in a single retransformation. The same restrictions as {@link #addMixins} apply.
+     *
+     * @param mixinClassNames the binary names of the mixin classes, unknown names are ignored
+     * @throws IllegalStateException if HyperMixins was never registered, or a loaded class cannot be restored
+     * @throws RuntimeException if class retransformation fails
+     */
+    public static void removeMixins(String... mixinClassNames) {
+        Instrumentation inst = installed();
+        Set<String> removed = new HashSet<>();
+        
+        for (String mixinClassName : mixinClassNames) {
+            removed.add(mixinClassName.replace('.', '/'));
+        }
+        
+        try {
+            reweave(inst, transformer.mappings().stream()
+                .filter(mapping -> !removed.contains(mapping.mixinName))
+                .toList(), true);
+        } catch (UnmodifiableClassException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    /**
+     * Entry point of an agent attached to a running JVM, e.g. through
+     * {@code VirtualMachine.loadAgent(jar, args)}, with the agent jar declaring this class
+     * as its {@code Agent-Class}.
+     * <p>
+     * The arguments are the comma separated binary names of mixin classes to add or replace,
+     * a name prefixed with {@code -} removes that mixin instead. Without arguments, the mixin
+     * index of the system class loader, which the attached jar is appended to, is registered.
+     * Attaching the agent again with a rebuilt jar reweaves the changed mixins.
+     *
+     * @param args the mixins to add or remove, may be {@code null}
+     * @param inst the {@link Instrumentation} instance provided by the JVM
+     * @throws IllegalStateException if a loaded class cannot be reweaved, see {@link #addMixins}
+     */
+    public static void agentmain(String args, Instrumentation inst) throws ClassNotFoundException, UnmodifiableClassException {
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        
+        if (args == null || args.isBlank()) {
+            reweave(inst, merge(MixinIndex.load(loader)), true);
+            return;
+        }
+        
+        List<Class<?>> added = new ArrayList<>();
+        Set<String> removed = new HashSet<>();
+        
+        for (String arg : args.split(",")) {
+            String name = arg.strip();
             
-            for (Class<?> mixinClass : mixinClasses) {
-                mappings.add(new MixinMapping(mixinClass));
+            if (name.startsWith("-")) {
+                removed.add(name.substring(1).replace('.', '/'));
+            } else if (!name.isEmpty()) {
+                added.add(Class.forName(name, false, loader));
             }
+        }
+        
+        // added and removed mixins are reweaved together, all or nothing
+        reweave(inst, merge(mappings(null, added.toArray(new Class<?>[0]))).stream()
+            .filter(mapping -> !removed.contains(mapping.mixinName))
+            .toList(), true);
+    }
+    
+    /**
+     * Weaves up front every registered target and mixin visible from the loader, in parallel on
+     * the common {@link ForkJoinPool}, then retransforms the ones already loaded in a single batch.
+     *
+     * @see #preweave(Instrumentation, ClassLoader, Executor)
+     */
+    public static int preweave(Instrumentation inst, ClassLoader loader) {
+        return preweave(inst, loader, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Weaves up front every registered target and mixin visible from the loader, so that
+     * classes loaded later are served from memory instead of being woven on the thread that
+     * first touches them, then retransforms the ones already loaded in a single batch.
+     * <p>
+     * A retransformation cannot add fields or methods, so a target with overwrites that was
+     * loaded before {@code register} is reported and left unwoven, see {@link #addMixins}.
+     * <p>
+     * Call it after {@code register}, still from {@code premain}. The woven bytes are kept
+     * until their class is loaded, a class that never loads keeps its bytes in memory.
+     *
+     * @param inst the {@link Instrumentation} instance provided by the Java agent
+     * @param loader the loader resolving the class files of the targets and mixins
+     * @param executor runs the weaves, one task per class
+     * @return how many classes were prewoven
+     * @throws IllegalStateException if no mixin was registered
+     * @throws RuntimeException if the retransformation fails
+     */
+    public static int preweave(Instrumentation inst, ClassLoader loader, Executor executor) {
+        if (transformer == null) {
+            throw new IllegalStateException("No mixin registered, call register first");
+        }
+        
+        try {
+            int prewoven = transformer.preweave(loader, executor);
+            retransformLoaded(inst, transformer.classNames(), false);
+            return prewoven;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+    
+    private static synchronized void reweave(
+        Instrumentation inst,
+        List<MixinMapping> mappings,
+        boolean atomic
+    ) throws UnmodifiableClassException {
+        if (transformer == null) {
+            instrumentation = inst;
+            cache = WeaveCache.fromSystemProperties();
+            transformer = new MixinTransformer(List.of(), cache);
             
-            MixinTransformer transformer = new MixinTransformer(mappings);
+            if (cache != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(HyperMixins::logCache, "hypermixins-cache-stats"));
+            }
             
             inst.addTransformer(transformer, true);
-            inst.retransformClasses(mixinClasses);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
         }
+        
+        List<MixinMapping> previous = transformer.mappings();
+        Set<String> changed = transformer.setMappings(mappings);
+        
+        try {
+            retransformLoaded(inst, changed, atomic);
+        } catch (RuntimeException | LinkageError | UnmodifiableClassException ex) {
+            // classes are retransformed all at once or not at all, only the mappings are restored
+            transformer.setMappings(previous);
+            throw ex;
+        }
+    }
+    
+    // printed on exit, once the classes of the run have loaded, rather than while they are still loading
+    private static void logCache() {
+        WeaveCache.Stats stats = cache.stats();
+        System.err.println("[HyperMixins] Weave cache " + cache.directory() + ": "
+            + stats.hits() + " hits, " + stats.misses() + " misses, " + stats.evictions() + " evictions");
+    }
+    
+    private static void retransformLoaded(
+        Instrumentation inst,
+        Set<String> classNames,
+        boolean atomic
+    ) throws UnmodifiableClassException {
+        List<Class<?>> loaded = new ArrayList<>();
+        List<String> incompatible = new ArrayList<>();
+        boolean patterns = classNames.stream().anyMatch(MixinMapping::isPattern);
+        
+        for (Class<?> type : inst.getAllLoadedClasses()) {
+            String className = type.getName().replace('.', '/');
+            
+            // a class matched by a changed pattern is reweaved too, whatever its name
+            boolean changed = classNames.contains(className) || patterns && ClassFilter.matches(classNames, type);
+            
+            if (!changed || !inst.isModifiableClass(type)) continue;
+            
+            if (transformer.canRetransform(type.getClassLoader(), className)) {
+                loaded.add(type);
+            } else {
+                incompatible.add(type.getName());
+            }
+        }
+        
+        if (atomic && !incompatible.isEmpty()) {
+            throw new IllegalStateException("Cannot reweave " + String.join(", ", incompatible)
+                + " while loaded, the mixins would add or remove fields or methods");
+        }
+        
+        for (String className : incompatible) {
+            transformer.warn(className + " was loaded before its mixins were registered"
+                + " and cannot get the members of its overwrites, it is left unwoven");
+        }
+        
+        if (loaded.isEmpty()) return;
+        
+        List<MixinTransformer.Applied> previous = new ArrayList<>();
+        
+        for (Class<?> type : loaded) {
+            previous.add(transformer.applied(type.getClassLoader(), type.getName().replace('.', '/')));
+        }
+        
+        // one call, the JVM reaches a safepoint once for the whole batch
+        try {
+            inst.retransformClasses(loaded.toArray(new Class<?>[0]));
+        } catch (RuntimeException | LinkageError | UnmodifiableClassException ex) {
+            // none of the batch is redefined, even the classes transformed before the one that failed
+            for (int i = 0; i < loaded.size(); i++) {
+                Class<?> type = loaded.get(i);
+                transformer.restoreApplied(type.getClassLoader(), type.getName().replace('.', '/'), previous.get(i));
+            }
+            
+            throw ex;
+        }
+    }
+    
+    private static Instrumentation installed() {
+        if (instrumentation == null) {
+            throw new IllegalStateException("No mixin registered, call register first");
+        }
+        
+        return instrumentation;
+    }
+    
+    private static List<MixinMapping> mappings(Predicate<ClassLoader> scope, Class<?>... mixinClasses) {
+        List<MixinMapping> mappings = new ArrayList<>();
+        
+        for (Class<?> mixinClass : mixinClasses) {
+            mappings.add(new MixinMapping(mixinClass, scope));
+        }
+        
+        return mappings;
+    }
+    
+    // the registered mixins, with the ones of the same name replaced by the added ones
+    private static List<MixinMapping> merge(List<MixinMapping> added) {
+        Set<String> replaced = new HashSet<>();
+        List<MixinMapping> merged = new ArrayList<>();
+        
+        for (MixinMapping mapping : added) {
+            replaced.add(mapping.mixinName);
+        }
+        
+        if (transformer != null) {
+            for (MixinMapping mapping : transformer.mappings()) {
+                if (!replaced.contains(mapping.mixinName)) merged.add(mapping);
+            }
+        }
+        
+        merged.addAll(added);
+        return merged;
+    }
+    
+    /**
+     * Switches a {@link net.echo.hypermixins.api.Redirect#dynamic() dynamic} redirect
+     * back on, after {@link #disableRedirect}.
+     *
+     * @param id the redirect id, in the form {@code mixin.Class#handler}
+     */
+    public static void enableRedirect(String id) {
+        DynamicRedirects.setEnabled(id, true);
+    }
+    
+    /**
+     * Makes every call site of a {@link net.echo.hypermixins.api.Redirect#dynamic() dynamic}
+     * redirect call the original method again. Takes effect immediately, no restart or
+     * retransformation is needed, and also applies to call sites that are linked later.
+     *
+     * @param id the redirect id, in the form {@code mixin.Class#handler}
+     */
+    public static void disableRedirect(String id) {
+        DynamicRedirects.setEnabled(id, false);
+    }
+    
+    /**
+     * Replaces the handler of a {@link net.echo.hypermixins.api.Redirect#dynamic() dynamic} redirect.
+     *
+     * @param id the redirect id, in the form {@code mixin.Class#handler}
+     * @param handler the new handler, with the same type as the woven one,
+     *                or {@code null} to restore the woven handler
+     * @throws java.lang.invoke.WrongMethodTypeException if the handler type does not match the call sites
+     */
+    public static void swapRedirect(String id, MethodHandle handler) {
+        DynamicRedirects.setHandler(id, handler);
+    }
+    
+    /**
+     * Returns how many loaded classes were rejected by each tier of the target lookup,
+     * and how many reached the weaver.
+     *
+     * @return the filter counters, or {@code null} if no mixin was registered
+     */
+    public static ClassFilter.Stats filterStats() {
+        return transformer == null ? null : transformer.filterStats();
+    }
+    
+    /**
+     * Returns, for every class woven so far, the time spent parsing, weaving and writing it,
+     * its size before and after, how many methods were overwritten and instructions redirected,
+     * the overwrites and redirects that found nothing to replace, and the failures.
+     * Each weave is also emitted as a {@code net.echo.hypermixins.Weave} JFR event.
+     *
+     * @return the weave stats sorted by class name, empty if no mixin was registered
+     */
+    public static List<WeaveMetrics.Stats> weaveStats() {
+        return transformer == null ? List.of() : transformer.weaveStats();
+    }
+    
+    /**
+     * Returns the conflicts between mixins applied to the same target, i.e. overwrites of
+     * the same method or redirects of the same invoke, each resolved in favor of the mixin
+     * with the higher {@link net.echo.hypermixins.api.Mixin#priority() priority}.
+     * They are also printed to {@code System.err} when the mixins are registered.
+     *
+     * @return the conflict descriptions, empty if no mixin was registered
+     */
+    public static List<String> conflicts() {
+        return transformer == null ? List.of() : transformer.conflicts();
+    }
+    
+    /**
+     * Returns the {@link net.echo.hypermixins.api.Access access changes} applied to the classes
+     * woven so far and the ones rejected by their validation. Rejected changes are also printed
+     * to {@code System.err} when they are found.
+     *
+     * @return the change descriptions, sorted, empty if no mixin was registered
+     */
+    public static List<String> accessChanges() {
+        return transformer == null ? List.of() : transformer.accessChanges();
+    }
+    
+    /**
+     * Returns every problem found so far that did not fail a weave, e.g. conflicts, rejected
+     * access changes or classes left unwoven, each printed to {@code System.err} once when found.
+     *
+     * @return the warnings, sorted, empty if no mixin was registered
+     */
+    public static List<String> warnings() {
+        return transformer == null ? List.of() : transformer.warnings();
+    }
+    
+    /**
+     * Returns the call counts and durations of the methods measured by
+     * {@link net.echo.hypermixins.api.Timed} and {@link net.echo.hypermixins.api.Counted}
+     * that ran at least once, also exposed over JMX.
+     *
+     * @return the method metrics, sorted by method
+     */
+    public static List<MethodMetrics.Snapshot> metrics() {
+        return MethodMetrics.snapshots();
+    }
+    
+    /**
+     * Returns the hit and miss counters of the {@link net.echo.hypermixins.api.Memoize memoized}
+     * methods that ran at least once.
+     *
+     * @return the cache counters, sorted by method
+     */
+    public static List<MemoCache.Stats> memoStats() {
+        return MemoCache.stats();
+    }
+    
+    /**
+     * Registers the executor running the {@link net.echo.hypermixins.api.Offload offloaded}
+     * redirects that ask for it by name, or restores the default one when {@code null}.
+     * Call sites already woven use it from their next call.
+     *
+     * @param name the executor name, {@link net.echo.hypermixins.api.Offload#DEFAULT_EXECUTOR} for
+     *     every call site whose executor is not registered
+     */
+    public static void setOffloadExecutor(String name, Executor executor) {
+        Offloads.setExecutor(name, executor);
+    }
+    
+    /**
+     * Returns the submitted, executed and dropped calls of the offloaded call sites that ran at
+     * least once, and how many calls each one has waiting.
+     *
+     * @return the call site counters, sorted by redirect
+     */
+    public static List<Offloads.Stats> offloadStats() {
+        return Offloads.stats();
+    }
+    
+    /**
+     * Returns the hit and miss counters of the persistent weave cache. They are also printed
+     * to {@code System.err} when the JVM exits.
+     *
+     * @return the cache counters, or {@code null} if the cache is not enabled
+     */
+    public static WeaveCache.Stats cacheStats() {
+        return cache == null ? null : cache.stats();
     }
 }
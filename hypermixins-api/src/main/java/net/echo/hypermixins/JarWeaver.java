@@ -0,0 +1,188 @@
+package net.echo.hypermixins;
+
+import net.echo.hypermixins.agent.MixinIndex;
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Ahead-of-time weaver, applying mixins to a jar at build time.
+ * <p>
+ * Every class of the input jar goes through the same {@link MixinTransformer} used by
+ * the agent, and the woven mixin classes are added to the output jar, which therefore
+ * has to come before the original mixin classes on the class path. The patched jar runs
+ * without {@code -javaagent}, and its classes can be archived by CDS like any other.
+ * <p>
+ * Usage: {@code JarWeaver <input.jar> <output.jar> [mixin class]...}, with the mixins,
+ * the input jar and HyperMixins on the class path. Without mixin classes, the mixins are
+ * read from the {@link MixinIndex} generated by the annotation processor.
+ *
+ * @author xEcho1337
+ */
+public final class JarWeaver {
+    
+    private static final String CLASS = ".class";
+    
+    private JarWeaver() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: JarWeaver <input.jar> <output.jar> [mixin class]...");
+            System.exit(2);
+        }
+        
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        
+        // the input jar may not be on the class path, the class hierarchy must see it
+        try (URLClassLoader loader = new URLClassLoader(
+            new URL[]{input.toUri().toURL()},
+            JarWeaver.class.getClassLoader()
+        )) {
+            List<MixinMapping> mappings = new ArrayList<>();
+            
+            for (int i = 2; i < args.length; i++) {
+                mappings.add(new MixinMapping(Class.forName(args[i], false, loader)));
+            }
+            
+            if (mappings.isEmpty()) {
+                mappings = MixinIndex.load(loader);
+            }
+            
+            Result result = weave(input, output, loader, mappings);
+            System.out.println("Read " + result.classes() + " classes, wrote " + result.woven() + " woven classes to " + output);
+        }
+    }
+    
+    /**
+     * Weaves the given mixins into a jar.
+     *
+     * @param input the jar containing the target classes
+     * @param output the patched jar to write
+     * @param loader the loader resolving classes referenced by the targets
+     * @param mappings the mixins to apply
+     * @return how many classes were read and woven
+     * @throws IllegalStateException if a class fails to weave or a target is missing from the jar
+     */
+    public static Result weave(
+        Path input,
+        Path output,
+        ClassLoader loader,
+        List<MixinMapping> mappings
+    ) throws IOException {
+        MixinTransformer transformer = new MixinTransformer(mappings);
+        Set<String> missing = new HashSet<>();
+        
+        for (MixinMapping mapping : mappings) {
+            // a pattern may match no class of this jar
+            if (!MixinMapping.isPattern(mapping.targetClass)) {
+                missing.add(mapping.targetClass.replace('.', '/'));
+            }
+        }
+        
+        int classes = 0;
+        int woven = 0;
+        
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        
+        try (ZipFile jar = new ZipFile(input.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(output))) {
+            
+            Set<String> written = new HashSet<>();
+            
+            for (ZipEntry entry : Collections.list(jar.entries())) {
+                String name = entry.getName();
+                
+                // signatures no longer match once classes are woven
+                if (isSignature(name)) continue;
+                
+                byte[] bytes;
+                
+                try (InputStream in = jar.getInputStream(entry)) {
+                    bytes = in.readAllBytes();
+                }
+                
+                if (name.endsWith(CLASS) && !name.endsWith("module-info" + CLASS)) {
+                    String className = name.substring(0, name.length() - CLASS.length());
+                    byte[] result = weave(transformer, loader, className, bytes);
+                    
+                    classes++;
+                    
+                    if (result != null) {
+                        bytes = result;
+                        missing.remove(className);
+                        woven++;
+                    }
+                }
+                
+                write(out, entry, bytes);
+                written.add(name);
+            }
+            
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Mixin targets not found in " + input + ": " + missing);
+            }
+            
+            for (MixinMapping mapping : mappings) {
+                String className = mapping.mixinName;
+                
+                if (!written.add(className + CLASS)) continue;
+                
+                byte[] result = weave(transformer, loader, className, mapping.mixinBytes());
+                write(out, new ZipEntry(className + CLASS), result);
+                woven++;
+            }
+        }
+        
+        return new Result(classes, woven);
+    }
+    
+    private static byte[] weave(MixinTransformer transformer, ClassLoader loader, String className, byte[] bytes) {
+        try {
+            return transformer.weave(loader, className, bytes);
+        } catch (RuntimeException ex) {
+            throw new IllegalStateException("Failed to weave " + className, ex);
+        }
+    }
+    
+    private static void write(ZipOutputStream out, ZipEntry source, byte[] bytes) throws IOException {
+        ZipEntry entry = new ZipEntry(source.getName());
+        
+        // keeps the output reproducible
+        if (source.getTime() != -1) {
+            entry.setTime(source.getTime());
+        }
+        
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+    
+    private static boolean isSignature(String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) != -1) return false;
+        
+        return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+    }
+    
+    /**
+     * Outcome of an offline weave.
+     *
+     * @param classes classes read from the input jar
+     * @param woven classes rewritten, including the mixins added to the output
+     */
+    public record Result(int classes, int woven) {
+    }
+}
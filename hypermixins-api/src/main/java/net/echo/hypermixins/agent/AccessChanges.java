@@ -0,0 +1,317 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.*;
+
+/**
+ * The {@link AccessMapping access changes} of one target class, validated against the class
+ * bytes and the subclasses its {@link RuntimePackage runtime package} holds before it is woven.
+ * <p>
+ * Only what no class outside that package can extend or override is made final, a public class
+ * or a public or protected method may be extended from anywhere, which no loader can list.
+ * <p>
+ * Changes are resolved to new access flags per member, which {@link TargetClassVisitor} swaps in
+ * as the class streams through, so no method body is parsed unless a field is made final and
+ * its writers have to be found.
+ *
+ * @author xEcho1337
+ */
+final class AccessChanges {
+    
+    /**
+     * Key of the class itself, fields are keyed by name and type as {@code name:desc} and
+     * methods by name and descriptor.
+     */
+    static final String CLASS = "";
+    
+    /**
+     * No change at all, for the targets without any {@link net.echo.hypermixins.api.Access}.
+     */
+    static final AccessChanges NONE = new AccessChanges();
+    
+    private final Map<String, Integer> access = new HashMap<>(); // key -> new access flags
+    private final List<String> applied = new ArrayList<>();
+    private final List<String> rejected = new ArrayList<>();
+    
+    private AccessChanges() {
+    }
+    
+    /**
+     * Resolves and validates the access changes of a target.
+     *
+     * @param subclasses the subclasses of the target within its package, with the methods they
+     * declare, or {@code null} if the package cannot be listed
+     */
+    static AccessChanges of(ClassReader reader, TargetMapping mapping, Map<String, Set<String>> subclasses) {
+        boolean writers = mapping.access.stream().anyMatch(change -> change.makeFinal() && !change.field().isEmpty());
+        Members members = Members.read(reader, writers);
+        AccessChanges changes = new AccessChanges();
+        
+        for (AccessMapping change : mapping.access) {
+            changes.resolve(change, members, mapping, subclasses);
+        }
+        
+        return changes;
+    }
+    
+    /**
+     * Returns the access flags of a member once changed, see {@link #CLASS} for the keys.
+     */
+    int access(String key, int access) {
+        return this.access.getOrDefault(key, access);
+    }
+    
+    /**
+     * Returns the flags of the {@code InnerClasses} entry of the class itself once changed, which
+     * reflection reports instead of the class flags.
+     */
+    int innerAccess(int innerAccess) {
+        Integer changed = access.get(CLASS);
+        
+        if (changed == null) return innerAccess;
+        
+        if ((changed & Opcodes.ACC_PUBLIC) != 0) innerAccess = widen(innerAccess);
+        
+        return innerAccess | changed & Opcodes.ACC_FINAL;
+    }
+    
+    /**
+     * Returns whether any flag changes.
+     */
+    boolean changes() {
+        return !access.isEmpty();
+    }
+    
+    /**
+     * Returns every method a class declares, by name and descriptor.
+     */
+    static Set<String> methods(byte[] classfile) {
+        return Members.read(new ClassReader(classfile), false).methods.keySet();
+    }
+    
+    List<String> applied() {
+        return applied;
+    }
+    
+    List<String> rejected() {
+        return rejected;
+    }
+    
+    private void resolve(AccessMapping change, Members members, TargetMapping mapping, Map<String, Set<String>> subclasses) {
+        String owner = members.name.replace('/', '.');
+        
+        if (change.isClass()) {
+            change(CLASS, owner, members.access, change, classRejection(change, members, subclasses));
+            return;
+        }
+        
+        boolean field = !change.field().isEmpty();
+        Map<String, Integer> candidates = field ? members.fields : members.methods;
+        List<String> keys = candidates.keySet().stream()
+            .filter(key -> field ? key.startsWith(change.field() + ":") : matchesMethod(key, change.method()))
+            .toList();
+        
+        // a class matched by a pattern may not declare the member
+        if (keys.isEmpty() && mapping.mixins.stream().anyMatch(mixin -> isExact(mixin, change, members))) {
+            rejected.add("@Access of " + change.mixinName().replace('/', '.') + " matches no "
+                + (field ? "field " + change.field() : "method " + change.method()) + " of " + owner);
+        }
+        
+        for (String key : keys) {
+            String what = owner + "." + (field ? key.substring(0, key.indexOf(':')) : key);
+            String reason = !change.makeFinal() ? null : field
+                ? fieldRejection(key, candidates.get(key), members, mapping)
+                : methodRejection(key, candidates.get(key), members, subclasses);
+            
+            change(key, what, candidates.get(key), change, reason);
+        }
+    }
+    
+    private void change(String key, String what, int original, AccessMapping change, String reason) {
+        String by = " by " + change.mixinName().replace('/', '.');
+        
+        if (reason != null) {
+            rejected.add(what + " not made " + change.modifiers() + by + ", " + reason);
+            return;
+        }
+        
+        int current = access(key, original);
+        int updated = change.makePublic() ? widen(current) : current;
+        
+        if (change.makeFinal()) updated |= Opcodes.ACC_FINAL;
+        
+        if (updated != original) access.put(key, updated);
+        
+        applied.add(what + " made " + change.modifiers() + by);
+    }
+    
+    private static String classRejection(AccessMapping change, Members members, Map<String, Set<String>> subclasses) {
+        if (!change.makeFinal()) return null;
+        
+        if ((members.access & Opcodes.ACC_INTERFACE) != 0) return "it is an interface";
+        if ((members.access & Opcodes.ACC_ABSTRACT) != 0) return "it is abstract";
+        
+        // an enum that is not final already has constants with bodies of their own
+        if ((members.access & Opcodes.ACC_ENUM) != 0 && (members.access & Opcodes.ACC_FINAL) == 0) {
+            return "its constants have bodies";
+        }
+        
+        if (members.permitted) return "it is sealed";
+        if ((members.access & Opcodes.ACC_PUBLIC) != 0) return "it is public, its subclasses cannot all be listed";
+        if (subclasses == null) return "its package cannot be listed";
+        if (!subclasses.isEmpty()) return "it is extended by " + names(subclasses.keySet());
+        
+        return null;
+    }
+    
+    private static String methodRejection(String key, int access, Members members, Map<String, Set<String>> subclasses) {
+        if ((members.access & Opcodes.ACC_INTERFACE) != 0) return "it is declared by an interface";
+        if ((access & Opcodes.ACC_ABSTRACT) != 0) return "it is abstract";
+        
+        // nothing can override them
+        if ((access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC)) != 0) return null;
+        if ((members.access & Opcodes.ACC_FINAL) != 0) return null;
+        
+        if ((access & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) != 0) {
+            return "it is " + ((access & Opcodes.ACC_PUBLIC) != 0 ? "public" : "protected") + ", its overrides cannot all be listed";
+        }
+        
+        if (subclasses == null) return "its package cannot be listed";
+        
+        List<String> overriding = subclasses.entrySet().stream()
+            .filter(subclass -> subclass.getValue().contains(key))
+            .map(Map.Entry::getKey)
+            .toList();
+        
+        return overriding.isEmpty() ? null : "it is overridden by " + names(overriding);
+    }
+    
+    private static String fieldRejection(String key, int access, Members members, TargetMapping mapping) {
+        String name = key.substring(0, key.indexOf(':'));
+        String desc = key.substring(key.indexOf(':') + 1);
+        boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        
+        if ((access & Opcodes.ACC_PRIVATE) == 0) return "it is not private, other classes may write it";
+        if (members.nested) return "its nestmates may write it";
+        if ((access & Opcodes.ACC_VOLATILE) != 0) return "it is volatile";
+        
+        // the JVM only lets the initializer of the class write a final field
+        Set<String> writers = new TreeSet<>(members.writers.getOrDefault(key, Set.of()));
+        writers.remove(isStatic ? "<clinit>" : "<init>");
+        
+        if (!writers.isEmpty()) return "it is written by " + String.join(", ", writers);
+        
+        for (ShadowMapping shadow : mapping.shadows) {
+            if (shadow.isField() && shadow.name().equals(name) && shadow.desc().equals(desc)) return "it is shadowed by a mixin";
+        }
+        
+        for (MixinMapping mixin : mapping.mixins) {
+            for (AccessorMapping accessor : mixin.accessors) {
+                if (accessor.isSetter() && accessor.target().equals(name) && accessor.targetDesc().equals(desc)) {
+                    return "it is set by an @Accessor";
+                }
+            }
+        }
+        
+        for (RedirectMapping redirect : mapping.redirects) {
+            if (redirect.isStore() && redirect.invokeDesc().equals(members.name + "." + key)) return "its writes are redirected";
+        }
+        
+        return null;
+    }
+    
+    private static boolean matchesMethod(String key, String method) {
+        return method.indexOf('(') >= 0 ? key.equals(method) : key.startsWith(method + "(");
+    }
+    
+    private static boolean isExact(MixinMapping mixin, AccessMapping change, Members members) {
+        return mixin.mixinName.equals(change.mixinName()) && mixin.targetClass.replace('.', '/').equals(members.name);
+    }
+    
+    private static int widen(int access) {
+        return access & ~(Opcodes.ACC_PRIVATE | Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
+    }
+    
+    private static String names(Collection<String> types) {
+        return String.join(", ", types.stream().map(type -> type.replace('/', '.')).sorted().toList());
+    }
+    
+    /**
+     * The members of the class and, if asked, the methods writing each of its fields.
+     */
+    private static final class Members extends ClassVisitor {
+        
+        private final Map<String, Integer> fields = new LinkedHashMap<>();
+        private final Map<String, Integer> methods = new LinkedHashMap<>();
+        private final Map<String, Set<String>> writers = new HashMap<>(); // field key -> methods writing it
+        private final boolean code;
+        
+        private String name;
+        private int access;
+        private boolean permitted;
+        private boolean nested; // a nest host or member, whose nestmates reach its private fields
+        
+        private Members(boolean code) {
+            super(Opcodes.ASM9);
+            this.code = code;
+        }
+        
+        static Members read(ClassReader reader, boolean writers) {
+            Members members = new Members(writers);
+            int flags = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+            
+            reader.accept(members, writers ? flags : flags | ClassReader.SKIP_CODE);
+            return members;
+        }
+        
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name;
+            this.access = access;
+        }
+        
+        @Override
+        public void visitNestHost(String nestHost) {
+            nested = true;
+        }
+        
+        @Override
+        public void visitNestMember(String nestMember) {
+            nested = true;
+        }
+        
+        @Override
+        public void visitPermittedSubclass(String permittedSubclass) {
+            permitted = true;
+        }
+        
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            fields.put(name + ":" + descriptor, access);
+            return null;
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(int access, String method, String descriptor, String signature, String[] exceptions) {
+            methods.put(method + descriptor, access);
+            
+            if (!code) return null;
+            
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String field, String desc) {
+                    boolean store = opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC;
+                    
+                    if (store && owner.equals(name)) {
+                        writers.computeIfAbsent(field + ":" + desc, k -> new HashSet<>()).add(method);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.echo.hypermixins.agent;
+
+/**
+ * One {@link net.echo.hypermixins.api.Access} of a mixin. With neither a field nor a method, the
+ * target class itself is changed.
+ *
+ * @param mixinName the internal name of the mixin declaring the change
+ * @param field the target field, empty if none
+ * @param method the target method, with or without its descriptor, empty if none
+ * @author xEcho1337
+ */
+public record AccessMapping(String mixinName, String field, String method, boolean makePublic, boolean makeFinal) {
+    
+    /**
+     * Returns whether the change applies to the target class rather than to one of its members.
+     */
+    public boolean isClass() {
+        return field.isEmpty() && method.isEmpty();
+    }
+    
+    /**
+     * Returns whether the change makes the class or a method final, which depends on the subclasses of the target.
+     */
+    public boolean finalizes() {
+        return makeFinal && field.isEmpty();
+    }
+    
+    /**
+     * Returns the modifiers added, in the form {@code public final}.
+     */
+    public String modifiers() {
+        return makePublic && makeFinal ? "public final" : makePublic ? "public" : "final";
+    }
+}
@@ -0,0 +1,135 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Adds the static accessors of {@link net.echo.hypermixins.api.Shadow Shadows} and the
+ * {@link net.echo.hypermixins.api.Accessor} and {@link net.echo.hypermixins.api.Invoker}
+ * methods of the mixin interfaces, once the members of the class are known.
+ *
+ * @author xEcho1337
+ */
+final class AccessorApplier {
+    
+    private final TargetClass target;
+    
+    AccessorApplier(TargetClass target) {
+        this.target = target;
+    }
+    
+    void apply(ClassVisitor cv) {
+        TargetMapping mapping = target.mapping();
+        
+        for (ShadowMapping shadow : mapping.shadows) {
+            addShadowAccessors(cv, shadow);
+        }
+        
+        for (MixinMapping mixin : mapping.mixins) {
+            for (AccessorMapping accessor : mixin.accessors) {
+                addAccessor(cv, mixin, accessor);
+            }
+        }
+    }
+    
+    private void addShadowAccessors(ClassVisitor cv, ShadowMapping shadow) {
+        String owner = target.owner();
+        int access = memberAccess(shadow.key(), shadow.isStatic(), "@Shadow " + shadow.key());
+        int accessor = Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC;
+        
+        if (!shadow.isField()) {
+            addDelegate(cv, accessor, shadow.getter(), shadow.getterDesc(owner), false, invoke(access, shadow.name(), shadow.desc()));
+            return;
+        }
+        
+        int get = shadow.isStatic() ? Opcodes.GETSTATIC : Opcodes.GETFIELD;
+        int put = shadow.isStatic() ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD;
+        
+        // writing a final field fails when the setter runs, like any write outside of the initializer
+        addDelegate(cv, accessor, shadow.getter(), shadow.getterDesc(owner), false, new FieldInsnNode(get, owner, shadow.name(), shadow.desc()));
+        addDelegate(cv, accessor, shadow.setter(), shadow.setterDesc(owner), false, new FieldInsnNode(put, owner, shadow.name(), shadow.desc()));
+    }
+    
+    private void addAccessor(ClassVisitor cv, MixinMapping mixin, AccessorMapping accessor) {
+        String owner = target.owner();
+        String what = (accessor.invoker() ? "@Invoker " : "@Accessor ") + mixin.mixinName.replace('/', '.') + "." + accessor.name();
+        String key = accessor.invoker() ? accessor.target() + accessor.targetDesc() : accessor.target() + ":" + accessor.targetDesc();
+        Integer access = target.memberAccess(key);
+        
+        if (access == null) {
+            throw new IllegalStateException(what + " matches no " + (accessor.invoker() ? "method " : "field ") + key + " of " + owner);
+        }
+        
+        boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        AbstractInsnNode call;
+        
+        if (accessor.invoker()) {
+            call = invoke(access, accessor.target(), accessor.targetDesc());
+        } else if (accessor.isSetter()) {
+            call = new FieldInsnNode(isStatic ? Opcodes.PUTSTATIC : Opcodes.PUTFIELD, owner, accessor.target(), accessor.targetDesc());
+        } else {
+            call = new FieldInsnNode(isStatic ? Opcodes.GETSTATIC : Opcodes.GETFIELD, owner, accessor.target(), accessor.targetDesc());
+        }
+        
+        addDelegate(cv, Opcodes.ACC_PUBLIC, accessor.name(), accessor.desc(), !isStatic, call);
+    }
+    
+    private int memberAccess(String key, boolean isStatic, String what) {
+        Integer access = target.memberAccess(key);
+        
+        if (access == null || ((access & Opcodes.ACC_STATIC) != 0) != isStatic) {
+            throw new IllegalStateException(what + " matches no " + (isStatic ? "static" : "instance") + " member of " + target.owner());
+        }
+        
+        return access;
+    }
+    
+    private MethodInsnNode invoke(int access, String name, String desc) {
+        int opcode;
+        
+        if ((access & Opcodes.ACC_STATIC) != 0) {
+            opcode = Opcodes.INVOKESTATIC;
+        } else if ((access & Opcodes.ACC_PRIVATE) != 0) {
+            opcode = Opcodes.INVOKESPECIAL;
+        } else {
+            opcode = Opcodes.INVOKEVIRTUAL;
+        }
+        
+        return new MethodInsnNode(opcode, target.owner(), name, desc, false);
+    }
+    
+    /**
+     * Adds a method passing its arguments, after {@code this} if asked, to a single instruction.
+     */
+    private void addDelegate(ClassVisitor cv, int access, String name, String desc, boolean loadThis, AbstractInsnNode call) {
+        if (!target.addMethod(name + desc)) {
+            throw new IllegalStateException("Accessor " + name + desc + " clashes with a method of " + target.owner());
+        }
+        
+        MethodNode method = new MethodNode(access, name, desc, null, null);
+        InsnList insns = method.instructions;
+        int local = 0;
+        
+        if ((access & Opcodes.ACC_STATIC) == 0) {
+            if (loadThis) insns.add(new VarInsnNode(Opcodes.ALOAD, 0));
+            local = 1;
+        }
+        
+        for (Type arg : Type.getArgumentTypes(desc)) {
+            insns.add(new VarInsnNode(arg.getOpcode(Opcodes.ILOAD), local));
+            local += arg.getSize();
+        }
+        
+        insns.add(call);
+        insns.add(new InsnNode(Type.getReturnType(desc).getOpcode(Opcodes.IRETURN)));
+        method.accept(cv);
+    }
+}
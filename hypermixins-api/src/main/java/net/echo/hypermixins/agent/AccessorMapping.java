@@ -0,0 +1,32 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Type;
+
+/**
+ * One {@link net.echo.hypermixins.api.Accessor} or {@link net.echo.hypermixins.api.Invoker}
+ * of a mixin interface, implemented by the target class.
+ *
+ * @param name the interface method
+ * @param desc the descriptor of the interface method
+ * @param target the target field or method
+ * @param invoker whether the target is a method
+ * @author xEcho1337
+ */
+public record AccessorMapping(String name, String desc, String target, boolean invoker) {
+    
+    /**
+     * Returns whether the accessor writes its field.
+     */
+    public boolean isSetter() {
+        return !invoker && Type.getReturnType(desc).getSort() == Type.VOID;
+    }
+    
+    /**
+     * Descriptor of the target member, the field type for an accessor.
+     */
+    public String targetDesc() {
+        if (invoker) return desc;
+        
+        return isSetter() ? Type.getArgumentTypes(desc)[0].getDescriptor() : Type.getReturnType(desc).getDescriptor();
+    }
+}
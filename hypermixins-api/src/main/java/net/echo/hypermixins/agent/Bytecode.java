@@ -0,0 +1,141 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Instruction sequences shared by the appliers of {@link TargetClassVisitor}.
+ *
+ * @author xEcho1337
+ */
+final class Bytecode {
+    
+    private Bytecode() {
+    }
+    
+    static boolean isReturn(AbstractInsnNode insn) {
+        return insn.getOpcode() >= Opcodes.IRETURN && insn.getOpcode() <= Opcodes.RETURN;
+    }
+    
+    /**
+     * Returns the static {@code bootstrap} method of a class, taking the static arguments after
+     * the lookup, name and type of the call site.
+     */
+    static Handle bootstrap(Class<?> owner, Type... arguments) {
+        Type[] parameters = new Type[arguments.length + 3];
+        
+        parameters[0] = Type.getType(MethodHandles.Lookup.class);
+        parameters[1] = Type.getType(String.class);
+        parameters[2] = Type.getType(MethodType.class);
+        System.arraycopy(arguments, 0, parameters, 3, arguments.length);
+        
+        return new Handle(
+            Opcodes.H_INVOKESTATIC,
+            Type.getInternalName(owner),
+            "bootstrap",
+            Type.getMethodDescriptor(Type.getType(CallSite.class), parameters),
+            false
+        );
+    }
+    
+    /**
+     * Returns the first local no instruction uses, the max locals of a rewritten body cannot be trusted.
+     */
+    static int nextLocal(MethodNode method) {
+        int next = Type.getArgumentsAndReturnSizes(method.desc) >> 2;
+        
+        if ((method.access & Opcodes.ACC_STATIC) != 0) next--; // no this
+        
+        for (AbstractInsnNode insn : method.instructions) {
+            if (insn instanceof VarInsnNode var) {
+                int opcode = var.getOpcode();
+                boolean wide = opcode == Opcodes.LLOAD || opcode == Opcodes.DLOAD
+                    || opcode == Opcodes.LSTORE || opcode == Opcodes.DSTORE;
+                
+                next = Math.max(next, var.var + (wide ? 2 : 1));
+            } else if (insn instanceof IincInsnNode iinc) {
+                next = Math.max(next, iinc.var + 1);
+            }
+        }
+        
+        return next;
+    }
+    
+    static InsnList defaultValue(Type type) {
+        InsnList insns = new InsnList();
+        
+        switch (type.getSort()) {
+            case Type.VOID -> {
+            }
+            case Type.LONG -> insns.add(new InsnNode(Opcodes.LCONST_0));
+            case Type.FLOAT -> insns.add(new InsnNode(Opcodes.FCONST_0));
+            case Type.DOUBLE -> insns.add(new InsnNode(Opcodes.DCONST_0));
+            case Type.OBJECT, Type.ARRAY -> insns.add(new InsnNode(Opcodes.ACONST_NULL));
+            default -> insns.add(new InsnNode(Opcodes.ICONST_0));
+        }
+        
+        return insns;
+    }
+    
+    static InsnList box(Type type) {
+        InsnList insns = new InsnList();
+        
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) return insns;
+        
+        Type boxed = boxedType(type);
+        insns.add(new MethodInsnNode(
+            Opcodes.INVOKESTATIC,
+            boxed.getInternalName(),
+            "valueOf",
+            Type.getMethodDescriptor(boxed, type),
+            false
+        ));
+        return insns;
+    }
+    
+    static InsnList unbox(Type type) {
+        InsnList insns = new InsnList();
+        
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+            insns.add(new TypeInsnNode(Opcodes.CHECKCAST, type.getInternalName()));
+            return insns;
+        }
+        
+        Type boxed = boxedType(type);
+        insns.add(new TypeInsnNode(Opcodes.CHECKCAST, boxed.getInternalName()));
+        insns.add(new MethodInsnNode(
+            Opcodes.INVOKEVIRTUAL,
+            boxed.getInternalName(),
+            type.getClassName() + "Value",
+            Type.getMethodDescriptor(type),
+            false
+        ));
+        return insns;
+    }
+    
+    private static Type boxedType(Type primitive) {
+        return Type.getObjectType(switch (primitive.getSort()) {
+            case Type.BOOLEAN -> "java/lang/Boolean";
+            case Type.CHAR -> "java/lang/Character";
+            case Type.BYTE -> "java/lang/Byte";
+            case Type.SHORT -> "java/lang/Short";
+            case Type.INT -> "java/lang/Integer";
+            case Type.FLOAT -> "java/lang/Float";
+            case Type.LONG -> "java/lang/Long";
+            default -> "java/lang/Double";
+        });
+    }
+}
@@ -0,0 +1,277 @@
+package net.echo.hypermixins.agent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+/**
+ * Tiered lookup deciding which loaded classes are worth weaving.
+ * <p>
+ * Values are bound to a key, either the internal name of a class or a pattern:
+ * <ul>
+ *     <li>{@code a/b/Type+} binds {@code a/b/Type} and every class extending or implementing it,
+ *     directly or not;</li>
+ *     <li>{@code a/b/*} binds every class of the package {@code a/b};</li>
+ *     <li>{@code a/b/**} binds every class of the package {@code a/b} and of its subpackages.</li>
+ * </ul>
+ * Every class the JVM loads goes through {@link #match}, so rejection must be cheap:
+ * <ol>
+ *     <li>exact binary names and packages are looked up in hash maps;</li>
+ *     <li>only if supertypes are registered, the constant pool of the class is scanned
+ *     through {@link ClassHeader} and its direct super class and interfaces are looked up
+ *     in an index of the types already seen, each type of a loader is resolved once;</li>
+ *     <li>whatever survives is handed to the weaver.</li>
+ * </ol>
+ * Each tier counts the classes it settled, see {@link #stats()}. A class matching several
+ * keys gets the values of all of them, combined by the merge function.
+ * <p>
+ * Bindings are copied on write, so they can be changed at runtime while classes are being
+ * matched without any lock on the lookup path.
+ * <p>
+ * While supertypes are registered, the index holds one entry per type each loader defined, kept
+ * until the loader is collected or the supertypes change. A super class is transformed after its
+ * subclasses, so the supertypes not loaded yet are read from the class files of their loader.
+ *
+ * @param <T> the value bound to a matching class
+ * @author xEcho1337
+ */
+public class ClassFilter<T> {
+    
+    private volatile Bindings<T> bindings = new Bindings<>(Map.of(), null);
+    private final ClassHierarchy hierarchy;
+    private final BinaryOperator<T> merge;
+    
+    private final LongAdder rejectedByName = new LongAdder();
+    private final LongAdder rejectedByHeader = new LongAdder();
+    private final LongAdder matchedByName = new LongAdder();
+    private final LongAdder matchedByHeader = new LongAdder();
+    
+    /**
+     * @param hierarchy resolves the supertypes not seen yet, may be {@code null}
+     * @param merge combines the values of a class matching several keys
+     */
+    public ClassFilter(ClassHierarchy hierarchy, BinaryOperator<T> merge) {
+        this.hierarchy = hierarchy;
+        this.merge = merge;
+    }
+    
+    /**
+     * Binds a value to the classes matching a key, the internal name of a class or a pattern.
+     */
+    public synchronized void put(String key, T value) {
+        Map<String, T> copy = new HashMap<>(bindings.keys);
+        copy.put(key, value);
+        bindings = new Bindings<>(copy, bindings);
+    }
+    
+    /**
+     * Unbinds a key.
+     */
+    public synchronized void remove(String key) {
+        Map<String, T> copy = new HashMap<>(bindings.keys);
+        copy.remove(key);
+        bindings = new Bindings<>(copy, bindings);
+    }
+    
+    /**
+     * Returns the value bound to a key, without touching the counters.
+     */
+    public T get(String key) {
+        return bindings.keys.get(key);
+    }
+    
+    /**
+     * Returns every bound key.
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(bindings.keys.keySet());
+    }
+    
+    /**
+     * Returns the internal names of the classes bound by exact name.
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(bindings.names.keySet());
+    }
+    
+    /**
+     * Returns the value bound to a class, or {@code null} if it must not be woven.
+     *
+     * @param className internal name of the class, may be {@code null} for hidden classes
+     * @param loader the loader defining the class
+     * @param classfile the class bytes, only read when supertypes are registered
+     */
+    public T match(String className, ClassLoader loader, byte[] classfile) {
+        Bindings<T> bindings = this.bindings;
+        T value = className == null ? null : byName(bindings, className);
+        
+        if (bindings.supertypes.isEmpty() || classfile == null) {
+            (value != null ? matchedByName : rejectedByName).increment();
+            return value;
+        }
+        
+        ClassHeader header = ClassHeader.read(classfile);
+        T inherited = inherited(bindings, header, loader);
+        
+        if (value != null) {
+            matchedByName.increment();
+            return combine(value, inherited);
+        }
+        
+        (inherited != null ? matchedByHeader : rejectedByHeader).increment();
+        return inherited;
+    }
+    
+    /**
+     * Returns whether a loaded class is matched by one of the given keys, to find the classes to
+     * retransform once their bindings changed. Unlike {@link #match}, this walks the class and
+     * its supertypes, it is not meant to run on every loaded class.
+     */
+    public static boolean matches(Set<String> keys, Class<?> type) {
+        String className = type.getName().replace('.', '/');
+        
+        if (keys.contains(className)) return true;
+        
+        int slash = className.lastIndexOf('/');
+        
+        if (slash > 0 && keys.contains(className.substring(0, slash) + "/*")) return true;
+        
+        for (; slash > 0; slash = className.lastIndexOf('/', slash - 1)) {
+            if (keys.contains(className.substring(0, slash) + "/**")) return true;
+        }
+        
+        return isSubtype(keys, type);
+    }
+    
+    private static boolean isSubtype(Set<String> keys, Class<?> type) {
+        if (type == null) return false;
+        
+        if (keys.contains(type.getName().replace('.', '/') + "+")) return true;
+        
+        for (Class<?> itf : type.getInterfaces()) {
+            if (isSubtype(keys, itf)) return true;
+        }
+        
+        return isSubtype(keys, type.getSuperclass());
+    }
+    
+    public Stats stats() {
+        return new Stats(rejectedByName.sum(), rejectedByHeader.sum(), matchedByName.sum(), matchedByHeader.sum());
+    }
+    
+    private T byName(Bindings<T> bindings, String className) {
+        T value = bindings.names.get(className);
+        
+        if (bindings.packages.isEmpty() && bindings.trees.isEmpty()) return value;
+        
+        int slash = className.lastIndexOf('/');
+        
+        if (slash <= 0) return value;
+        
+        value = combine(value, bindings.packages.get(className.substring(0, slash)));
+        
+        // one lookup per enclosing package, however many trees are registered
+        for (; slash > 0 && !bindings.trees.isEmpty(); slash = className.lastIndexOf('/', slash - 1)) {
+            value = combine(value, bindings.trees.get(className.substring(0, slash)));
+        }
+        
+        return value;
+    }
+    
+    // the values a class inherits from its supertypes, kept for the subclasses loaded later
+    private T inherited(Bindings<T> bindings, ClassHeader header, ClassLoader loader) {
+        T value = bindings.supertypes.get(header.name());
+        
+        if (header.superName() != null) {
+            value = combine(value, inherited(bindings, header.superName(), loader));
+        }
+        
+        for (String itf : header.interfaces()) {
+            value = combine(value, inherited(bindings, itf, loader));
+        }
+        
+        bindings.index(loader).put(header.name(), Optional.ofNullable(value));
+        return value;
+    }
+    
+    private T inherited(Bindings<T> bindings, String type, ClassLoader loader) {
+        ConcurrentMap<String, Optional<T>> index = bindings.index(loader);
+        Optional<T> known = index.get(type);
+        
+        if (known != null) return known.orElse(null);
+        
+        // a super class is loaded after its subclasses were transformed, its header is read here
+        T value = bindings.supertypes.get(type);
+        
+        if (hierarchy != null) {
+            for (String supertype : hierarchy.supertypes(type, loader)) {
+                value = combine(value, inherited(bindings, supertype, loader));
+            }
+        }
+        
+        // not computeIfAbsent, which cannot recurse into the same map
+        index.put(type, Optional.ofNullable(value));
+        return value;
+    }
+    
+    private T combine(T first, T second) {
+        if (first == null || first == second) return second;
+        if (second == null) return first;
+        
+        return merge.apply(first, second);
+    }
+    
+    /**
+     * Every key, split by kind so a class is matched through lookups only, with the index of the
+     * values inherited by the types seen so far under these supertypes.
+     */
+    private static final class Bindings<T> {
+        
+        private final Map<String, T> keys;
+        private final Map<String, T> names = new HashMap<>();
+        private final Map<String, T> packages = new HashMap<>(); // a/b for a/b/*
+        private final Map<String, T> trees = new HashMap<>(); // a/b for a/b/**
+        private final Map<String, T> supertypes = new HashMap<>(); // a/b/Type for a/b/Type+
+        private final LoaderMap<ConcurrentMap<String, Optional<T>>> inherited;
+        
+        private Bindings(Map<String, T> keys, Bindings<T> previous) {
+            this.keys = keys;
+            
+            keys.forEach((key, value) -> {
+                if (key.endsWith("/**")) {
+                    trees.put(key.substring(0, key.length() - 3), value);
+                } else if (key.endsWith("/*")) {
+                    packages.put(key.substring(0, key.length() - 2), value);
+                } else if (key.endsWith("+")) {
+                    supertypes.put(key.substring(0, key.length() - 1), value);
+                } else {
+                    names.put(key, value);
+                }
+            });
+            
+            // the index stays valid as long as the supertypes are bound to the same values
+            this.inherited = previous != null && previous.supertypes.equals(supertypes) ? previous.inherited : new LoaderMap<>();
+        }
+        
+        private ConcurrentMap<String, Optional<T>> index(ClassLoader loader) {
+            return inherited.computeIfAbsent(loader, ConcurrentHashMap::new);
+        }
+    }
+    
+    /**
+     * Snapshot of the filter counters.
+     *
+     * @param rejectedByName classes rejected by the name lookups alone
+     * @param rejectedByHeader classes rejected after scanning their constant pool
+     * @param matchedByName classes matched by exact name or package
+     * @param matchedByHeader classes matched through a supertype in their header
+     */
+    public record Stats(long rejectedByName, long rejectedByHeader, long matchedByName, long matchedByHeader) {
+    }
+}
@@ -0,0 +1,91 @@
+package net.echo.hypermixins.agent;
+
+/**
+ * Access flags, name, super class and interfaces of a class file.
+ * <p>
+ * {@link #read} only walks the constant pool to reach the header and decodes the
+ * few names it needs, without building a {@link org.objectweb.asm.ClassReader}
+ * symbol table or any tree, so it is cheap enough to run on every loaded class.
+ *
+ * @author xEcho1337
+ */
+public record ClassHeader(int access, String name, String superName, String[] interfaces) {
+    
+    /**
+     * Parses the header of a class file.
+     *
+     * @throws IllegalArgumentException if the bytes are not a class file
+     */
+    public static ClassHeader read(byte[] b) {
+        if (b.length < 10 || readInt(b, 0) != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        
+        int count = readUnsignedShort(b, 8);
+        int[] offsets = new int[count];
+        int offset = 10;
+        
+        for (int i = 1; i < count; i++) {
+            offsets[i] = offset + 1;
+            
+            switch (b[offset]) {
+                case 1 -> offset += 3 + readUnsignedShort(b, offset + 1); // Utf8
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> offset += 5; // Integer, Float, refs, NameAndType, (Invoke)Dynamic
+                case 5, 6 -> { // Long, Double take two slots
+                    offset += 9;
+                    i++;
+                }
+                case 7, 8, 16, 19, 20 -> offset += 3; // Class, String, MethodType, Module, Package
+                case 15 -> offset += 4; // MethodHandle
+                default -> throw new IllegalArgumentException("Unknown constant pool tag " + b[offset]);
+            }
+        }
+        
+        int access = readUnsignedShort(b, offset);
+        String name = className(b, offsets, readUnsignedShort(b, offset + 2));
+        String superName = className(b, offsets, readUnsignedShort(b, offset + 4));
+        String[] interfaces = new String[readUnsignedShort(b, offset + 6)];
+        
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = className(b, offsets, readUnsignedShort(b, offset + 8 + i * 2));
+        }
+        
+        return new ClassHeader(access, name, superName, interfaces);
+    }
+    
+    private static String className(byte[] b, int[] offsets, int index) {
+        if (index == 0) return null; // java/lang/Object has no super class
+        
+        int utf8 = offsets[readUnsignedShort(b, offsets[index])];
+        return readUtf8(b, utf8 + 2, readUnsignedShort(b, utf8));
+    }
+    
+    private static String readUtf8(byte[] b, int offset, int length) {
+        char[] chars = new char[length];
+        int end = offset + length;
+        int size = 0;
+        
+        // modified UTF-8, see JVMS 4.4.7
+        while (offset < end) {
+            int c = b[offset++];
+            
+            if ((c & 0x80) == 0) {
+                chars[size++] = (char) (c & 0x7F);
+            } else if ((c & 0xE0) == 0xC0) {
+                chars[size++] = (char) (((c & 0x1F) << 6) + (b[offset++] & 0x3F));
+            } else {
+                chars[size++] = (char) (((c & 0xF) << 12) + ((b[offset++] & 0x3F) << 6) + (b[offset++] & 0x3F));
+            }
+        }
+        
+        return new String(chars, 0, size);
+    }
+    
+    private static int readUnsignedShort(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 8) | (b[offset + 1] & 0xFF);
+    }
+    
+    private static int readInt(byte[] b, int offset) {
+        return (readUnsignedShort(b, offset) << 16) | readUnsignedShort(b, offset + 2);
+    }
+}
@@ -0,0 +1,190 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Type hierarchy derived purely from class bytes.
+ * <p>
+ * Entries are recorded from the class files the transformer already parses and,
+ * when a type was never seen, read on demand as a {@code .class} resource.
+ * No class is ever loaded, so resolving a common super class from inside
+ * {@link java.lang.instrument.ClassFileTransformer#transform} cannot trigger
+ * nested class loading.
+ * <p>
+ * Types are kept per class loader, since isolated loaders can define different classes under
+ * the same name. A lookup also sees the types recorded for the parents of its loader, and the
+ * types of a loader are dropped once it is collected.
+ *
+ * @author xEcho1337
+ */
+public class ClassHierarchy {
+    
+    private static final String OBJECT = "java/lang/Object";
+    private static final TypeInfo MISSING = new TypeInfo(null, new String[0], false);
+    
+    private final LoaderMap<ConcurrentMap<String, TypeInfo>> types = new LoaderMap<>();
+    
+    /**
+     * Records the header of an already parsed class.
+     *
+     * @param loader the loader defining the class
+     */
+    public void record(ClassReader reader, ClassLoader loader) {
+        types(loader).put(reader.getClassName(), new TypeInfo(
+            reader.getSuperName(),
+            reader.getInterfaces(),
+            (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0
+        ));
+    }
+    
+    /**
+     * Records a class header scanned without a {@link ClassReader}.
+     *
+     * @param loader the loader defining the class
+     */
+    public void record(ClassHeader header, ClassLoader loader) {
+        types(loader).put(header.name(), new TypeInfo(
+            header.superName(),
+            header.interfaces(),
+            (header.access() & Opcodes.ACC_INTERFACE) != 0
+        ));
+    }
+    
+    /**
+     * Returns the internal name of the closest common super class of two types,
+     * mirroring the contract of {@link org.objectweb.asm.ClassWriter#getCommonSuperClass}.
+     */
+    public String getCommonSuperClass(String type1, String type2, ClassLoader loader) {
+        if (type1.equals(type2)) return type1;
+        
+        TypeInfo info1 = resolve(type1, loader);
+        TypeInfo info2 = resolve(type2, loader);
+        
+        // unknown types can only be merged as Object
+        if (info1 == MISSING || info2 == MISSING) return OBJECT;
+        
+        if (isSubtype(type2, type1, loader)) return type1;
+        if (isSubtype(type1, type2, loader)) return type2;
+        
+        if (info1.isInterface() || info2.isInterface()) return OBJECT;
+        
+        String current = info1.superName();
+        
+        while (current != null) {
+            if (isSubtype(type2, current, loader)) return current;
+            current = resolve(current, loader).superName();
+        }
+        
+        return OBJECT;
+    }
+    
+    /**
+     * Returns the direct super class and interfaces of a type, none if it cannot be found.
+     */
+    String[] supertypes(String type, ClassLoader loader) {
+        TypeInfo info = resolve(type, loader);
+        
+        if (info.superName() == null) return info.interfaces();
+        
+        String[] supertypes = Arrays.copyOf(info.interfaces(), info.interfaces().length + 1);
+        supertypes[info.interfaces().length] = info.superName();
+        return supertypes;
+    }
+    
+    /**
+     * Returns the super classes of a type, closest first, or {@code null} if one of them cannot
+     * be found.
+     */
+    List<String> superClasses(String type, ClassLoader loader) {
+        List<String> superClasses = new ArrayList<>();
+        
+        for (String current = type; !current.equals(OBJECT); ) {
+            TypeInfo info = resolve(current, loader);
+            
+            if (info == MISSING || info.superName() == null) return null;
+            
+            current = info.superName();
+            superClasses.add(current);
+        }
+        
+        return superClasses;
+    }
+    
+    private boolean isSubtype(String type, String parent, ClassLoader loader) {
+        Deque<String> queue = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        queue.add(type);
+        
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            
+            if (current.equals(parent)) return true;
+            if (!visited.add(current)) continue;
+            
+            TypeInfo info = resolve(current, loader);
+            
+            if (info.superName() != null) queue.add(info.superName());
+            
+            for (String itf : info.interfaces()) {
+                queue.add(itf);
+            }
+        }
+        
+        return false;
+    }
+    
+    private ConcurrentMap<String, TypeInfo> types(ClassLoader loader) {
+        return types.computeIfAbsent(loader, ConcurrentHashMap::new);
+    }
+    
+    private TypeInfo resolve(String type, ClassLoader loader) {
+        // a loader sees the types of its parents, which define most types, e.g. the ones of the JDK
+        for (ClassLoader current = loader; ; current = current.getParent()) {
+            ConcurrentMap<String, TypeInfo> recorded = types.get(current);
+            TypeInfo info = recorded == null ? null : recorded.get(type);
+            
+            if (info != null) return info;
+            if (current == null) break;
+        }
+        
+        // read outside the map so concurrent lookups never block on I/O
+        TypeInfo info = read(type, loader);
+        TypeInfo previous = types(loader).putIfAbsent(type, info);
+        
+        return previous != null ? previous : info;
+    }
+    
+    private static TypeInfo read(String type, ClassLoader loader) {
+        String resource = type + ".class";
+        
+        try (InputStream in = Loaders.resources(loader).getResourceAsStream(resource)) {
+            if (in == null) return MISSING;
+            
+            ClassReader reader = new ClassReader(in);
+            
+            return new TypeInfo(
+                reader.getSuperName(),
+                reader.getInterfaces(),
+                (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0
+            );
+        } catch (IOException ex) {
+            return MISSING;
+        }
+    }
+    
+    private record TypeInfo(String superName, String[] interfaces, boolean isInterface) {
+    }
+}
@@ -0,0 +1,85 @@
+package net.echo.hypermixins.agent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Runtime state of the woven classes, such as the caches, metrics and call sites their
+ * {@code invokedynamic} instructions are bound to.
+ * <p>
+ * State is kept by the class that bootstrapped it, the {@link java.lang.invoke.MethodHandles.Lookup#lookupClass()
+ * lookup class}, through a {@link ClassValue}. Two loaders defining a class of the same name never
+ * share state, and the state of a class goes away with it even when it references the class or its
+ * loader. The runtime API reaches the values through a weak index, which is never touched by woven
+ * code once its call sites are linked.
+ *
+ * @param <V> the state bound to one id of a class
+ * @author xEcho1337
+ */
+final class ClassRegistry<V> {
+    
+    private final ClassValue<ConcurrentMap<Object, V>> values = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<Object, V> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    private final Set<V> index = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    
+    /**
+     * Binds the value of an id of a class, {@code update} is given the current value or
+     * {@code null} and returns it, or the value replacing it.
+     */
+    V compute(Class<?> owner, String id, Function<V, V> update) {
+        Object[] replaced = new Object[1];
+        V value = values.get(owner).compute(id, (k, current) -> {
+            V updated = update.apply(current);
+            
+            if (current != updated) replaced[0] = current;
+            
+            return updated;
+        });
+        
+        if (replaced[0] != null) index.remove(replaced[0]);
+        
+        index.add(value);
+        return value;
+    }
+    
+    /**
+     * Binds a value under an id of its own, for the values a class has several of.
+     */
+    void add(Class<?> owner, V value) {
+        values.get(owner).put(new Object(), value);
+        index.add(value);
+    }
+    
+    /**
+     * Drops the values of a class, whose call sites are linked again once it is redefined.
+     */
+    void clear(Class<?> owner) {
+        Map<Object, V> dropped = values.get(owner);
+        values.remove(owner);
+        
+        synchronized (index) {
+            dropped.values().forEach(index::remove);
+        }
+    }
+    
+    /**
+     * Returns the values of every class still loaded.
+     */
+    List<V> values() {
+        synchronized (index) {
+            return new ArrayList<>(index);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.*;
+
+/**
+ * The parts of a class a retransformation is not allowed to change: its header, its fields
+ * in declaration order, and its methods except private static or final ones.
+ * <p>
+ * Two versions of a loaded class with equal schemas can replace each other at runtime.
+ * Method bodies, and the {@code native} flag that {@link net.echo.hypermixins.api.Original}
+ * stubs lose when woven, are left out.
+ *
+ * @author xEcho1337
+ */
+public record ClassSchema(
+    int access,
+    String superName,
+    List<String> interfaces,
+    List<String> fields,
+    Set<String> methods
+) {
+    
+    public static ClassSchema of(byte[] classfile) {
+        ClassReader reader = new ClassReader(classfile);
+        List<String> fields = new ArrayList<>();
+        Set<String> methods = new HashSet<>();
+        
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                fields.add(access + " " + name + " " + descriptor);
+                return null;
+            }
+            
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                boolean replaceable = (access & Opcodes.ACC_PRIVATE) != 0
+                    && (access & (Opcodes.ACC_STATIC | Opcodes.ACC_FINAL)) != 0;
+                
+                if (!replaceable) {
+                    methods.add((access & ~Opcodes.ACC_NATIVE) + " " + name + descriptor);
+                }
+                
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        
+        return new ClassSchema(
+            reader.getAccess(),
+            reader.getSuperName(),
+            List.of(reader.getInterfaces()),
+            fields,
+            methods
+        );
+    }
+}
@@ -0,0 +1,177 @@
+package net.echo.hypermixins.agent;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runtime side of {@link net.echo.hypermixins.api.Redirect#dynamic() dynamic} redirects.
+ * <p>
+ * Every dynamic redirect call site is an {@code invokedynamic} bootstrapped by
+ * {@link #bootstrap}, which binds it to a {@link MutableCallSite} targeting either
+ * the redirect handler or the original invoke. Switching a redirect retargets all
+ * of its call sites at once; between switches the JIT treats the target as a
+ * constant, so a stable call site costs the same as a direct call. Call sites belong to
+ * the woven class, they go away with it and are dropped when it is woven again.
+ *
+ * @author xEcho1337
+ */
+public final class DynamicRedirects {
+    
+    private static final ConcurrentMap<String, Redirect> REDIRECTS = new ConcurrentHashMap<>();
+    private static final ClassRegistry<Site> SITES = new ClassRegistry<>();
+    
+    private DynamicRedirects() {
+    }
+    
+    /**
+     * Bootstrap method of dynamic redirect call sites, invoked by the JVM.
+     *
+     * @param lookup the lookup of the woven class
+     * @param name the name of the redirect handler
+     * @param type the type of the call site, same as the handler
+     * @param id the id of the redirect
+     * @param original the invoke that was redirected
+     * @param handler the redirect handler
+     */
+    public static CallSite bootstrap(
+        MethodHandles.Lookup lookup,
+        String name,
+        MethodType type,
+        String id,
+        MethodHandle original,
+        MethodHandle handler
+    ) {
+        Redirect redirect = REDIRECTS.computeIfAbsent(id, k -> new Redirect());
+        Site site = new Site(redirect, new MutableCallSite(type), original.asType(type), handler.asType(type));
+        
+        synchronized (redirect) {
+            SITES.add(lookup.lookupClass(), site);
+            site.callSite.setTarget(redirect.targetOf(site));
+        }
+        
+        return site.callSite;
+    }
+    
+    /**
+     * Enables or disables a redirect. A disabled redirect calls the original method again.
+     */
+    public static void setEnabled(String id, boolean enabled) {
+        Redirect redirect = REDIRECTS.computeIfAbsent(id, k -> new Redirect());
+        
+        synchronized (redirect) {
+            redirect.enabled = enabled;
+            redirect.retarget(redirect.sites());
+        }
+    }
+    
+    /**
+     * Replaces the handler of a redirect, or restores the woven one if {@code handler} is {@code null}.
+     *
+     * @throws java.lang.invoke.WrongMethodTypeException if the handler cannot be adapted to the call sites
+     */
+    public static void setHandler(String id, MethodHandle handler) {
+        Redirect redirect = REDIRECTS.computeIfAbsent(id, k -> new Redirect());
+        
+        synchronized (redirect) {
+            // adapt first, a mismatching handler must not leave some sites switched
+            List<Site> sites = redirect.sites();
+            List<MethodHandle> adapted = new ArrayList<>();
+            
+            for (Site site : sites) {
+                adapted.add(handler == null ? site.handler : handler.asType(site.callSite.type()));
+            }
+            
+            redirect.override = handler;
+            
+            for (int i = 0; i < sites.size(); i++) {
+                sites.get(i).override = handler == null ? null : adapted.get(i);
+            }
+            
+            redirect.retarget(sites);
+        }
+    }
+    
+    /**
+     * Returns whether a redirect is currently enabled.
+     */
+    public static boolean isEnabled(String id) {
+        Redirect redirect = REDIRECTS.get(id);
+        return redirect == null || redirect.enabled;
+    }
+    
+    /**
+     * Drops the call sites of a class about to be redefined, the redefined class links its own.
+     */
+    static void unlink(Class<?> type) {
+        SITES.clear(type);
+    }
+    
+    private static final class Redirect {
+        
+        private boolean enabled = true;
+        private MethodHandle override;
+        
+        /**
+         * Returns the sites of the classes still loaded.
+         */
+        private List<Site> sites() {
+            List<Site> sites = new ArrayList<>();
+            
+            for (Site site : SITES.values()) {
+                if (site.redirect == this) sites.add(site);
+            }
+            
+            return sites;
+        }
+        
+        private MethodHandle targetOf(Site site) {
+            if (!enabled) return site.original;
+            
+            if (override != null && site.override == null) {
+                // site linked after the handler was swapped
+                site.override = override.asType(site.callSite.type());
+            }
+            
+            return site.override != null ? site.override : site.handler;
+        }
+        
+        private void retarget(List<Site> sites) {
+            if (sites.isEmpty()) return;
+            
+            MutableCallSite[] callSites = new MutableCallSite[sites.size()];
+            
+            for (int i = 0; i < callSites.length; i++) {
+                Site site = sites.get(i);
+                
+                site.callSite.setTarget(targetOf(site));
+                callSites[i] = site.callSite;
+            }
+            
+            // makes the new targets visible to threads running compiled code
+            MutableCallSite.syncAll(callSites);
+        }
+    }
+    
+    private static final class Site {
+        
+        private final Redirect redirect;
+        private final MutableCallSite callSite;
+        private final MethodHandle original;
+        private final MethodHandle handler;
+        private MethodHandle override;
+        
+        private Site(Redirect redirect, MutableCallSite callSite, MethodHandle original, MethodHandle handler) {
+            this.redirect = redirect;
+            this.callSite = callSite;
+            this.original = original;
+            this.handler = handler;
+        }
+    }
+}
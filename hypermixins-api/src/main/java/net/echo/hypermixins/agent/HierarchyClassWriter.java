@@ -0,0 +1,58 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * {@link ClassWriter} that resolves common super classes through a {@link ClassHierarchy}
+ * instead of {@link Class#forName}, so frame computation never loads classes.
+ * <p>
+ * The writer itself only computes maxs: stack map frames are recomputed per method
+ * through {@link #computeFrames}, and only for the methods the weaver actually changed.
+ * Every other method keeps the frames it was compiled with.
+ *
+ * @author xEcho1337
+ */
+class HierarchyClassWriter extends ClassWriter {
+    
+    private final ClassHierarchy hierarchy;
+    private final ClassLoader loader;
+    
+    HierarchyClassWriter(ClassReader reader, int flags, ClassHierarchy hierarchy, ClassLoader loader) {
+        super(reader, flags);
+        this.hierarchy = hierarchy;
+        this.loader = loader;
+    }
+    
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        return hierarchy.getCommonSuperClass(type1, type2, loader);
+    }
+    
+    @Override
+    protected ClassLoader getClassLoader() {
+        return loader;
+    }
+    
+    /**
+     * Returns a copy of the given method with freshly computed stack map frames.
+     * <p>
+     * The method is written into a scratch class with the same header as the
+     * class being woven and read back, so the copy can be handed to this writer as is.
+     */
+    MethodNode computeFrames(int version, String owner, String superName, MethodNode method) {
+        ClassWriter scratch = new HierarchyClassWriter(null, COMPUTE_FRAMES, hierarchy, loader);
+        
+        scratch.visit(version, Opcodes.ACC_PUBLIC, owner, null, superName, null);
+        method.accept(scratch);
+        scratch.visitEnd();
+        
+        ClassNode node = new ClassNode();
+        new ClassReader(scratch.toByteArray()).accept(node, 0);
+        
+        return node.methods.getFirst();
+    }
+}
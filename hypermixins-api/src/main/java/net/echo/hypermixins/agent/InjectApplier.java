@@ -0,0 +1,151 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Point;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Weaves {@link net.echo.hypermixins.api.Inject} handlers around the method as it is called.
+ * Handlers answer through their return value, kept on the stack or in a spare local.
+ *
+ * @author xEcho1337
+ */
+final class InjectApplier {
+    
+    private final TargetClass target;
+    private final Set<InjectMapping> injected = new HashSet<>();
+    
+    InjectApplier(TargetClass target) {
+        this.target = target;
+    }
+    
+    boolean apply(MethodNode method) {
+        List<InjectMapping> injects = target.mapping().injects.get(method.name);
+        
+        // abstract and native methods have no body to inject into
+        if (injects == null || method.instructions.size() == 0) return false;
+        
+        List<InjectMapping> accepted = injects.stream()
+            .filter(inject -> inject.accepts(method.access, method.desc))
+            .toList();
+        
+        if (accepted.isEmpty()) return false;
+        
+        Type returnType = Type.getReturnType(method.desc);
+        List<AbstractInsnNode> returns = new ArrayList<>();
+        
+        for (AbstractInsnNode insn : method.instructions) {
+            if (Bytecode.isReturn(insn)) {
+                returns.add(insn);
+            }
+        }
+        
+        // the tail is the last return of the body, not one of the cancelling returns added below
+        AbstractInsnNode tail = returns.isEmpty() ? null : returns.getLast();
+        InsnList head = new InsnList();
+        
+        for (InjectMapping inject : accepted) {
+            if (inject.at() != Point.HEAD) continue;
+            
+            head.add(call(method, inject, -1));
+            
+            if (inject.cancellable()) {
+                LabelNode proceed = new LabelNode();
+                InsnNode cancel = new InsnNode(returnType.getOpcode(Opcodes.IRETURN));
+                
+                head.add(new JumpInsnNode(Opcodes.IFEQ, proceed));
+                head.add(Bytecode.defaultValue(returnType));
+                head.add(cancel);
+                head.add(proceed);
+                returns.add(cancel);
+            }
+        }
+        
+        method.instructions.insert(head);
+        
+        // the returned value waits in a spare local while the handlers run
+        int value = Bytecode.nextLocal(method);
+        
+        for (AbstractInsnNode ret : returns) {
+            List<InjectMapping> atReturn = accepted.stream()
+                .filter(inject -> inject.at() == Point.RETURN || inject.at() == Point.TAIL && ret == tail)
+                .toList();
+            
+            if (atReturn.isEmpty()) continue;
+            
+            InsnList insns = new InsnList();
+            boolean hasValue = returnType.getSort() != Type.VOID;
+            
+            if (hasValue) insns.add(new VarInsnNode(returnType.getOpcode(Opcodes.ISTORE), value));
+            
+            for (InjectMapping inject : atReturn) {
+                insns.add(call(method, inject, hasValue ? value : -1));
+                
+                if (inject.replacesValue(method.desc)) {
+                    insns.add(new VarInsnNode(returnType.getOpcode(Opcodes.ISTORE), value));
+                }
+            }
+            
+            if (hasValue) insns.add(new VarInsnNode(returnType.getOpcode(Opcodes.ILOAD), value));
+            
+            method.instructions.insertBefore(ret, insns);
+        }
+        
+        injected.addAll(accepted);
+        return true;
+    }
+    
+    /**
+     * Checks that every inject of a mixin targeting the class by name found its method, once the class was visited.
+     *
+     * @param exact the mixins targeting the class by name
+     */
+    void checkInjected(Set<String> exact) {
+        for (List<InjectMapping> injects : target.mapping().injects.values()) {
+            for (InjectMapping inject : injects) {
+                if (exact.contains(inject.handler().owner()) && !injected.contains(inject)) {
+                    throw new IllegalStateException(
+                        "@Inject " + inject.handler() + " matches no method " + inject.targetMethod() + " of " + target.owner()
+                    );
+                }
+            }
+        }
+    }
+    
+    private static InsnList call(MethodNode method, InjectMapping inject, int value) {
+        InsnList insns = new InsnList();
+        Type[] args = Type.getArgumentTypes(method.desc);
+        int local = 0;
+        
+        if ((method.access & Opcodes.ACC_STATIC) == 0) {
+            insns.add(new VarInsnNode(Opcodes.ALOAD, local++)); // self
+        }
+        
+        if (value >= 0) {
+            insns.add(new VarInsnNode(Type.getReturnType(method.desc).getOpcode(Opcodes.ILOAD), value));
+        }
+        
+        for (int i = 0; i < inject.argumentCount(method.access, method.desc); i++) {
+            insns.add(new VarInsnNode(args[i].getOpcode(Opcodes.ILOAD), local));
+            local += args[i].getSize();
+        }
+        
+        MethodRef handler = inject.handler();
+        insns.add(new MethodInsnNode(Opcodes.INVOKESTATIC, handler.owner(), handler.name(), handler.desc(), false));
+        
+        return insns;
+    }
+}
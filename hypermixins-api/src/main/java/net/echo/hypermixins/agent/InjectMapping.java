@@ -0,0 +1,84 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Point;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Arrays;
+
+/**
+ * One {@link net.echo.hypermixins.api.Inject} of a mixin, applied to every overload of
+ * {@code targetMethod} the handler {@link #accepts}.
+ *
+ * @author xEcho1337
+ */
+public record InjectMapping(
+    String targetMethod,
+    Point at,
+    boolean cancellable,
+    MethodRef handler
+) {
+    
+    private static final Type OBJECT = Type.getType(Object.class);
+    
+    /**
+     * Returns whether the handler parameters fit a target method, i.e. {@code self} for instance
+     * methods, the returned value for return injectors, then leading target arguments.
+     */
+    public boolean accepts(int access, String targetDesc) {
+        Type[] params = Type.getArgumentTypes(handler.desc());
+        Type[] targetArgs = Type.getArgumentTypes(targetDesc);
+        Type returnType = Type.getReturnType(targetDesc);
+        int i = 0;
+        
+        if ((access & Opcodes.ACC_STATIC) == 0) {
+            if (params.length == 0 || !params[0].equals(OBJECT)) return false;
+            i++;
+        }
+        
+        if (receivesValue(returnType)) {
+            if (params.length <= i || !params[i].equals(returnType)) return false;
+            i++;
+        }
+        
+        return params.length - i <= targetArgs.length
+            && Arrays.equals(params, i, params.length, targetArgs, 0, params.length - i);
+    }
+    
+    /**
+     * Returns whether the handler replaces the value returned by the target method.
+     *
+     * @throws IllegalStateException if the handler return type fits neither this inject nor the target method
+     */
+    public boolean replacesValue(String targetDesc) {
+        Type returnType = Type.getReturnType(targetDesc);
+        Type handlerReturn = Type.getReturnType(handler.desc());
+        
+        if (cancellable ? handlerReturn.equals(Type.BOOLEAN_TYPE) : handlerReturn.equals(Type.VOID_TYPE)) {
+            return false;
+        }
+        
+        if (receivesValue(returnType) && handlerReturn.equals(returnType)) {
+            return true;
+        }
+        
+        throw new IllegalStateException("@Inject handler " + handler + " cannot return "
+            + handlerReturn.getClassName() + " into " + targetMethod + targetDesc);
+    }
+    
+    /**
+     * Returns the number of leading target arguments the handler takes.
+     */
+    public int argumentCount(int access, String targetDesc) {
+        int count = Type.getArgumentTypes(handler.desc()).length;
+        
+        if ((access & Opcodes.ACC_STATIC) == 0) count--;
+        if (receivesValue(Type.getReturnType(targetDesc))) count--;
+        
+        return count;
+    }
+    
+    private boolean receivesValue(Type returnType) {
+        return at != Point.HEAD && returnType.getSort() != Type.VOID;
+    }
+}
@@ -0,0 +1,107 @@
+package net.echo.hypermixins.agent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * State kept per class loader without keeping the loader alive.
+ * <p>
+ * Entries are weakly keyed by their loader, so the state of an unloaded plugin loader goes away
+ * with it, collected entries are purged on the next insertion. Values must not reference their
+ * loader, or it would never be collected. The {@code null} bootstrap loader has an entry of its
+ * own, which lives as long as the map.
+ * <p>
+ * Lookups take no lock: once a supertype pattern is bound, {@link ClassFilter} reaches its maps
+ * on the path of every class the JVM loads, from whatever thread loads it.
+ *
+ * @param <V> the state of a loader
+ * @author xEcho1337
+ */
+final class LoaderMap<V> {
+    
+    private final ConcurrentMap<Object, V> values = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+    private final AtomicReference<V> bootstrap = new AtomicReference<>();
+    
+    V get(ClassLoader loader) {
+        return loader == null ? bootstrap.get() : values.get(new Probe(loader));
+    }
+    
+    V computeIfAbsent(ClassLoader loader, Supplier<V> value) {
+        V current = get(loader);
+        
+        if (current != null) return current;
+        
+        if (loader == null) {
+            bootstrap.compareAndSet(null, value.get());
+            return bootstrap.get();
+        }
+        
+        purge();
+        return values.computeIfAbsent(new Key(loader, collected), k -> value.get());
+    }
+    
+    List<V> values() {
+        List<V> values = new ArrayList<>(this.values.values());
+        V bootstrap = this.bootstrap.get();
+        
+        if (bootstrap != null) values.add(bootstrap);
+        
+        return values;
+    }
+    
+    private void purge() {
+        for (Reference<?> key = collected.poll(); key != null; key = collected.poll()) {
+            values.remove(key);
+        }
+    }
+    
+    /**
+     * Key of an entry, equal to the probes of the same loader until it is collected.
+     */
+    private static final class Key extends WeakReference<ClassLoader> {
+        
+        private final int hash;
+        
+        private Key(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.hash = System.identityHashCode(loader);
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) return true;
+            
+            ClassLoader loader = get();
+            return loader != null && other instanceof Key key && key.get() == loader;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * Lookup key, strongly referencing its loader for the duration of a lookup only.
+     */
+    private record Probe(ClassLoader loader) {
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.get() == loader || other instanceof Probe probe && probe.loader == loader;
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(loader);
+        }
+    }
+}
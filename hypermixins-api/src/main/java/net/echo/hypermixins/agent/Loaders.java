@@ -0,0 +1,23 @@
+package net.echo.hypermixins.agent;
+
+/**
+ * Resource lookups on behalf of a class loader.
+ *
+ * @author xEcho1337
+ */
+final class Loaders {
+    
+    private Loaders() {
+    }
+    
+    /**
+     * Returns the loader to read the resources of a loader through.
+     * <p>
+     * A {@code null} loader is the bootstrap loader, which has no instance to ask. Its resources
+     * are read through the platform loader, which delegates to it first and only adds the platform
+     * modules, never the class path, so an application class is not mistaken for a bootstrap one.
+     */
+    static ClassLoader resources(ClassLoader loader) {
+        return loader != null ? loader : ClassLoader.getPlatformClassLoader();
+    }
+}
@@ -0,0 +1,257 @@
+package net.echo.hypermixins.agent;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Result cache of a {@link net.echo.hypermixins.api.Memoize memoized} method, and runtime side
+ * of the woven lookups.
+ * <p>
+ * The cache is a fixed array of slots indexed by the hash of the key, a new result replaces
+ * whatever its slot held, so the cache never grows past its capacity and needs no lock.
+ * Woven methods reach their cache through {@code invokedynamic} call sites bootstrapped by
+ * {@link #bootstrap}, bound for good to the cache of that method:
+ * <ul>
+ *     <li>a single integral argument is the key as a {@code long}, nothing is boxed;</li>
+ *     <li>a single reference argument, or the receiver alone, is the key as is;</li>
+ *     <li>otherwise the receiver and arguments are boxed into a composite key.</li>
+ * </ul>
+ * A hit allocates nothing in the first two cases, a miss allocates its entry. Caches belong to
+ * the woven class, a class of the same name in another loader has caches of its own.
+ *
+ * @author xEcho1337
+ */
+public final class MemoCache {
+    
+    /**
+     * Returned by the lookup call sites when the key is not cached, results can be {@code null}.
+     */
+    public static final Object MISS = new Object();
+    
+    private static final ClassRegistry<MemoCache> CACHES = new ClassRegistry<>();
+    private static final Object NO_ARGUMENTS = new Object();
+    private static final MethodHandle GET;
+    private static final MethodHandle PUT;
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle PUT_LONG;
+    private static final MethodHandle KEY;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType put = MethodType.methodType(void.class, Object.class, Object.class);
+            
+            GET = lookup.findVirtual(MemoCache.class, "get", MethodType.methodType(Object.class, Object.class));
+            PUT = lookup.findVirtual(MemoCache.class, "put", put);
+            GET_LONG = lookup.findVirtual(MemoCache.class, "getLong", MethodType.methodType(Object.class, long.class));
+            PUT_LONG = lookup.findVirtual(MemoCache.class, "putLong", put.changeParameterType(0, long.class));
+            KEY = lookup.findConstructor(Key.class, MethodType.methodType(void.class, Object[].class))
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+    
+    private final String id;
+    private final int maxSize;
+    private final long expireAfterMillis;
+    private final long expireAfterNanos;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    private MemoCache(String id, int maxSize, long expireAfterMillis) {
+        int capacity = Integer.highestOneBit(Math.clamp(maxSize, 1, 1 << 30) * 2 - 1);
+        
+        this.id = id;
+        this.maxSize = maxSize;
+        this.expireAfterMillis = expireAfterMillis;
+        this.expireAfterNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterMillis);
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Bootstrap method of memoized lookups, invoked by the JVM.
+     *
+     * @param lookup the lookup of the woven class
+     * @param name {@code get}, typed {@code (key...)Object}, or {@code put}, typed {@code (key..., Object)V}
+     * @param type the type of the call site
+     * @param id the id of the memoized method
+     * @param maxSize the maximum number of cached results, rounded up to a power of two
+     * @param expireAfterMillis how long a result stays valid, {@code 0} for ever
+     */
+    public static CallSite bootstrap(
+        MethodHandles.Lookup lookup,
+        String name,
+        MethodType type,
+        String id,
+        int maxSize,
+        long expireAfterMillis
+    ) {
+        // the get and put sites of a method share the cache, a reweave with other settings replaces it
+        MemoCache cache = CACHES.compute(lookup.lookupClass(), id, current -> current != null
+            && current.maxSize == maxSize
+            && current.expireAfterMillis == expireAfterMillis ? current : new MemoCache(id, maxSize, expireAfterMillis));
+        
+        boolean get = name.equals("get");
+        int keys = get ? type.parameterCount() : type.parameterCount() - 1;
+        Class<?> single = keys == 1 ? type.parameterType(0) : null;
+        MethodHandle target;
+        
+        if (single != null && single != boolean.class && single != float.class && single != double.class && single.isPrimitive()) {
+            target = (get ? GET_LONG : PUT_LONG).bindTo(cache);
+        } else if (single != null && !single.isPrimitive()) {
+            target = (get ? GET : PUT).bindTo(cache);
+        } else if (keys == 0) {
+            target = MethodHandles.insertArguments(get ? GET : PUT, 0, cache, NO_ARGUMENTS);
+        } else {
+            target = MethodHandles.collectArguments((get ? GET : PUT).bindTo(cache), 0, KEY.asCollector(Object[].class, keys));
+        }
+        
+        return new ConstantCallSite(target.asType(type));
+    }
+    
+    /**
+     * Returns the counters of every memoized method that ran at least once, sorted by id. A method
+     * woven in several loaders has counters per loader.
+     */
+    public static List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>();
+        
+        for (MemoCache cache : CACHES.values()) {
+            stats.add(new Stats(cache.id, cache.hits.sum(), cache.misses.sum(), cache.evictions.sum(), cache.slots.length()));
+        }
+        
+        stats.sort(Comparator.comparing(Stats::id));
+        return stats;
+    }
+    
+    /**
+     * Drops every cached result of a method, in the form {@code package.Class.name(desc)}.
+     */
+    public static void invalidate(String id) {
+        for (MemoCache cache : CACHES.values()) {
+            if (cache.id.equals(id)) cache.clear();
+        }
+    }
+    
+    /**
+     * Drops every cached result of every memoized method.
+     */
+    public static void invalidateAll() {
+        for (MemoCache cache : CACHES.values()) {
+            cache.clear();
+        }
+    }
+    
+    private Object get(Object key) {
+        Entry entry = slots.get(index(Objects.hashCode(key)));
+        
+        if (entry != null && Objects.equals(entry.key, key) && isFresh(entry)) {
+            hits.increment();
+            return entry.value;
+        }
+        
+        misses.increment();
+        return MISS;
+    }
+    
+    private Object getLong(long key) {
+        Entry entry = slots.get(index(Long.hashCode(key)));
+        
+        if (entry != null && entry.longKey == key && isFresh(entry)) {
+            hits.increment();
+            return entry.value;
+        }
+        
+        misses.increment();
+        return MISS;
+    }
+    
+    private void put(Object key, Object value) {
+        store(index(Objects.hashCode(key)), new Entry(key, 0, value, expiresAt()));
+    }
+    
+    private void putLong(long key, Object value) {
+        store(index(Long.hashCode(key)), new Entry(null, key, value, expiresAt()));
+    }
+    
+    private void store(int index, Entry entry) {
+        Entry previous = slots.getAndSet(index, entry);
+        
+        if (previous != null && isFresh(previous)) {
+            evictions.increment();
+        }
+    }
+    
+    private void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+    
+    private int index(int hash) {
+        // spreads the high bits, small keys would otherwise only differ in a few slots
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    private long expiresAt() {
+        return expireAfterNanos == 0 ? 0 : System.nanoTime() + expireAfterNanos;
+    }
+    
+    private boolean isFresh(Entry entry) {
+        return expireAfterNanos == 0 || System.nanoTime() - entry.expiresAt < 0;
+    }
+    
+    private record Entry(Object key, long longKey, Object value, long expiresAt) {
+    }
+    
+    private static final class Key {
+        
+        private final Object[] parts;
+        private final int hash;
+        
+        private Key(Object[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && hash == key.hash && Arrays.equals(parts, key.parts);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    /**
+     * Counters of a memoized method.
+     *
+     * @param id the memoized method, in the form {@code package.Class.name(desc)}
+     * @param hits calls answered from the cache
+     * @param misses calls that ran the method
+     * @param evictions live results replaced by another key
+     * @param capacity number of slots of the cache
+     */
+    public record Stats(String id, long hits, long misses, long evictions, int capacity) {
+    }
+}
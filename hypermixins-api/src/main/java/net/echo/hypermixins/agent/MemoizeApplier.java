@@ -0,0 +1,129 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Weaves {@link net.echo.hypermixins.api.Memoize} methods, which look up and fill their
+ * {@link MemoCache} through constant call sites.
+ *
+ * @author xEcho1337
+ */
+final class MemoizeApplier {
+    
+    private final TargetClass target;
+    
+    MemoizeApplier(TargetClass target) {
+        this.target = target;
+    }
+    
+    boolean apply(MethodNode method) {
+        MemoizeMapping memoize = target.mapping().memoized.get(method.name);
+        
+        if (memoize == null || method.instructions.size() == 0) return false;
+        
+        Type returnType = Type.getReturnType(method.desc);
+        
+        if (returnType.getSort() == Type.VOID) {
+            throw new IllegalStateException("@Memoize needs a method returning a value: " + target.owner() + "." + method.name + method.desc);
+        }
+        
+        List<Type> keyTypes = new ArrayList<>();
+        
+        if ((method.access & Opcodes.ACC_STATIC) == 0) {
+            keyTypes.add(Type.getType(Object.class)); // the receiver
+        }
+        
+        keyTypes.addAll(List.of(Type.getArgumentTypes(method.desc)));
+        
+        String id = new MethodRef(target.owner(), method.name, method.desc).toString();
+        String getDesc = Type.getMethodDescriptor(Type.getType(Object.class), keyTypes.toArray(new Type[0]));
+        keyTypes.add(Type.getType(Object.class));
+        String putDesc = Type.getMethodDescriptor(Type.VOID_TYPE, keyTypes.toArray(new Type[0]));
+        keyTypes.removeLast();
+        
+        // the key is copied on entry, the body may reassign its arguments before returning
+        int copy = Bytecode.nextLocal(method);
+        int[] keys = new int[keyTypes.size()];
+        int local = 0;
+        InsnList head = new InsnList();
+        
+        for (int i = 0; i < keys.length; i++) {
+            Type type = keyTypes.get(i);
+            keys[i] = copy;
+            
+            head.add(new VarInsnNode(type.getOpcode(Opcodes.ILOAD), local));
+            head.add(new VarInsnNode(type.getOpcode(Opcodes.ISTORE), copy));
+            local += type.getSize();
+            copy += type.getSize();
+        }
+        
+        int result = copy;
+        LabelNode miss = new LabelNode();
+        
+        head.add(loadKeys(keyTypes, keys));
+        head.add(call("get", getDesc, id, memoize));
+        head.add(new VarInsnNode(Opcodes.ASTORE, result));
+        head.add(new VarInsnNode(Opcodes.ALOAD, result));
+        head.add(new FieldInsnNode(Opcodes.GETSTATIC, Type.getInternalName(MemoCache.class), "MISS", "Ljava/lang/Object;"));
+        head.add(new JumpInsnNode(Opcodes.IF_ACMPEQ, miss));
+        head.add(new VarInsnNode(Opcodes.ALOAD, result));
+        head.add(Bytecode.unbox(returnType));
+        head.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN)));
+        head.add(miss);
+        
+        for (AbstractInsnNode insn : method.instructions.toArray()) {
+            if (!Bytecode.isReturn(insn)) continue;
+            
+            InsnList store = new InsnList();
+            
+            store.add(new VarInsnNode(returnType.getOpcode(Opcodes.ISTORE), result));
+            store.add(loadKeys(keyTypes, keys));
+            store.add(new VarInsnNode(returnType.getOpcode(Opcodes.ILOAD), result));
+            store.add(Bytecode.box(returnType));
+            store.add(call("put", putDesc, id, memoize));
+            store.add(new VarInsnNode(returnType.getOpcode(Opcodes.ILOAD), result));
+            method.instructions.insertBefore(insn, store);
+        }
+        
+        method.instructions.insert(head);
+        return true;
+    }
+    
+    private static InsnList loadKeys(List<Type> keyTypes, int[] keys) {
+        InsnList insns = new InsnList();
+        
+        for (int i = 0; i < keys.length; i++) {
+            insns.add(new VarInsnNode(keyTypes.get(i).getOpcode(Opcodes.ILOAD), keys[i]));
+        }
+        
+        return insns;
+    }
+    
+    private InsnList call(String name, String desc, String id, MemoizeMapping memoize) {
+        target.checkIndy("@Memoize needs");
+        
+        InsnList insns = new InsnList();
+        insns.add(new InvokeDynamicInsnNode(
+            name,
+            desc,
+            Bytecode.bootstrap(MemoCache.class, Type.getType(String.class), Type.INT_TYPE, Type.LONG_TYPE),
+            id,
+            memoize.maxSize(),
+            memoize.expireAfterMillis()
+        ));
+        return insns;
+    }
+}
@@ -0,0 +1,9 @@
+package net.echo.hypermixins.agent;
+
+/**
+ * One {@link net.echo.hypermixins.api.Memoize} of a mixin, applied to every overload of {@code targetMethod}.
+ *
+ * @author xEcho1337
+ */
+public record MemoizeMapping(String targetMethod, int maxSize, long expireAfterMillis) {
+}
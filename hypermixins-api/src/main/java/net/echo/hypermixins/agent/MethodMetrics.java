@@ -0,0 +1,334 @@
+package net.echo.hypermixins.agent;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime side of {@link net.echo.hypermixins.api.Timed} and {@link net.echo.hypermixins.api.Counted}.
+ * <p>
+ * Woven methods report to their metric through an {@code invokedynamic} bootstrapped by
+ * {@link #bootstrap}, bound for good to the metric of that method, so the JIT sees the
+ * metric as a constant and no field is added to the target. Counters are striped
+ * {@link LongAdder}s and durations go to power of two histogram buckets, so recording
+ * neither locks nor allocates. Metrics belong to the woven class, the snapshots of a method woven
+ * in several loaders add up the metrics of each.
+ * <p>
+ * Every metric is also registered as an MXBean named
+ * {@code net.echo.hypermixins:type=MethodMetrics,method="<id>"}, unless the
+ * {@value #JMX_PROPERTY} system property is {@code false}. Metrics of a class defined by a loader
+ * other than the system one carry a {@code loader} key as well, and are unregistered once the
+ * class is unloaded.
+ *
+ * @author xEcho1337
+ */
+public final class MethodMetrics {
+    
+    public static final String JMX_PROPERTY = "hypermixins.metrics.jmx";
+    public static final String JMX_DOMAIN = "net.echo.hypermixins";
+    
+    /**
+     * Number of histogram buckets, bucket {@code i > 0} counts durations in {@code [2^(i-1), 2^i)}
+     * nanoseconds and the last one everything longer, about nine minutes.
+     */
+    public static final int BUCKETS = 40;
+    
+    private static final ClassRegistry<Metric> METRICS = new ClassRegistry<>();
+    private static final MethodHandle COUNT;
+    private static final MethodHandle RECORD;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COUNT = lookup.findVirtual(Metric.class, "count", MethodType.methodType(void.class));
+            RECORD = lookup.findVirtual(Metric.class, "record", MethodType.methodType(void.class, long.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+    
+    private MethodMetrics() {
+    }
+    
+    /**
+     * Bootstrap method of metric call sites, invoked by the JVM.
+     *
+     * @param lookup the lookup of the woven class
+     * @param name {@code count} for a call site of type {@code ()V}, {@code record} for {@code (J)V}
+     * @param type the type of the call site
+     * @param id the id of the woven method
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, String id) {
+        Metric metric = metric(lookup.lookupClass(), id);
+        MethodHandle target = name.equals("record") ? RECORD : COUNT;
+        
+        return new ConstantCallSite(target.bindTo(metric).asType(type));
+    }
+    
+    /**
+     * Returns the metric of a method, in the form {@code package.Class.name(desc)}, or {@code null}
+     * if no woven call site reported to it yet.
+     */
+    public static Snapshot snapshot(String id) {
+        return merged().get(id);
+    }
+    
+    /**
+     * Returns the metrics of every woven method that ran at least once, sorted by id.
+     */
+    public static List<Snapshot> snapshots() {
+        return new ArrayList<>(merged().values());
+    }
+    
+    /**
+     * Resets every metric to zero. Calls recorded concurrently may be lost.
+     */
+    public static void reset() {
+        for (Metric metric : METRICS.values()) {
+            metric.reset();
+        }
+    }
+    
+    private static Map<String, Snapshot> merged() {
+        Map<String, Snapshot> merged = new TreeMap<>();
+        
+        for (Metric metric : METRICS.values()) {
+            merged.merge(metric.id, metric.snapshot(), Snapshot::plus);
+        }
+        
+        return merged;
+    }
+    
+    private static Metric metric(Class<?> owner, String id) {
+        boolean[] created = new boolean[1];
+        Metric metric = METRICS.compute(owner, id, current -> {
+            if (current != null) return current;
+            
+            created[0] = true;
+            return new Metric(id);
+        });
+        
+        if (created[0] && !"false".equals(System.getProperty(JMX_PROPERTY))) {
+            register(owner, metric);
+        }
+        
+        return metric;
+    }
+    
+    private static void register(Class<?> owner, Metric metric) {
+        try {
+            ClassLoader loader = owner.getClassLoader();
+            String name = JMX_DOMAIN + ":type=MethodMetrics,method=" + ObjectName.quote(metric.id);
+            
+            if (loader != ClassLoader.getSystemClassLoader()) {
+                name += ",loader=" + ObjectName.quote(loaderName(loader));
+            }
+            
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(metric, MetricMXBean.class, true), objectName);
+            
+            // the server holds the metric for good otherwise, the action must not reference the class
+            Holder.CLEANER.register(owner, () -> unregister(objectName));
+        } catch (JMException | RuntimeException ex) {
+            // metrics keep working, only the JMX view is missing
+            new IllegalStateException("Unable to register the MXBean of " + metric.id, ex).printStackTrace(System.err);
+        }
+    }
+    
+    private static void unregister(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+            // already unregistered by someone else
+        }
+    }
+    
+    private static String loaderName(ClassLoader loader) {
+        if (loader == null) return "bootstrap";
+        
+        String name = loader.getName() != null ? loader.getName() : loader.getClass().getName();
+        return name + "@" + Integer.toHexString(System.identityHashCode(loader));
+    }
+    
+    static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+    
+    /**
+     * Created on the first registration, so no thread is started while JMX is off.
+     */
+    private static final class Holder {
+        
+        private static final Cleaner CLEANER = Cleaner.create();
+    }
+    
+    /**
+     * JMX view of a metric.
+     */
+    public interface MetricMXBean {
+        
+        long getCount();
+        
+        long getTotalNanos();
+        
+        long getMaxNanos();
+        
+        double getMeanNanos();
+        
+        long getP50Nanos();
+        
+        long getP99Nanos();
+        
+        void reset();
+    }
+    
+    private static final class Metric implements MetricMXBean {
+        
+        private final String id;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        
+        private Metric(String id) {
+            this.id = id;
+            
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        private void count() {
+            count.increment();
+        }
+        
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucket(nanos)].increment();
+        }
+        
+        private Snapshot snapshot() {
+            long[] histogram = new long[BUCKETS];
+            
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = buckets[i].sum();
+            }
+            
+            return new Snapshot(id, count.sum(), totalNanos.sum(), maxNanos.get(), histogram);
+        }
+        
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+        
+        @Override
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+        
+        @Override
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+        
+        @Override
+        public double getMeanNanos() {
+            return snapshot().meanNanos();
+        }
+        
+        @Override
+        public long getP50Nanos() {
+            return snapshot().percentileNanos(0.5);
+        }
+        
+        @Override
+        public long getP99Nanos() {
+            return snapshot().percentileNanos(0.99);
+        }
+        
+        @Override
+        public void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+        }
+    }
+    
+    /**
+     * Point in time copy of a metric. Counted methods only have a {@link #count}.
+     *
+     * @param id the woven method, in the form {@code package.Class.name(desc)}
+     * @param count calls that returned or threw
+     * @param totalNanos time spent in the method, including nested calls
+     * @param maxNanos the longest call
+     * @param buckets calls per duration bucket, see {@link MethodMetrics#BUCKETS}
+     */
+    public record Snapshot(String id, long count, long totalNanos, long maxNanos, long[] buckets) {
+        
+        private Snapshot plus(Snapshot other) {
+            long[] histogram = buckets.clone();
+            
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.buckets[i];
+            }
+            
+            return new Snapshot(id, count + other.count, totalNanos + other.totalNanos, Math.max(maxNanos, other.maxNanos), histogram);
+        }
+        
+        public double meanNanos() {
+            long timed = 0;
+            
+            for (long bucket : buckets) {
+                timed += bucket;
+            }
+            
+            return timed == 0 ? 0 : (double) totalNanos / timed;
+        }
+        
+        /**
+         * Returns an upper bound of the given percentile, at most twice the exact value.
+         *
+         * @param percentile between {@code 0} and {@code 1}
+         */
+        public long percentileNanos(double percentile) {
+            long timed = 0;
+            
+            for (long bucket : buckets) {
+                timed += bucket;
+            }
+            
+            long rank = (long) Math.ceil(percentile * timed);
+            long seen = 0;
+            
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                
+                if (seen >= rank && seen > 0) {
+                    return i == buckets.length - 1 ? maxNanos : 1L << i;
+                }
+            }
+            
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package net.echo.hypermixins.agent;
+
+/**
+ * A mixin method, by internal owner name, name and descriptor.
+ * <p>
+ * Mappings only refer to mixin methods through these, so they can be built from a
+ * precompiled index without loading the mixin class.
+ *
+ * @author xEcho1337
+ */
+public record MethodRef(String owner, String name, String desc) {
+    
+    @Override
+    public String toString() {
+        return owner.replace('/', '.') + "." + name + desc;
+    }
+}
@@ -0,0 +1,117 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Weaves {@link net.echo.hypermixins.api.Timed} and {@link net.echo.hypermixins.api.Counted}
+ * methods, which report to {@link MethodMetrics} through constant call sites.
+ *
+ * @author xEcho1337
+ */
+final class MetricsApplier {
+    
+    private final TargetClass target;
+    
+    MetricsApplier(TargetClass target) {
+        this.target = target;
+    }
+    
+    boolean apply(MethodNode method) {
+        TargetMapping mapping = target.mapping();
+        boolean timed = mapping.timed.contains(method.name);
+        
+        if (!timed && !mapping.counted.contains(method.name) || method.instructions.size() == 0) return false;
+        
+        String id = new MethodRef(target.owner(), method.name, method.desc).toString();
+        
+        if (!timed) {
+            method.instructions.insert(report("count", "()V", id));
+            return true;
+        }
+        
+        int start = Bytecode.nextLocal(method);
+        LabelNode thrown = new LabelNode();
+        List<LabelNode> ranges = new ArrayList<>();
+        
+        ranges.add(new LabelNode());
+        
+        // the record before each return stays out of the protected ranges, a failing record
+        // must not be measured a second time by the handler
+        for (AbstractInsnNode insn : method.instructions.toArray()) {
+            if (Bytecode.isReturn(insn)) {
+                LabelNode end = new LabelNode();
+                LabelNode next = new LabelNode();
+                
+                method.instructions.insertBefore(insn, end);
+                method.instructions.insertBefore(insn, elapsed(start, id));
+                method.instructions.insert(insn, next);
+                ranges.add(end);
+                ranges.add(next);
+            }
+        }
+        
+        InsnList head = new InsnList();
+        head.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false));
+        head.add(new VarInsnNode(Opcodes.LSTORE, start));
+        head.add(ranges.getFirst());
+        method.instructions.insert(head);
+        
+        LabelNode last = new LabelNode();
+        method.instructions.add(last);
+        ranges.add(last);
+        
+        // exceptions are measured too, after the handlers of the method itself
+        for (int i = 0; i < ranges.size(); i += 2) {
+            if (!isEmpty(ranges.get(i), ranges.get(i + 1))) {
+                method.tryCatchBlocks.add(new TryCatchBlockNode(ranges.get(i), ranges.get(i + 1), thrown, null));
+            }
+        }
+        
+        method.instructions.add(thrown);
+        method.instructions.add(elapsed(start, id));
+        method.instructions.add(new InsnNode(Opcodes.ATHROW));
+        return true;
+    }
+    
+    /**
+     * Returns whether no instruction lies between two labels, the JVM rejects empty protected ranges.
+     */
+    private static boolean isEmpty(LabelNode start, LabelNode end) {
+        for (AbstractInsnNode insn = start; insn != end; insn = insn.getNext()) {
+            if (insn.getOpcode() >= 0) return false;
+        }
+        
+        return true;
+    }
+    
+    private InsnList elapsed(int start, String id) {
+        InsnList insns = new InsnList();
+        
+        insns.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false));
+        insns.add(new VarInsnNode(Opcodes.LLOAD, start));
+        insns.add(new InsnNode(Opcodes.LSUB));
+        insns.add(report("record", "(J)V", id));
+        return insns;
+    }
+    
+    private InsnList report(String name, String desc, String id) {
+        target.checkIndy("@Timed and @Counted need");
+        
+        InsnList insns = new InsnList();
+        insns.add(new InvokeDynamicInsnNode(name, desc, Bytecode.bootstrap(MethodMetrics.class, Type.getType(String.class)), id));
+        return insns;
+    }
+}
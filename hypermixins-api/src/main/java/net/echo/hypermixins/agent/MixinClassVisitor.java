@@ -0,0 +1,178 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.*;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streaming rewriter for a mixin class.
+ * <p>
+ * Only the methods annotated with {@link net.echo.hypermixins.api.Original} are
+ * buffered and given a body that calls the {@code __original$} copy in the target,
+ * every other method is copied raw by the downstream writer, unless the mixin has
+ * {@link net.echo.hypermixins.api.Shadow} members: accesses to them are then turned
+ * into calls to their accessors in the target, on {@code self} instead of {@code this}.
+ */
+class MixinClassVisitor extends ClassVisitor {
+    
+    private static final Type OBJECT = Type.getType(Object.class);
+    
+    private final HierarchyClassWriter writer;
+    private final MixinMapping mapping;
+    
+    private int version;
+    private String owner;
+    private String superName;
+    
+    MixinClassVisitor(HierarchyClassWriter writer, MixinMapping mapping) {
+        super(Opcodes.ASM9, writer);
+        this.writer = writer;
+        this.mapping = mapping;
+    }
+    
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        this.version = version;
+        this.owner = name;
+        this.superName = superName;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+    
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        String key = name + descriptor;
+        
+        // if we don't have this method marked as original and there is nothing to shadow
+        if (!mapping.originals.containsKey(key) && mapping.shadows.isEmpty()) {
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+        
+        return new MethodNode(api, access, name, descriptor, signature, exceptions) {
+            @Override
+            public void visitEnd() {
+                if (mapping.originals.containsKey(key)) {
+                    rewriteOriginal(this, mapping.originals.get(key));
+                } else if (!rewriteShadows(this)) {
+                    accept(cv);
+                    return;
+                }
+                
+                writer.computeFrames(version, owner, superName, this).accept(cv);
+            }
+        };
+    }
+    
+    private boolean rewriteShadows(MethodNode method) {
+        AbstractInsnNode[] insns = method.instructions.toArray();
+        Set<AbstractInsnNode> receivers = new HashSet<>();
+        Frame<SourceValue>[] frames = null;
+        boolean changed = false;
+        
+        for (int i = 0; i < insns.length; i++) {
+            ShadowMapping shadow = mapping.shadowOf(insns[i]);
+            
+            if (shadow == null) continue;
+            
+            changed = true;
+            
+            if (shadow.isStatic()) continue;
+            
+            Type[] args = Type.getArgumentTypes(method.desc);
+            
+            if ((method.access & Opcodes.ACC_STATIC) != 0 || args.length == 0 || !args[0].equals(OBJECT)) {
+                throw new IllegalStateException(
+                    "@Shadow " + shadow.key() + " used in " + method.name + method.desc + " without Object self as first parameter"
+                );
+            }
+            
+            if (frames == null) {
+                frames = ThisInterpreter.analyze(owner, method);
+            }
+            
+            if (frames[i] != null) {
+                ThisInterpreter.addReceivers(shadow, insns[i], frames[i], receivers);
+            }
+        }
+        
+        String target = mapping.targetClass.replace('.', '/');
+        
+        // the receivers become self, which the accessors take as first argument
+        for (AbstractInsnNode receiver : receivers) {
+            method.instructions.insertBefore(receiver, new VarInsnNode(Opcodes.ALOAD, 1));
+            method.instructions.set(receiver, new TypeInsnNode(Opcodes.CHECKCAST, target));
+        }
+        
+        for (AbstractInsnNode insn : insns) {
+            ShadowMapping shadow = mapping.shadowOf(insn);
+            
+            if (shadow != null) {
+                method.instructions.set(insn, shadow.accessorCall(target, insn.getOpcode()));
+            }
+        }
+        
+        return changed;
+    }
+    
+    private void rewriteOriginal(MethodNode method, String targetName) {
+        boolean isStatic = (method.access & Opcodes.ACC_STATIC) != 0;
+        Type[] args = Type.getArgumentTypes(method.desc);
+        if (!isStatic && args.length == 0) {
+            throw new IllegalStateException("@Original method must declare Object self as first parameter: " + method.name + method.desc);
+        }
+        
+        Type returnType = Type.getReturnType(method.desc);
+        // a static original has the parameters of the static target, there is no self to drop
+        Type[] targetArgs = isStatic ? args : Arrays.copyOfRange(args, 1, args.length);
+        String targetDesc = Type.getMethodDescriptor(returnType, targetArgs);
+        
+        // native -> normal
+        if ((method.access & Opcodes.ACC_NATIVE) == Opcodes.ACC_NATIVE) {
+            method.access &= ~Opcodes.ACC_NATIVE;
+        }
+        
+        method.instructions.clear();
+        method.tryCatchBlocks.clear();
+        method.localVariables = null;
+        
+        InsnList insns = new InsnList();
+        String mappedTargetClass = mapping.targetClass.replace('.', '/');
+        int localIndex = 0;
+        
+        if (!isStatic) {
+            // load self as the first arg of method in mixin, represents the original class
+            insns.add(new VarInsnNode(Opcodes.ALOAD, 1));
+            insns.add(new TypeInsnNode(
+                Opcodes.CHECKCAST, // make sure 'self' is the same type of the target class
+                mappedTargetClass
+            ));
+            localIndex = 2;
+        }
+        
+        for (Type t : targetArgs) {
+            insns.add(new VarInsnNode(t.getOpcode(Opcodes.ILOAD), localIndex));
+            localIndex += t.getSize();
+        }
+        
+        String originalName = MixinMapping.originalName(targetName, targetDesc);
+        
+        insns.add(new MethodInsnNode(
+            isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL,
+            mappedTargetClass, // class to call from
+            originalName,// original function name
+            targetDesc, // signature of the original function
+            false
+        ));
+        
+        insns.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN)));
+        
+        method.instructions.add(insns);
+    }
+}
@@ -0,0 +1,200 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Offload;
+import net.echo.hypermixins.api.Point;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Precompiled mapping index, written by {@link net.echo.hypermixins.processor.MixinProcessor}
+ * at compile time and read back by {@link #load} without reflection or loading any mixin class.
+ * <p>
+ * The index is a UTF-8 text resource with one entry per line and space separated fields.
+ * Each {@code mixin} line is followed by the members of that mixin, trailing flags are optional:
+ * <pre>
+ * hypermixins-index 9
+ * mixin     &lt;internal name&gt; &lt;target class&gt; &lt;priority&gt; [stateless]
+ * overwrite &lt;name&gt; &lt;desc&gt; &lt;target method&gt; [inline] [static]
+ * original  &lt;name&gt; &lt;desc&gt; &lt;target method&gt;
+ * redirect  &lt;name&gt; &lt;desc&gt; &lt;target method&gt; &lt;invoke&gt; &lt;call&gt; &lt;index&gt; &lt;count&gt; [dynamic]
+ * offload   &lt;name&gt; &lt;desc&gt; &lt;executor&gt; &lt;max pending&gt; &lt;overflow&gt; [batch] [coalesce]
+ * inject    &lt;name&gt; &lt;desc&gt; &lt;target method&gt; &lt;point&gt; [cancellable]
+ * timed     &lt;target method&gt;
+ * counted   &lt;target method&gt;
+ * memoize   &lt;target method&gt; &lt;max size&gt; &lt;expire after millis&gt;
+ * shadow    &lt;name&gt; &lt;desc&gt; [static]
+ * accessor  &lt;name&gt; &lt;desc&gt; &lt;target field&gt;
+ * invoker   &lt;name&gt; &lt;desc&gt; &lt;target method&gt;
+ * access    class [public] [final]
+ * access    field &lt;target field&gt; [public] [final]
+ * access    method &lt;target method&gt;[desc] [public] [final]
+ * </pre>
+ * An {@code offload} line follows the {@code redirect} line of the handler it offloads.
+ * Entries are already validated by the processor, so loading only rebuilds the lookups.
+ *
+ * @author xEcho1337
+ */
+public final class MixinIndex {
+    
+    public static final String RESOURCE = "META-INF/hypermixins/mixins.idx";
+    public static final String HEADER = "hypermixins-index 9";
+    
+    public static final String MIXIN = "mixin";
+    public static final String OVERWRITE = "overwrite";
+    public static final String ORIGINAL = "original";
+    public static final String REDIRECT = "redirect";
+    public static final String OFFLOAD = "offload";
+    public static final String INJECT = "inject";
+    public static final String TIMED = "timed";
+    public static final String COUNTED = "counted";
+    public static final String MEMOIZE = "memoize";
+    public static final String SHADOW = "shadow";
+    public static final String ACCESSOR = "accessor";
+    public static final String INVOKER = "invoker";
+    public static final String ACCESS = "access";
+    
+    public static final String CLASS = "class";
+    public static final String FIELD = "field";
+    public static final String METHOD = "method";
+    
+    public static final String STATELESS = "stateless";
+    public static final String INLINE = "inline";
+    public static final String DYNAMIC = "dynamic";
+    public static final String BATCH = "batch";
+    public static final String COALESCE = "coalesce";
+    public static final String CANCELLABLE = "cancellable";
+    public static final String STATIC = "static";
+    public static final String PUBLIC = "public";
+    public static final String FINAL = "final";
+    
+    private MixinIndex() {
+    }
+    
+    /**
+     * Reads the mappings of every index visible to a class loader.
+     *
+     * @param loader the loader of the mixin classes, {@code null} for the bootstrap class loader
+     * @throws IllegalStateException if an index is malformed or was written by another release
+     */
+    public static List<MixinMapping> load(ClassLoader loader) {
+        List<MixinMapping> mappings = new ArrayList<>();
+        
+        try {
+            for (URL url : Collections.list(Loaders.resources(loader).getResources(RESOURCE))) {
+                try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)
+                )) {
+                    read(url, reader.lines().toList(), loader, mappings);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        
+        return mappings;
+    }
+    
+    private static void read(URL url, List<String> lines, ClassLoader loader, List<MixinMapping> mappings) {
+        if (lines.isEmpty() || !lines.getFirst().equals(HEADER)) {
+            throw new IllegalStateException("Unsupported mixin index " + url + ", recompile the mixins");
+        }
+        
+        int start = 1;
+        
+        while (start < lines.size()) {
+            String[] mixin = lines.get(start).split(" ");
+            
+            if (!mixin[0].equals(MIXIN) || mixin.length < 4) {
+                throw new IllegalStateException("Malformed mixin index " + url + " at line " + (start + 1));
+            }
+            
+            int end = start + 1;
+            
+            while (end < lines.size() && !lines.get(end).startsWith(MIXIN + " ")) {
+                end++;
+            }
+            
+            List<String> members = lines.subList(start + 1, end);
+            
+            mappings.add(new MixinMapping(
+                mixin[1],
+                mixin[2],
+                Integer.parseInt(mixin[3]),
+                hasFlag(mixin, 4, STATELESS),
+                loader,
+                null,
+                read -> members.forEach(member -> readMember(read, member.split(" ")))
+            ));
+            start = end;
+        }
+    }
+    
+    private static void readMember(MixinMapping.Members members, String[] fields) {
+        switch (fields[0]) {
+            case OVERWRITE -> members.addOverwrite(
+                fields[1],
+                fields[2],
+                fields[3],
+                hasFlag(fields, 4, INLINE),
+                hasFlag(fields, 4, STATIC)
+            );
+            case ORIGINAL -> members.addOriginal(fields[1], fields[2], fields[3]);
+            case REDIRECT -> members.addRedirect(
+                fields[1],
+                fields[2],
+                fields[3],
+                fields[4],
+                Call.valueOf(fields[5]),
+                Integer.parseInt(fields[6]),
+                Integer.parseInt(fields[7]),
+                hasFlag(fields, 8, DYNAMIC)
+            );
+            case OFFLOAD -> members.addOffload(fields[1], fields[2], new OffloadMapping(
+                fields[3],
+                Integer.parseInt(fields[4]),
+                Offload.Overflow.valueOf(fields[5]),
+                hasFlag(fields, 6, BATCH),
+                hasFlag(fields, 6, COALESCE)
+            ));
+            case INJECT -> members.addInject(
+                fields[1],
+                fields[2],
+                fields[3],
+                Point.valueOf(fields[4]),
+                hasFlag(fields, 5, CANCELLABLE)
+            );
+            case TIMED -> members.addMetric(fields[1], true);
+            case COUNTED -> members.addMetric(fields[1], false);
+            case MEMOIZE -> members.addMemoize(fields[1], Integer.parseInt(fields[2]), Long.parseLong(fields[3]));
+            case SHADOW -> members.addShadow(fields[1], fields[2], hasFlag(fields, 3, STATIC));
+            case ACCESSOR -> members.addAccessor(fields[1], fields[2], fields[3], false);
+            case INVOKER -> members.addAccessor(fields[1], fields[2], fields[3], true);
+            case ACCESS -> {
+                int flags = fields[1].equals(CLASS) ? 2 : 3;
+                
+                members.addAccess(
+                    fields[1].equals(FIELD) ? fields[2] : "",
+                    fields[1].equals(METHOD) ? fields[2] : "",
+                    hasFlag(fields, flags, PUBLIC),
+                    hasFlag(fields, flags, FINAL)
+                );
+            }
+            default -> throw new IllegalStateException("Unknown mixin index entry " + String.join(" ", fields));
+        }
+    }
+    
+    private static boolean hasFlag(String[] fields, int from, String flag) {
+        for (int i = from; i < fields.length; i++) {
+            if (fields[i].equals(flag)) return true;
+        }
+        
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package net.echo.hypermixins.agent;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Runtime side of the mixin instances a target allocates lazily.
+ * <p>
+ * The first call needing the mixin of a target instance allocates it and publishes it with a
+ * compare and set on the holder field, through an {@code invokedynamic} bootstrapped by
+ * {@link #bootstrap}. Threads racing on the first call all end up with the instance that won,
+ * and no lock is taken, so a mixin constructor can never deadlock with the monitor of the target.
+ *
+ * @author xEcho1337
+ */
+public final class MixinInstances {
+    
+    private MixinInstances() {
+    }
+    
+    /**
+     * Bootstrap method of the publishing call sites, invoked by the JVM.
+     *
+     * @param lookup the lookup of the woven class
+     * @param name the name of the holder field
+     * @param type {@code (target, expected, mixin)boolean}
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type) throws ReflectiveOperationException {
+        VarHandle field = lookup.findVarHandle(type.parameterType(0), name, type.parameterType(1));
+        return new ConstantCallSite(field.toMethodHandle(VarHandle.AccessMode.COMPARE_AND_SET).asType(type));
+    }
+}
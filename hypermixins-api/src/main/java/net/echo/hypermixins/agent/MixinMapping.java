@@ -2,147 +2,729 @@ package net.echo.hypermixins.agent;
 
 import net.echo.hypermixins.api.*;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class MixinMapping {
     
-    public final Class<?> mixinClass;
-    public final String targetClass;
-    public final Map<String, Method> overwrites; // mixin method name -> redirected method
+    public final String mixinName; // internal name of the mixin class
+    public final String targetClass; // binary name of the target class, or a pattern, see Mixin#value
+    public final int priority;
+    public final Map<String, MethodRef> overwrites; // redirected method -> mixin method
     public final Map<String, String> originals; // mixin method name -> original method name
+    public final Set<String> inlined; // overwritten target methods whose mixin body is copied in place
+    public final Set<String> staticOverwrites; // overwritten target methods that are static, called without a mixin instance
     public final List<RedirectMapping> redirects;
+    public final List<InjectMapping> injects;
+    public final Set<String> timed; // target method names measured by @Timed
+    public final Set<String> counted; // target method names counted by @Counted
+    public final Map<String, MemoizeMapping> memoized; // target method name -> its cache settings
+    public final Map<String, ShadowMapping> shadows; // mixin member key -> target member
+    public final List<AccessorMapping> accessors; // implemented by the target when the mixin is an interface
+    public final List<AccessMapping> access; // modifier changes of the target class and its members
+    public final RedirectIndex redirectIndex;
+    public final boolean stateless; // no instance fields, one instance can be shared by every target
     
+    private final WeakReference<ClassLoader> loader; // null for the bootstrap class loader, a plugin loader can still be unloaded
+    private final Predicate<ClassLoader> scope; // null to apply wherever the mixin resolves
+    private final LoaderMap<Boolean> resolves = new LoaderMap<>();
+    private volatile byte[] mixinBytes;
+    
+    /**
+     * Builds the mapping of a loaded mixin class through reflection.
+     * Mixins compiled with {@link net.echo.hypermixins.processor.MixinProcessor} can be
+     * read from their {@link MixinIndex} instead, without loading them.
+     */
     public MixinMapping(Class<?> mixinClass) {
-        this.mixinClass = mixinClass;
+        this(mixinClass, null);
+    }
+    
+    /**
+     * Builds the mapping of a loaded mixin class through reflection, applied only to the targets
+     * defined by the loaders the scope accepts, see {@link #appliesTo}.
+     *
+     * @param scope the loaders whose targets are woven, {@code null} for every loader resolving the mixin
+     */
+    public MixinMapping(Class<?> mixinClass, Predicate<ClassLoader> scope) {
+        this(
+            Type.getInternalName(mixinClass),
+            mixinAnnotation(mixinClass).value(),
+            mixinAnnotation(mixinClass).priority(),
+            isStateless(mixinClass),
+            mixinClass.getClassLoader(),
+            scope,
+            members -> members.readMethods(mixinClass)
+        );
+    }
+    
+    /**
+     * @param members adds the overwrites, originals, redirects, injects, metrics, memoizes, shadows, accessors and access changes
+     */
+    MixinMapping(
+        String mixinName,
+        String targetClass,
+        int priority,
+        boolean stateless,
+        ClassLoader loader,
+        Predicate<ClassLoader> scope,
+        Consumer<Members> members
+    ) {
+        checkTarget(targetClass);
+        
+        this.mixinName = mixinName;
+        this.targetClass = targetClass;
+        this.priority = priority;
+        this.stateless = stateless;
+        this.loader = loader == null ? null : new WeakReference<>(loader);
+        this.scope = scope;
+        
+        // read before the mapping is built, so no reader ever sees it partly initialized
+        Members read = new Members(mixinName, targetClass);
+        members.accept(read);
+        
+        this.overwrites = read.overwrites;
+        this.originals = read.originals;
+        this.inlined = read.inlined;
+        this.staticOverwrites = read.staticOverwrites;
+        this.redirects = read.redirects;
+        this.injects = read.injects;
+        this.timed = read.timed;
+        this.counted = read.counted;
+        this.memoized = read.memoized;
+        this.shadows = read.shadows;
+        this.accessors = read.accessors;
+        this.access = read.access;
+        
+        if (isPattern(targetClass) && (!originals.isEmpty() || !shadows.isEmpty() || !accessors.isEmpty())) {
+            throw new IllegalArgumentException(
+                "@Original, @Shadow, @Accessor and @Invoker need a single target class, " + mixinName + " targets " + targetClass
+            );
+        }
         
+        this.redirectIndex = new RedirectIndex(redirects);
+    }
+    
+    private static Mixin mixinAnnotation(Class<?> mixinClass) {
         Mixin mixin = mixinClass.getAnnotation(Mixin.class);
         
         if (mixin == null) throw new IllegalArgumentException("Missing @Mixin on " + mixinClass);
         
-        this.targetClass = mixin.value();
-        this.overwrites = new HashMap<>();
-        this.originals = new HashMap<>();
-        this.redirects = new ArrayList<>();
+        return mixin;
+    }
+    
+    /**
+     * Checks the parts of an {@link Inject} that do not depend on the target method.
+     *
+     * @throws IllegalArgumentException if the inject can never be applied
+     */
+    public static void checkInject(String targetMethod, Point at, boolean cancellable, String handlerDesc) {
+        if (targetMethod.equals("<clinit>") || targetMethod.equals("<init>") && at == Point.HEAD) {
+            throw new IllegalArgumentException("@Inject at " + at + " is not supported in " + targetMethod);
+        }
         
-        for (Method method : mixinClass.getDeclaredMethods()) {
-            if (method.isAnnotationPresent(Original.class)) {
-                handleOriginal(method);
-            } else if (method.isAnnotationPresent(Overwrite.class)) {
-                handleOverwrite(method, mixin);
-            } else if (method.isAnnotationPresent(Redirect.class)) {
-                handleRedirect(method, mixin);
-            }
+        if (cancellable && at != Point.HEAD) {
+            throw new IllegalArgumentException("Only @Inject at HEAD can be cancellable");
+        }
+        
+        Type returnType = Type.getReturnType(handlerDesc);
+        
+        if (at == Point.HEAD && !returnType.equals(cancellable ? Type.BOOLEAN_TYPE : Type.VOID_TYPE)) {
+            throw new IllegalArgumentException(
+                cancellable ? "Cancellable @Inject must return boolean" : "@Inject at HEAD must return void"
+            );
         }
     }
     
-    private void handleOriginal(Method method) {
-        Original original = method.getAnnotation(Original.class);
+    /**
+     * Checks the target of a {@link Mixin}, a binary class name or one of its patterns.
+     *
+     * @throws IllegalArgumentException if the target is empty or a malformed pattern
+     */
+    public static void checkTarget(String target) {
+        String name = target;
         
-        if (original.value().isEmpty()) {
-            throw new IllegalArgumentException("Value inside @Original on " + method + " is empty!");
+        if (target.endsWith(".**")) {
+            name = target.substring(0, target.length() - 3);
+        } else if (target.endsWith(".*")) {
+            name = target.substring(0, target.length() - 2);
+        } else if (target.endsWith("+")) {
+            name = target.substring(0, target.length() - 1);
         }
         
-        String mixinKey = method.getName() + Type.getMethodDescriptor(method);
-        originals.put(mixinKey, original.value());
+        if (name.isEmpty() || name.startsWith(".") || name.endsWith(".") || name.contains("..")
+            || name.contains("*") || name.contains("+") || name.contains("/")) {
+            throw new IllegalArgumentException(
+                "Invalid target in @Mixin: \"" + target + "\", expected a class, Type+, package.* or package.**"
+            );
+        }
+    }
+    
+    /**
+     * Returns whether the target of a {@link Mixin} is a pattern rather than a single class.
+     */
+    public static boolean isPattern(String target) {
+        return target.endsWith("+") || target.endsWith("*");
+    }
+    
+    /**
+     * Returns whether a class is the target of a {@link Mixin}, or the supertype of its {@code Type+} pattern.
+     */
+    public static boolean isTargetType(String target, String binaryName) {
+        return target.equals(binaryName) || target.equals(binaryName + "+");
     }
     
-    private void handleOverwrite(Method method, Mixin mixin) {
-        Overwrite overwrite = method.getAnnotation(Overwrite.class);
+    /**
+     * Checks an {@link Offload} of a redirect.
+     *
+     * @param invokeDesc the redirected instruction, as in {@link At#desc()}
+     * @throws IllegalArgumentException if the redirected call cannot run on an executor
+     */
+    public static void checkOffload(Call call, String invokeDesc, boolean dynamic, String executor, int maxPending) {
+        if (RedirectMapping.isField(call) || call == Call.NEW || !invokeDesc.endsWith(")V")) {
+            throw new IllegalArgumentException("@Offload only applies to calls returning void, found " + call + " " + invokeDesc);
+        }
+        
+        if (dynamic) {
+            throw new IllegalArgumentException("@Offload cannot be used on a dynamic @Redirect");
+        }
         
-        if (overwrite.value().isEmpty()) {
-            throw new IllegalArgumentException("Value inside @Overwrite on " + method + " is empty!");
+        if (executor.isEmpty() || executor.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Invalid executor name in @Offload: '" + executor + "'");
         }
         
-        if (Modifier.isStatic(method.getModifiers())) {
-            throw new IllegalArgumentException("@Overwrite on static methods is not supported yet! Method: " + method);
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive in @Offload");
         }
+    }
+    
+    /**
+     * Checks the descriptor of an {@link Accessor} or {@link Invoker} method.
+     *
+     * @throws IllegalArgumentException if an accessor is neither a getter nor a setter
+     */
+    public static void checkAccessor(String desc, boolean invoker) {
+        if (invoker) return;
         
-        Class<?>[] parameterTypes = method.getParameterTypes();
+        Type[] args = Type.getArgumentTypes(desc);
+        Type returnType = Type.getReturnType(desc);
+        boolean getter = args.length == 0 && returnType.getSort() != Type.VOID;
+        boolean setter = args.length == 1 && returnType.getSort() == Type.VOID;
         
-        if (parameterTypes.length == 0) {
-            throw new IllegalStateException("Missing Object self on overwritten method: " + method.getName());
+        if (!getter && !setter) {
+            throw new IllegalArgumentException("@Accessor must be a getter ()T or a setter (T)V, found " + desc);
+        }
+    }
+    
+    /**
+     * Checks a target method name of {@link Timed} or {@link Counted}.
+     *
+     * @throws IllegalArgumentException if the method cannot be measured
+     */
+    public static void checkMetric(String targetMethod) {
+        if (targetMethod.isEmpty()) {
+            throw new IllegalArgumentException("Empty method name in @Timed or @Counted");
         }
         
-        for (Class<?> parameterType : parameterTypes) {
-            if (parameterType.getName().equals(mixin.value())) {
-                throw new IllegalStateException(
-                    """
-                    Overwritten methods cannot contain a reference to the target class!
-                    Use "Object self" instead and cast the object later
-                    """
-                );
-            }
+        if (targetMethod.equals("<init>") || targetMethod.equals("<clinit>")) {
+            throw new IllegalArgumentException("@Timed and @Counted are not supported on " + targetMethod);
+        }
+    }
+    
+    /**
+     * Checks an {@link Access} of a mixin.
+     *
+     * @param pattern whether the mixin targets a pattern rather than a single class
+     * @throws IllegalArgumentException if the change is empty or cannot apply
+     */
+    public static void checkAccess(String field, String method, boolean makePublic, boolean makeFinal, boolean pattern) {
+        if (!makePublic && !makeFinal) {
+            throw new IllegalArgumentException("@Access must make its target public, final or both");
+        }
+        
+        if (!field.isEmpty() && !method.isEmpty()) {
+            throw new IllegalArgumentException("@Access cannot change both field " + field + " and method " + method);
         }
         
-        String key = overwrite.value() + targetDescriptor(method);
+        int desc = method.indexOf('(');
+        String name = desc < 0 ? method : method.substring(0, desc);
         
-        if (overwrites.containsKey(key)) {
-            throw new IllegalStateException("Duplicate @Overwrite for " + key + " in " + mixinClass);
+        if (desc == 0 || desc > 0 && method.indexOf(')', desc) < 0) {
+            throw new IllegalArgumentException("Invalid method in @Access: \"" + method + "\"");
         }
         
-        overwrites.put(key, method);
+        if (name.equals("<clinit>") || name.equals("<init>") && makeFinal) {
+            throw new IllegalArgumentException("@Access cannot make " + name + " " + (makeFinal ? "final" : "public"));
+        }
+        
+        if (pattern && makeFinal && field.isEmpty()) {
+            throw new IllegalArgumentException("@Access can only make a class or method final on a single target class");
+        }
     }
     
-    private void handleRedirect(Method method, Mixin mixin) {
-        Redirect redirect = method.getAnnotation(Redirect.class);
-        At at = redirect.at();
+    /**
+     * Checks the settings of a {@link Memoize}.
+     *
+     * @throws IllegalArgumentException if the method cannot be memoized
+     */
+    public static void checkMemoize(String targetMethod, int maxSize, long expireAfterMillis) {
+        if (targetMethod.isEmpty() || targetMethod.equals("<init>") || targetMethod.equals("<clinit>")) {
+            throw new IllegalArgumentException("@Memoize is not supported on \"" + targetMethod + "\"");
+        }
         
-        if (!Modifier.isStatic(method.getModifiers())) {
-            throw new IllegalArgumentException("@Redirect methods must be static: " + method);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive in @Memoize of " + targetMethod);
         }
         
-        if (at.desc().isEmpty()) {
-            throw new IllegalArgumentException("Missing desc in @At for @Redirect on " + method);
+        if (expireAfterMillis < 0) {
+            throw new IllegalArgumentException("Negative expireAfterMillis in @Memoize of " + targetMethod);
         }
+    }
+    
+    /**
+     * Returns the shadow member accessed by a field or method instruction of the mixin, if any.
+     */
+    public ShadowMapping shadowOf(AbstractInsnNode insn) {
+        return switch (insn) {
+            case FieldInsnNode fi when fi.owner.equals(mixinName) -> shadows.get(fi.name + ":" + fi.desc);
+            case MethodInsnNode mi when mi.owner.equals(mixinName) -> shadows.get(mi.name + mi.desc);
+            default -> null;
+        };
+    }
+    
+    /**
+     * Returns whether the mixin applies to the classes defined by a loader.
+     * <p>
+     * Without a scope, a mixin applies to the loaders that resolve its class, the mixin loader
+     * and its children or any loader shipping its own copy, since the woven code links to it.
+     * Isolated loaders that cannot see the mixin keep their classes as they are.
+     *
+     * @param loader the loader defining the target, {@code null} for the bootstrap class loader
+     */
+    public boolean appliesTo(ClassLoader loader) {
+        if (scope != null) return scope.test(loader);
         
-        if (redirect.method().isEmpty()) {
-            throw new IllegalArgumentException("Missing target method in @Redirect on " + method);
+        return resolves.computeIfAbsent(loader,
+            () -> Loaders.resources(loader).getResource(mixinName + ".class") != null);
+    }
+    
+    /**
+     * Returns the original class bytes of the mixin, read once from its class loader.
+     *
+     * @throws IllegalStateException if the loader of the mixin was unloaded before they were read
+     */
+    public byte[] mixinBytes() {
+        byte[] bytes = mixinBytes;
+        
+        if (bytes != null) return bytes;
+        
+        String resource = mixinName + ".class";
+        ClassLoader loader = this.loader != null ? this.loader.get() : null;
+        
+        if (this.loader != null && loader == null) {
+            throw new IllegalStateException("The class loader of mixin " + mixinName + " was unloaded");
         }
         
-        if (at.index() < 0) {
-            throw new IllegalArgumentException("Negative index in @Redirect on " + method);
+        try (InputStream in = Loaders.resources(loader).getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Unable to read class file of mixin " + mixinName);
+            }
+            
+            return mixinBytes = in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    /**
+     * Name of the copy of the original target method kept by an {@link Overwrite}.
+     */
+    public static String originalName(String targetName, String targetDesc) {
+        return "__original$" + targetName + "$" + Integer.toHexString(targetDesc.hashCode());
+    }
+    
+    private static boolean isStateless(Class<?> mixinClass) {
+        for (Class<?> type = mixinClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                // shadow fields stand for fields of the target
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isAnnotationPresent(Shadow.class)) return false;
+            }
         }
         
-        String handlerDesc = Type.getMethodDescriptor(method);
+        return true;
+    }
+    
+    /**
+     * Descriptor of the target method overwritten by a mixin method, i.e. without {@code Object self}.
+     */
+    public static String targetDescriptor(String mixinDesc) {
+        Type[] args = Type.getArgumentTypes(mixinDesc);
+        Type[] targetArgs = Arrays.copyOfRange(args, Math.min(1, args.length), args.length);
         
-        // signature INVOKE target
-        // es: java/lang/Thread.sleep(J)V
-        int paren = at.desc().indexOf('(');
+        return Type.getMethodDescriptor(Type.getReturnType(mixinDesc), targetArgs);
+    }
+    
+    /**
+     * Descriptor a redirect handler must have to replace an instruction, see {@link Call} for
+     * the shape of each kind.
+     *
+     * @param target the instruction in the form {@code owner.name(desc)}, e.g. {@code java/lang/Thread.sleep(J)V},
+     *     or {@code owner.name:desc} for a field
+     * @throws IllegalArgumentException if the instruction is malformed
+     */
+    public static String handlerDescriptor(String target, Call call) {
+        boolean field = RedirectMapping.isField(call);
+        int start = target.indexOf(field ? ':' : '(');
+        int dot = start == -1 ? -1 : target.lastIndexOf('.', start);
         
-        if (paren == -1) {
-            throw new IllegalArgumentException("Invalid invoke desc in @At: " + at.desc());
+        if (dot <= 0) {
+            throw new IllegalArgumentException(
+                (field ? "Invalid field desc in @At, expected owner.name:desc: " : "Invalid invoke desc in @At, expected owner.name(desc): ")
+                    + target
+            );
         }
         
-        String invokeDesc = at.desc().substring(paren);
+        Type owner = Type.getObjectType(target.substring(0, dot));
+        String name = target.substring(dot + 1, start);
+        String desc = target.substring(field ? start + 1 : start);
         
-        if (!handlerDesc.equals(invokeDesc)) {
-            throw new IllegalStateException(
-                """
-                Redirect method signature does not match INVOKE signature!
-                Method: %s
-                Expected: %s
-                Found: %s
-                """.formatted(method, invokeDesc, handlerDesc)
-            );
+        if (call == Call.NEW && (!name.equals("<init>") || !desc.endsWith(")V"))) {
+            throw new IllegalArgumentException("NEW in @At expects a constructor, owner.<init>(desc)V: " + target);
+        }
+        
+        if (call != Call.NEW && name.equals("<init>")) {
+            throw new IllegalArgumentException("Constructors can only be redirected through NEW in @At: " + target);
         }
         
-        redirects.add(new RedirectMapping(
-            redirect.method(),
-            at.desc(),
-            at.index(),
-            at.call(),
-            method
-        ));
+        return switch (call) {
+            case INVOKESTATIC -> desc;
+            case INVOKEVIRTUAL, INVOKESPECIAL, INVOKEINTERFACE -> {
+                // the receiver is passed to the handler as first argument
+                Type[] args = Type.getArgumentTypes(desc);
+                Type[] handlerArgs = new Type[args.length + 1];
+                
+                handlerArgs[0] = owner;
+                System.arraycopy(args, 0, handlerArgs, 1, args.length);
+                yield Type.getMethodDescriptor(Type.getReturnType(desc), handlerArgs);
+            }
+            // the handler builds the instance itself
+            case NEW -> Type.getMethodDescriptor(owner, Type.getArgumentTypes(desc));
+            case GETSTATIC -> Type.getMethodDescriptor(Type.getType(desc));
+            case GETFIELD -> Type.getMethodDescriptor(Type.getType(desc), owner);
+            case PUTSTATIC -> Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(desc));
+            case PUTFIELD -> Type.getMethodDescriptor(Type.VOID_TYPE, owner, Type.getType(desc));
+        };
     }
     
-    private static String targetDescriptor(Method mixinMethod) {
-        Type returnType = Type.getReturnType(mixinMethod);
-        Type[] args = Type.getArgumentTypes(mixinMethod);
-        Type[] targetArgs = Arrays.copyOfRange(args, Math.min(1, args.length), args.length);
+    /**
+     * Members of a mixin as they are read, from its class or its {@link MixinIndex} entry.
+     */
+    static final class Members {
+        
+        private final String mixinName;
+        private final String targetClass;
+        private final Map<String, MethodRef> overwrites = new HashMap<>();
+        private final Map<String, String> originals = new HashMap<>();
+        private final Set<String> inlined = new HashSet<>();
+        private final Set<String> staticOverwrites = new HashSet<>();
+        private final List<RedirectMapping> redirects = new ArrayList<>();
+        private final List<InjectMapping> injects = new ArrayList<>();
+        private final Set<String> timed = new HashSet<>();
+        private final Set<String> counted = new HashSet<>();
+        private final Map<String, MemoizeMapping> memoized = new HashMap<>();
+        private final Map<String, ShadowMapping> shadows = new HashMap<>();
+        private final List<AccessorMapping> accessors = new ArrayList<>();
+        private final List<AccessMapping> access = new ArrayList<>();
+        
+        private Members(String mixinName, String targetClass) {
+            this.mixinName = mixinName;
+            this.targetClass = targetClass;
+        }
+        
+        private void readMethods(Class<?> mixinClass) {
+            Timed timed = mixinClass.getAnnotation(Timed.class);
+            Counted counted = mixinClass.getAnnotation(Counted.class);
+            
+            for (String method : timed == null ? new String[0] : timed.value()) {
+                addMetric(method, true);
+            }
+            
+            for (String method : counted == null ? new String[0] : counted.value()) {
+                addMetric(method, false);
+            }
+            
+            for (Memoize memoize : mixinClass.getAnnotationsByType(Memoize.class)) {
+                addMemoize(memoize.method(), memoize.maxSize(), memoize.expireAfterMillis());
+            }
+            
+            for (Access access : mixinClass.getAnnotationsByType(Access.class)) {
+                addAccess(access.field(), access.method(), access.makePublic(), access.makeFinal());
+            }
+            
+            for (Field field : mixinClass.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Shadow.class)) {
+                    addShadow(field.getName(), Type.getDescriptor(field.getType()), Modifier.isStatic(field.getModifiers()));
+                }
+            }
+            
+            for (Method method : mixinClass.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Shadow.class)) {
+                    addShadow(method.getName(), Type.getMethodDescriptor(method), Modifier.isStatic(method.getModifiers()));
+                } else if (method.isAnnotationPresent(Accessor.class) || method.isAnnotationPresent(Invoker.class)) {
+                    handleAccessor(method);
+                } else if (method.isAnnotationPresent(Original.class)) {
+                    handleOriginal(method);
+                } else if (method.isAnnotationPresent(Overwrite.class)) {
+                    handleOverwrite(method);
+                } else if (method.isAnnotationPresent(Redirect.class)) {
+                    handleRedirect(method);
+                } else if (method.isAnnotationPresent(Offload.class)) {
+                    throw new IllegalArgumentException("@Offload can only be used on a @Redirect method: " + method);
+                } else if (method.isAnnotationPresent(Inject.class)) {
+                    handleInject(method);
+                }
+            }
+        }
+        
+        private void handleOriginal(Method method) {
+            Original original = method.getAnnotation(Original.class);
+            
+            if (original.value().isEmpty()) {
+                throw new IllegalArgumentException("Value inside @Original on " + method + " is empty!");
+            }
+            
+            addOriginal(method.getName(), Type.getMethodDescriptor(method), original.value());
+        }
+        
+        private void handleOverwrite(Method method) {
+            Overwrite overwrite = method.getAnnotation(Overwrite.class);
+            
+            if (overwrite.value().isEmpty()) {
+                throw new IllegalArgumentException("Value inside @Overwrite on " + method + " is empty!");
+            }
+            
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            
+            // static methods take the parameters of the target as they are, there is no self
+            if (!isStatic) {
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                
+                if (parameterTypes.length == 0) {
+                    throw new IllegalStateException("Missing Object self on overwritten method: " + method.getName());
+                }
+                
+                for (Class<?> parameterType : parameterTypes) {
+                    if (isTargetType(targetClass, parameterType.getName())) {
+                        throw new IllegalStateException(
+                            """
+                            Overwritten methods cannot contain a reference to the target class!
+                            Use "Object self" instead and cast the object later
+                            """
+                        );
+                    }
+                }
+            }
+            
+            addOverwrite(method.getName(), Type.getMethodDescriptor(method), overwrite.value(), overwrite.inline(), isStatic);
+        }
+        
+        private void handleRedirect(Method method) {
+            Redirect redirect = method.getAnnotation(Redirect.class);
+            At at = redirect.at();
+            
+            if (!Modifier.isStatic(method.getModifiers())) {
+                throw new IllegalArgumentException("@Redirect methods must be static: " + method);
+            }
+            
+            if (at.desc().isEmpty()) {
+                throw new IllegalArgumentException("Missing desc in @At for @Redirect on " + method);
+            }
+            
+            if (redirect.method().isEmpty()) {
+                throw new IllegalArgumentException("Missing target method in @Redirect on " + method);
+            }
+            
+            if (at.index() < 0) {
+                throw new IllegalArgumentException("Negative index in @Redirect on " + method);
+            }
+            
+            if (at.count() <= 0) {
+                throw new IllegalArgumentException("Count must be positive in @Redirect on " + method);
+            }
+            
+            String handlerDesc = Type.getMethodDescriptor(method);
+            String invokeDesc = handlerDescriptor(at.desc(), at.call());
+            
+            if (!handlerDesc.equals(invokeDesc)) {
+                throw new IllegalStateException(
+                    """
+                    Redirect method signature does not match %s signature!
+                    Method: %s
+                    Expected: %s
+                    Found: %s
+                    """.formatted(at.call(), method, invokeDesc, handlerDesc)
+                );
+            }
+            
+            addRedirect(
+                method.getName(),
+                handlerDesc,
+                redirect.method(),
+                at.desc(),
+                at.call(),
+                at.index(),
+                at.count(),
+                redirect.dynamic()
+            );
+            
+            Offload offload = method.getAnnotation(Offload.class);
+            
+            if (offload != null) {
+                checkOffload(at.call(), at.desc(), redirect.dynamic(), offload.executor(), offload.maxPending());
+                addOffload(method.getName(), handlerDesc, new OffloadMapping(
+                    offload.executor(),
+                    offload.maxPending(),
+                    offload.overflow(),
+                    offload.batch(),
+                    offload.coalesce()
+                ));
+            }
+        }
+        
+        private void handleAccessor(Method method) {
+            Accessor accessor = method.getAnnotation(Accessor.class);
+            Invoker invoker = method.getAnnotation(Invoker.class);
+            String target = accessor != null ? accessor.value() : invoker.value();
+            
+            if (!method.getDeclaringClass().isInterface() || Modifier.isStatic(method.getModifiers())) {
+                throw new IllegalArgumentException("@Accessor and @Invoker must be abstract methods of a mixin interface: " + method);
+            }
+            
+            if (target.isEmpty()) {
+                throw new IllegalArgumentException("Value inside @Accessor or @Invoker on " + method + " is empty!");
+            }
+            
+            checkAccessor(Type.getMethodDescriptor(method), invoker != null);
+            addAccessor(method.getName(), Type.getMethodDescriptor(method), target, invoker != null);
+        }
+        
+        private void handleInject(Method method) {
+            Inject inject = method.getAnnotation(Inject.class);
+            
+            if (!Modifier.isStatic(method.getModifiers())) {
+                throw new IllegalArgumentException("@Inject methods must be static: " + method);
+            }
+            
+            if (inject.method().isEmpty()) {
+                throw new IllegalArgumentException("Missing target method in @Inject on " + method);
+            }
+            
+            checkInject(inject.method(), inject.at(), inject.cancellable(), Type.getMethodDescriptor(method));
+            addInject(method.getName(), Type.getMethodDescriptor(method), inject.method(), inject.at(), inject.cancellable());
+        }
         
-        return Type.getMethodDescriptor(returnType, targetArgs);
+        
+        void addOriginal(String name, String desc, String targetName) {
+            originals.put(name + desc, targetName);
+        }
+        
+        void addOverwrite(String name, String desc, String targetName, boolean inline, boolean isStatic) {
+            String key = targetName + (isStatic ? desc : targetDescriptor(desc));
+            
+            if (overwrites.containsKey(key)) {
+                throw new IllegalStateException("Duplicate @Overwrite for " + key + " in " + mixinName);
+            }
+            
+            overwrites.put(key, new MethodRef(mixinName, name, desc));
+            
+            if (inline) {
+                inlined.add(key);
+            }
+            
+            if (isStatic) {
+                staticOverwrites.add(key);
+            }
+        }
+        
+        void addRedirect(
+            String name,
+            String desc,
+            String targetMethod,
+            String invokeDesc,
+            Call call,
+            int index,
+            int count,
+            boolean dynamic
+        ) {
+            redirects.add(new RedirectMapping(
+                targetMethod,
+                invokeDesc,
+                index,
+                count,
+                call,
+                new MethodRef(mixinName, name, desc),
+                dynamic,
+                null
+            ));
+        }
+        
+        void addOffload(String name, String desc, OffloadMapping offload) {
+            MethodRef handler = new MethodRef(mixinName, name, desc);
+            
+            for (int i = 0; i < redirects.size(); i++) {
+                if (redirects.get(i).handler().equals(handler)) {
+                    redirects.set(i, redirects.get(i).offloaded(offload));
+                    return;
+                }
+            }
+            
+            throw new IllegalStateException("@Offload " + handler + " is not a @Redirect");
+        }
+        
+        void addInject(String name, String desc, String targetMethod, Point at, boolean cancellable) {
+            injects.add(new InjectMapping(targetMethod, at, cancellable, new MethodRef(mixinName, name, desc)));
+        }
+        
+        void addMetric(String targetMethod, boolean timed) {
+            checkMetric(targetMethod);
+            (timed ? this.timed : counted).add(targetMethod);
+        }
+        
+        void addMemoize(String targetMethod, int maxSize, long expireAfterMillis) {
+            checkMemoize(targetMethod, maxSize, expireAfterMillis);
+            
+            if (memoized.put(targetMethod, new MemoizeMapping(targetMethod, maxSize, expireAfterMillis)) != null) {
+                throw new IllegalStateException("Duplicate @Memoize for " + targetMethod + " in " + mixinName);
+            }
+        }
+        
+        void addAccess(String field, String method, boolean makePublic, boolean makeFinal) {
+            checkAccess(field, method, makePublic, makeFinal, isPattern(targetClass));
+            access.add(new AccessMapping(mixinName, field, method, makePublic, makeFinal));
+        }
+        
+        void addShadow(String name, String desc, boolean isStatic) {
+            if (name.equals("<init>") || name.equals("<clinit>")) {
+                throw new IllegalArgumentException("@Shadow is not supported on " + name + " in " + mixinName);
+            }
+            
+            ShadowMapping shadow = new ShadowMapping(name, desc, isStatic);
+            shadows.put(shadow.key(), shadow);
+        }
+        
+        void addAccessor(String name, String desc, String target, boolean invoker) {
+            accessors.add(new AccessorMapping(name, desc, target, invoker));
+        }
     }
 }
@@ -1,24 +1,148 @@
 package net.echo.hypermixins.agent;
 
-import net.echo.hypermixins.api.Call;
-import org.objectweb.asm.*;
-import org.objectweb.asm.tree.*;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.instrument.ClassFileTransformer;
-import java.lang.reflect.Method;
+import java.lang.ref.WeakReference;
 import java.security.ProtectionDomain;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
-public class MixinTransformer implements ClassFileTransformer {
+/**
+ * Weaves the targets and mixins of the registered {@link MixinMapping}s as their classes load.
+ * <p>
+ * Classes are matched by name and by the loader defining them: a target is only woven with
+ * the mixins that {@link MixinMapping#appliesTo apply to} its loader, so isolated loaders
+ * defining classes of the same name are told apart. What is kept per loader is weakly
+ * keyed, an unloaded loader is collected with its classes.
+ * <p>
+ * Mixins targeting a pattern are bound to it in the {@link ClassFilter}. A class matching
+ * several targets, e.g. a class and one of its supertypes, is woven once with the mixins of
+ * all of them.
+ *
+ * @author xEcho1337
+ */
+public final class MixinTransformer implements ClassFileTransformer {
     
-    private final Map<String, MixinMapping> targets = new HashMap<>();
-    private final Map<String, MixinMapping> mixins = new HashMap<>();
+    private final ClassHierarchy hierarchy = new ClassHierarchy();
+    private final ClassFilter<TargetMapping> targets = new ClassFilter<>(hierarchy, this::merge);
+    private final ConcurrentMap<Set<MixinMapping>, TargetMapping> merged = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Prewoven> prewoven = new ConcurrentHashMap<>();
+    private final LoaderMap<ConcurrentMap<String, Applied>> applied = new LoaderMap<>();
+    private final WeaveMetrics metrics = new WeaveMetrics();
+    private final Set<String> accessChanges = ConcurrentHashMap.newKeySet();
+    private final WeaveCache cache;
+    
+    // replaced as a whole by bind, read without locking while weaving
+    private volatile List<MixinMapping> mappings = List.of();
+    private volatile Map<String, MixinMapping> mixins = Map.of();
+    private volatile List<String> conflicts = List.of();
     
     public MixinTransformer(List<MixinMapping> mappings) {
+        this(mappings, null);
+    }
+    
+    public MixinTransformer(List<MixinMapping> mappings, WeaveCache cache) {
+        this.cache = cache;
+        bind(mappings);
+    }
+    
+    /**
+     * Replaces the registered mixins. Classes loaded from now on are woven with the new mappings,
+     * classes already loaded keep their current bytes until they are retransformed.
+     * <p>
+     * Mixins and targets left unchanged keep their lookups, only the ones that changed are rebuilt.
+     *
+     * @param mappings every mixin to apply from now on
+     * @return the internal names of the mixins and targets whose weaving changed, patterns included, see {@link ClassFilter}
+     * @throws IllegalArgumentException if a mixin is registered twice
+     */
+    public synchronized Set<String> setMappings(List<MixinMapping> mappings) {
+        return bind(mappings);
+    }
+    
+    private Set<String> bind(List<MixinMapping> mappings) {
+        Map<String, MixinMapping> mixins = new HashMap<>();
+        Map<String, List<MixinMapping>> byTarget = new LinkedHashMap<>();
+        
         for (MixinMapping m : mappings) {
-            targets.put(m.targetClass.replace('.', '/'), m);
-            mixins.put(Type.getInternalName(m.mixinClass), m);
+            if (mixins.put(m.mixinName, m) != null) {
+                throw new IllegalArgumentException("Mixin registered twice: " + m.mixinName);
+            }
+            
+            byTarget.computeIfAbsent(m.targetClass.replace('.', '/'), k -> new ArrayList<>()).add(m);
+        }
+        
+        Set<String> changed = new HashSet<>();
+        Map<String, TargetMapping> next = new HashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        
+        for (String mixinName : union(this.mixins.keySet(), mixins.keySet())) {
+            if (this.mixins.get(mixinName) != mixins.get(mixinName)) {
+                changed.add(mixinName);
+            }
+        }
+        
+        byTarget.forEach((targetClass, targetMixins) -> {
+            TargetMapping previous = targets.get(targetClass);
+            TargetMapping target = new TargetMapping(targetClass.replace('/', '.'), targetMixins);
+            
+            if (previous != null && previous.mixins.equals(target.mixins)) {
+                target = previous; // same mixin instances, nothing to reweave
+            } else {
+                changed.add(targetClass);
+            }
+            
+            next.put(targetClass, target);
+            conflicts.addAll(target.conflicts);
+        });
+        
+        for (String targetClass : targets.keys()) {
+            if (!next.containsKey(targetClass)) {
+                targets.remove(targetClass);
+                changed.add(targetClass);
+            }
         }
+        
+        next.forEach((targetClass, target) -> {
+            if (changed.contains(targetClass)) targets.put(targetClass, target);
+        });
+        
+        conflicts.forEach(metrics::warn);
+        
+        this.mappings = List.copyOf(mappings);
+        this.mixins = Map.copyOf(mixins);
+        this.conflicts = List.copyOf(conflicts);
+        merged.clear();
+        prewoven.keySet().removeAll(changed);
+        return changed;
+    }
+    
+    // the mappings of the targets a class matches, shared by the classes matching the same ones
+    private TargetMapping merge(TargetMapping first, TargetMapping second) {
+        Set<MixinMapping> mixins = new HashSet<>(first.mixins);
+        mixins.addAll(second.mixins);
+        
+        return merged.computeIfAbsent(mixins, k -> {
+            TargetMapping target = new TargetMapping(first.targetClass + ", " + second.targetClass, List.copyOf(k));
+            target.conflicts.forEach(metrics::warn);
+            return target;
+        });
+    }
+    
+    /**
+     * Returns the registered mixins.
+     */
+    public List<MixinMapping> mappings() {
+        return mappings;
     }
     
     @Override
@@ -31,344 +155,374 @@ public class MixinTransformer implements ClassFileTransformer {
         byte[] classfileBuffer
     ) {
         try {
-            MixinMapping mapping;
+            byte[] woven = prewoven(className, loader, classfileBuffer);
             
-            if ((mapping = targets.get(className)) != null) {
-                return transformTarget(classfileBuffer, mapping);
+            if (woven == null) {
+                woven = weave(loader, className, classfileBuffer);
             }
             
-            if ((mapping = mixins.get(className)) != null) {
-                return transformMixin(classfileBuffer, mapping);
+            if (className != null && woven != null) {
+                applied.computeIfAbsent(loader, ConcurrentHashMap::new).put(className, new Applied(classfileBuffer, woven));
+            } else if (className != null && classBeingRedefined != null) {
+                ConcurrentMap<String, Applied> loaded = applied.get(loader);
+                
+                if (loaded != null) loaded.remove(className); // no longer woven, back to its original bytes
             }
             
-            return null;
+            // the dynamic redirects of the previous version are linked again, or no longer exist
+            if (classBeingRedefined != null) DynamicRedirects.unlink(classBeingRedefined);
+            
+            return woven;
         } catch (Throwable t) {
             t.printStackTrace(System.err);
             return null;
         }
     }
     
-    private byte[] transformMixin(byte[] classfile, MixinMapping mapping) {
-        ClassReader reader = new ClassReader(classfile);
-        ClassNode node = new ClassNode();
-        reader.accept(node, 0);
+    /**
+     * Weaves a single class, the same way {@link #transform} does but letting failures propagate.
+     *
+     * @param loader the loader defining the class, used to scope the mixins and resolve the class hierarchy
+     * @param className the internal name of the class
+     * @param classfile the class bytes
+     * @return the woven class bytes, or {@code null} if the class is neither a target nor a mixin of that loader
+     */
+    public byte[] weave(ClassLoader loader, String className, byte[] classfile) {
+        MixinMapping mixin = className == null ? null : mixins.get(className);
         
-        for (MethodNode method : node.methods) {
-            String key = method.name + method.desc;
-            
-            // if we don't have this method marked as original
-            if (!mapping.originals.containsKey(key)) continue;
-            
-            Type[] args = Type.getArgumentTypes(method.desc);
-            if (args.length == 0) {
-                throw new IllegalStateException("@Original method must declare Object self as first parameter: " + method.name + method.desc);
-            }
-            
-            Type returnType = Type.getReturnType(method.desc);
-            Type[] targetArgs = Arrays.copyOfRange(args, 1, args.length);
-            String targetDesc = Type.getMethodDescriptor(returnType, targetArgs);
-            
-            // native -> normal
-            if ((method.access & Opcodes.ACC_NATIVE) == Opcodes.ACC_NATIVE) {
-                method.access &= ~Opcodes.ACC_NATIVE;
+        try {
+            if (mixin != null && mixin.appliesTo(loader)) {
+                return cached(classfile, List.of(mixin), () -> transformMixin(loader, classfile, mixin));
             }
             
-            method.instructions.clear();
-            method.tryCatchBlocks.clear();
-            method.localVariables = null;
-            
-            InsnList insns = new InsnList();
-            String mappedTargetClass = mapping.targetClass.replace('.', '/');
-            
-            // load self as the first arg of method in mixin, represents the original class
-            insns.add(new VarInsnNode(Opcodes.ALOAD, 1));
-            insns.add(new TypeInsnNode(
-                Opcodes.CHECKCAST, // make sure 'self' is the same type of the target class
-                mappedTargetClass
-            ));
+            // the vast majority of classes stops here
+            TargetMapping target = targets.match(className, loader, classfile);
             
-            String targetName = mapping.originals.get(key);
-            String originalName = "__original$" + targetName + "$" + Integer.toHexString(targetDesc.hashCode());
+            TargetMapping scoped = target == null ? null : target.scopedTo(loader);
             
-            insns.add(new MethodInsnNode(
-                Opcodes.INVOKEVIRTUAL,
-                mappedTargetClass, // class to call from
-                originalName,// original function name
-                targetDesc, // signature of the original function
-                false
-            ));
-            
-            insns.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN)));
+            // access changes are validated against the classes of their package, their weave is never cached
+            if (scoped != null && !scoped.access.isEmpty()) {
+                WeaveCache.Entry woven = transformTarget(loader, classfile, scoped);
+                return woven == null ? null : woven.woven();
+            }
             
-            method.instructions.add(insns);
+            if (scoped != null) {
+                return cached(classfile, scoped.mixins, () -> transformTarget(loader, classfile, scoped));
+            }
+        } catch (RuntimeException | Error ex) {
+            if (className != null) metrics.recordFailure(className, ex);
+            throw ex;
         }
         
-        ClassWriter writer = new ClassWriter(
-            ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS
-        );
-        node.accept(writer);
-        return writer.toByteArray();
+        return null;
     }
     
-    private byte[] transformTarget(byte[] classfile, MixinMapping mapping) {
-        ClassReader reader = new ClassReader(classfile);
-        ClassNode node = new ClassNode();
-        reader.accept(node, 0);
-        
-        String mixinField = "__mixin$" + mapping.mixinClass.getName().replace('.', '$');
-        String mixinDesc = Type.getDescriptor(mapping.mixinClass);
-        
-        // add mixin field
-        if (node.fields.stream().noneMatch(f -> f.name.equals(mixinField))) {
-            node.fields.add(new FieldNode(
-                Opcodes.ACC_PRIVATE, // private field
-                mixinField,
-                mixinDesc,
-                null,
-                null
-            ));
-        }
+    /**
+     * Weaves every target and mixin the loader can find ahead of time, in parallel, so that
+     * {@link #transform} serves them from memory instead of weaving on the thread that loads them.
+     * <p>
+     * Classes failing to weave are reported and left to {@link #transform}. A prewoven class
+     * is only served if the JVM hands over the same class bytes that were woven. Classes only
+     * matched by a pattern cannot be listed ahead of time, they are woven as they load.
+     *
+     * @param loader the loader resolving the class files and the class hierarchy
+     * @param executor runs one weave per class
+     * @return how many classes were prewoven
+     */
+    public int preweave(ClassLoader loader, Executor executor) {
+        CompletableFuture<?>[] tasks = classNames().stream()
+            .map(className -> CompletableFuture.runAsync(() -> preweave(loader, className), executor))
+            .toArray(CompletableFuture[]::new);
         
-        // scans every method in the class and applies the redirect
-        for (MethodNode method : node.methods) {
-            applyRedirects(method, mapping);
-        }
+        CompletableFuture.allOf(tasks).join();
+        return prewoven.size();
+    }
+    
+    /**
+     * Returns the internal names of every target and mixin class, the targets matched by a pattern aside.
+     */
+    public Set<String> classNames() {
+        return union(targets.names(), mixins.keySet());
+    }
+    
+    /**
+     * Returns whether a loaded class can be retransformed into its weave under the current
+     * mappings, that is whether its {@link ClassSchema} stays the same as the one of the
+     * version currently loaded. If so, the new weave is kept for the retransformation.
+     *
+     * @param loader the loader defining the class
+     * @param className the internal name of the class
+     * @return {@code false} if the class would gain or lose fields or methods, or cannot be read
+     */
+    public boolean canRetransform(ClassLoader loader, String className) {
+        Applied current = applied(loader, className);
+        byte[] original = current != null ? current.original : readClass(loader, className);
         
-        // init mixin in constructor
-        for (MethodNode method : node.methods) {
-            if (method.name.equals("<init>")) {
-                patchConstructor(method, node, mapping, mixinField);
-            }
-        }
+        if (original == null) return false;
         
-        List<MethodNode> originals = new ArrayList<>();
+        byte[] woven = weave(loader, className, original);
+        byte[] loaded = current != null ? current.woven : original;
         
-        // overwrites the requested methods
-        for (MethodNode method : node.methods) {
-            String key = method.name + method.desc;
-            Method overwrite = mapping.overwrites.get(key);
-            
-            // if we don't need to overwrite this method
-            if (overwrite == null) continue;
-            
-            // overwrite = replace BODY, not symbol
-            applyOverwrite(node, method, overwrite, mixinField, originals);
+        if (!ClassSchema.of(loaded).equals(ClassSchema.of(woven != null ? woven : original))) {
+            return false;
         }
         
-        // adds the original methods to the node
-        for (MethodNode orig : originals) {
-            boolean exists = node.methods.stream()
-                .anyMatch(m -> m.name.equals(orig.name) && Objects.equals(m.desc, orig.desc));
-            
-            if (!exists) { // avoids multiple methods with the same signature
-                node.methods.add(orig);
-            }
+        if (woven != null) {
+            prewoven.put(className, new Prewoven(reference(loader), original, woven));
         }
         
-        ClassWriter writer = new ClassWriter(
-            ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS
-        );
-        node.accept(writer);
-        return writer.toByteArray();
+        return true;
     }
     
-    private static void patchConstructor(
-        MethodNode ctor,
-        ClassNode owner,
-        MixinMapping mapping,
-        String mixinFieldName
-    ) {
-        AbstractInsnNode insertAfter = null;
+    /**
+     * Returns the bytes a class was defined with and the woven bytes that replaced them,
+     * or {@code null} if the class is not currently woven.
+     *
+     * @param loader the loader defining the class
+     * @param className the internal name of the class
+     */
+    public Applied applied(ClassLoader loader, String className) {
+        ConcurrentMap<String, Applied> loaded = applied.get(loader);
+        return loaded == null ? null : loaded.get(className);
+    }
+    
+    /**
+     * Puts back what {@link #applied} returned for a class before a retransformation that the
+     * JVM rejected after this transformer had already recorded the new bytes.
+     *
+     * @param loader the loader defining the class
+     * @param className the internal name of the class
+     * @param previous the record before the retransformation, {@code null} if the class was not woven
+     */
+    public void restoreApplied(ClassLoader loader, String className, Applied previous) {
+        if (previous != null) {
+            applied.computeIfAbsent(loader, ConcurrentHashMap::new).put(className, previous);
+            return;
+        }
+        
+        ConcurrentMap<String, Applied> loaded = applied.get(loader);
         
-        for (AbstractInsnNode insn = ctor.instructions.getFirst();
-             insn != null;
-             insn = insn.getNext()) {
+        if (loaded != null) loaded.remove(className);
+    }
+    
+    private void preweave(ClassLoader loader, String className) {
+        try {
+            byte[] classfile = readClass(loader, className);
             
-            if (insn instanceof MethodInsnNode mi
-                && mi.getOpcode() == Opcodes.INVOKESPECIAL
-                && mi.name.equals("<init>")
-                && mi.owner.equals(owner.superName)) {
-                
-                insertAfter = insn;
-                break;
+            if (classfile == null) return; // not visible from this loader, woven when loaded
+            
+            byte[] woven = weave(loader, className, classfile);
+            
+            if (woven != null) {
+                prewoven.put(className, new Prewoven(reference(loader), classfile, woven));
             }
+        } catch (RuntimeException ex) {
+            new IllegalStateException("Unable to preweave " + className, ex).printStackTrace(System.err);
         }
+    }
+    
+    private static byte[] readClass(ClassLoader loader, String className) {
+        String resource = className + ".class";
         
-        if (insertAfter == null) {
-            return;
-            // TODO: fix this
-//            throw new IllegalStateException("No super() call found in constructor of " + owner.name);
+        try (InputStream in = Loaders.resources(loader).getResourceAsStream(resource)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
-        
-        InsnList inject = new InsnList();
-        
-        inject.add(new VarInsnNode(Opcodes.ALOAD, 0));
-        inject.add(new TypeInsnNode(
-            Opcodes.NEW,
-            Type.getInternalName(mapping.mixinClass)
-        ));
-        inject.add(new InsnNode(Opcodes.DUP));
-        inject.add(new MethodInsnNode(
-            Opcodes.INVOKESPECIAL,
-            Type.getInternalName(mapping.mixinClass),
-            "<init>",
-            "()V",
-            false
-        ));
-        inject.add(new FieldInsnNode(
-            Opcodes.PUTFIELD,
-            owner.name,
-            mixinFieldName,
-            Type.getDescriptor(mapping.mixinClass)
-        ));
-        
-        ctor.instructions.insert(insertAfter, inject);
     }
     
-    private static void applyOverwrite(
-        ClassNode owner,
-        MethodNode target,
-        Method mixinMethod,
-        String mixinFieldName,
-        List<MethodNode> originals
-    ) {
-        MethodNode originalCopy = cloneAsOriginal(target);
-        originals.add(originalCopy);
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        return union;
+    }
+    
+    private byte[] prewoven(String className, ClassLoader loader, byte[] classfile) {
+        if (className == null || prewoven.isEmpty()) return null;
         
-        target.instructions.clear();
-        target.tryCatchBlocks.clear();
-        target.localVariables = null;
+        Prewoven entry = prewoven.get(className);
         
-        InsnList insns = new InsnList();
+        // another loader may define a class of the same name, it is woven on its own
+        if (entry == null || !entry.isFor(loader)) return null;
         
-        insns.add(new VarInsnNode(Opcodes.ALOAD, 0)); // this (original class)
-        insns.add(new FieldInsnNode(
-            Opcodes.GETFIELD, // loads the injected __mixin field from the class
-            owner.name, // original class
-            mixinFieldName, // __mixin
-            Type.getDescriptor(mixinMethod.getDeclaringClass())
-        ));
+        // served once, a later retransformation weaves again
+        prewoven.remove(className, entry);
         
-        insns.add(new VarInsnNode(Opcodes.ALOAD, 0)); // this.__mixin
-        
-        Type[] targetArgs = Type.getArgumentTypes(target.desc);
-        int localIndex = 1;
+        return Arrays.equals(entry.original, classfile) ? entry.woven : null;
+    }
+    
+    private static WeakReference<ClassLoader> reference(ClassLoader loader) {
+        return loader == null ? null : new WeakReference<>(loader);
+    }
+    
+    /**
+     * Returns how many classes each tier of the target lookup rejected or matched.
+     */
+    public ClassFilter.Stats filterStats() {
+        return targets.stats();
+    }
+    
+    /**
+     * Returns the time, sizes and applied members of every class woven so far, sorted by class name.
+     */
+    public List<WeaveMetrics.Stats> weaveStats() {
+        return metrics.stats();
+    }
+    
+    /**
+     * Returns the problems found so far that did not fail a weave, see {@link WeaveMetrics#warn}.
+     */
+    public List<String> warnings() {
+        return metrics.warnings();
+    }
+    
+    /**
+     * Reports a problem that does not fail a weave, see {@link WeaveMetrics#warn}.
+     */
+    public void warn(String warning) {
+        metrics.warn(warning);
+    }
+    
+    /**
+     * Returns the conflicts between mixins of the same target, resolved by priority.
+     */
+    public List<String> conflicts() {
+        return conflicts;
+    }
+    
+    /**
+     * Returns the {@link net.echo.hypermixins.api.Access access changes} applied to the classes
+     * woven so far and the ones rejected, sorted.
+     */
+    public List<String> accessChanges() {
+        return accessChanges.stream().sorted().toList();
+    }
+    
+    private byte[] cached(byte[] classfile, List<MixinMapping> mappings, Supplier<WeaveCache.Entry> weave) {
+        WeaveCache.Entry woven;
         
-        for (Type t : targetArgs) {
-            // choose the right LOAD based on the type
-            insns.add(new VarInsnNode(t.getOpcode(Opcodes.ILOAD), localIndex));
-            localIndex += t.getSize();
+        if (cache == null) {
+            woven = weave.get();
+        } else {
+            byte[] key = cache.key(classfile, mappings);
+            woven = cache.get(key);
+            
+            if (woven != null) {
+                metrics.recordCacheHit(ClassHeader.read(classfile).name(), classfile.length, woven);
+            } else {
+                woven = weave.get();
+                
+                if (woven != null) cache.put(key, woven);
+            }
         }
         
-        insns.add(new MethodInsnNode(
-            Opcodes.INVOKEVIRTUAL,
-            Type.getInternalName(mixinMethod.getDeclaringClass()),
-            mixinMethod.getName(),
-            Type.getMethodDescriptor(mixinMethod),
-            false
-        ));
-        
-        Type returnType = Type.getReturnType(mixinMethod); // get the return type
-        insns.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN))); // choose the right RETURN based on the type
-        
-        target.instructions.add(insns);
+        return woven == null ? null : woven.woven();
     }
     
-    private static MethodNode cloneAsOriginal(MethodNode original) {
-        String newName = "__original$" + original.name + "$" + Integer.toHexString(original.desc.hashCode());
-        
-        int acc = (original.access & Opcodes.ACC_STATIC) != 0
-            ? (Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC)
-            : (Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC);
+    private WeaveCache.Entry transformMixin(ClassLoader loader, byte[] classfile, MixinMapping mapping) {
+        long start = System.nanoTime();
+        ClassReader reader = new ClassReader(classfile);
+        hierarchy.record(reader, loader);
         
-        MethodNode copy = new MethodNode(
-            acc,
-            newName,
-            original.desc,
-            original.signature,
-            original.exceptions == null ? null : original.exceptions.toArray(new String[0])
+        HierarchyClassWriter writer = new HierarchyClassWriter(
+            reader, // unchanged methods are copied as is from the reader
+            ClassWriter.COMPUTE_MAXS,
+            hierarchy,
+            loader
         );
+        long parsed = System.nanoTime();
+        reader.accept(new MixinClassVisitor(writer, mapping), 0);
+        long woven = System.nanoTime();
+        byte[] bytes = writer.toByteArray();
         
-        original.accept(copy);
-        return copy;
+        return record(reader, classfile, bytes, start, parsed, woven, 0, 0, List.of());
     }
     
-    private static void applyRedirects(MethodNode method, MixinMapping mapping) {
-        if (method.instructions == null) return;
+    private WeaveCache.Entry transformTarget(ClassLoader loader, byte[] classfile, TargetMapping mapping) {
+        long start = System.nanoTime();
+        ClassReader reader = new ClassReader(classfile);
+        hierarchy.record(reader, loader);
         
-        for (RedirectMapping redirect : mapping.redirects) {
-            // if it's not the method we are targeting forget
-            if (!method.name.equals(redirect.targetMethod())) continue;
-            
-            int invokeIndex = 0;
-            
-            for (AbstractInsnNode insn = method.instructions.getFirst();
-                 insn != null;
-                 insn = insn.getNext()) {
-                
-                if (!(insn instanceof MethodInsnNode mi)) continue;
-                
-                String invokeSig = mi.owner + "." + mi.name + mi.desc;
-                
-                if (!invokeSig.equals(redirect.invokeDesc())) continue; // check the signature
-                if (invokeIndex++ != redirect.index()) continue; // check the call index
-                
-                Call expected = getCall(redirect, mi);
-                
-                Method handler = redirect.handler();
-                
-                Type[] originalArgs = Type.getArgumentTypes(mi.desc);
-                Type originalReturn = Type.getReturnType(mi.desc);
-                
-                Type[] handlerArgs = Type.getArgumentTypes(Type.getMethodDescriptor(handler));
-                Type handlerReturn = Type.getReturnType(Type.getMethodDescriptor(handler));
-                
-                if (!handlerReturn.equals(originalReturn)) {
-                    throw new IllegalStateException("Return type mismatch in redirect handler");
-                }
-                
-                int expectedHandlerArgs = expected == Call.INVOKESTATIC
-                    ? originalArgs.length
-                    : originalArgs.length + 1;
-                
-                if (handlerArgs.length != expectedHandlerArgs) {
-                    throw new IllegalStateException("Argument count mismatch in redirect handler");
-                }
-                
-                if (expected == Call.INVOKEVIRTUAL) {
-                    Type receiver = Type.getObjectType(mi.owner);
-                    if (!handlerArgs[0].equals(receiver)) {
-                        throw new IllegalStateException("First handler argument must be receiver type");
-                    }
-                }
-                
-                MethodInsnNode replacement = new MethodInsnNode(
-                    Opcodes.INVOKESTATIC,
-                    Type.getInternalName(handler.getDeclaringClass()),
-                    handler.getName(),
-                    Type.getMethodDescriptor(handler),
-                    false
-                );
-                
-                method.instructions.set(mi, replacement);
-                break;
+        HierarchyClassWriter writer = new HierarchyClassWriter(
+            reader, // unchanged methods are copied as is from the reader
+            ClassWriter.COMPUTE_MAXS,
+            hierarchy,
+            loader
+        );
+        Map<String, Set<String>> subclasses = mapping.finalizes()
+            ? RuntimePackage.subclasses(hierarchy, loader, reader.getClassName())
+            : Map.of();
+        AccessChanges access = mapping.access.isEmpty() ? AccessChanges.NONE : AccessChanges.of(reader, mapping, subclasses);
+        TargetClassVisitor visitor = new TargetClassVisitor(writer, mapping, access);
+        long parsed = System.nanoTime();
+        reader.accept(visitor, 0);
+        long woven = System.nanoTime();
+        
+        accessChanges.addAll(access.applied());
+        access.rejected().forEach(this::reportAccess);
+        
+        // nothing to define, the members an exact target lacks are still reported
+        if (!visitor.changed()) {
+            if (!visitor.unmatched().isEmpty()) {
+                record(reader, classfile, classfile, start, parsed, woven, 0, 0, visitor.unmatched());
             }
+            
+            return null;
         }
+        
+        byte[] bytes = writer.toByteArray();
+        
+        return record(reader, classfile, bytes, start, parsed, woven, visitor.overwriteCount(), visitor.redirectCount(), visitor.unmatched());
+    }
+    
+    private void reportAccess(String problem) {
+        accessChanges.add(problem);
+        metrics.warn(problem);
     }
     
-    private static Call getCall(RedirectMapping redirect, MethodInsnNode mi) {
-        Call expected = redirect.call();
+    private WeaveCache.Entry record(
+        ClassReader reader,
+        byte[] classfile,
+        byte[] woven,
+        long start,
+        long parsed,
+        long visited,
+        int overwrites,
+        int redirects,
+        List<String> unmatched
+    ) {
+        metrics.recordWeave(new WeaveMetrics.Stats(
+            reader.getClassName().replace('/', '.'),
+            1,
+            0,
+            0,
+            parsed - start,
+            visited - parsed,
+            System.nanoTime() - visited,
+            classfile.length,
+            woven.length,
+            overwrites,
+            redirects,
+            List.copyOf(unmatched),
+            null
+        ));
         
-        if (expected == Call.INVOKESTATIC && mi.getOpcode() != Opcodes.INVOKESTATIC) {
-            throw new IllegalStateException("Expected INVOKESTATIC but found " + mi.getOpcode());
-        }
+        return new WeaveCache.Entry(woven, overwrites, redirects, List.copyOf(unmatched));
+    }
+    
+    /**
+     * @param loader the loader the class was prewoven for, {@code null} for the bootstrap class loader
+     */
+    private record Prewoven(WeakReference<ClassLoader> loader, byte[] original, byte[] woven) {
         
-        if (expected == Call.INVOKEVIRTUAL) {
-            if (mi.getOpcode() != Opcodes.INVOKEVIRTUAL && mi.getOpcode() != Opcodes.INVOKEINTERFACE) {
-                throw new IllegalStateException("Expected INVOKEVIRTUAL/INTERFACE but found " + mi.getOpcode());
-            }
+        private boolean isFor(ClassLoader other) {
+            return loader == null ? other == null : loader.get() == other;
         }
-        
-        return expected;
+    }
+    
+    /**
+     * The bytes a loaded class was defined with, and the woven bytes the JVM runs instead.
+     */
+    public record Applied(byte[] original, byte[] woven) {
     }
 }
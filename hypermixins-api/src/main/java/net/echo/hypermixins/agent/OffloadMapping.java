@@ -0,0 +1,11 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Offload;
+
+/**
+ * The {@link Offload} settings of an offloaded {@link RedirectMapping redirect}.
+ *
+ * @author xEcho1337
+ */
+public record OffloadMapping(String executor, int maxPending, Offload.Overflow overflow, boolean batch, boolean coalesce) {
+}
@@ -0,0 +1,315 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Offload;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime side of the {@link Offload offloaded} redirects.
+ * <p>
+ * Each offloaded call site is an {@code invokedynamic} bootstrapped by {@link #bootstrap}, bound
+ * for good to a {@link Site} that collects the arguments and submits the handler to its executor.
+ * The executor is looked up by name on every submission, so {@link #setExecutor} applies to the
+ * call sites already woven. A site counts its pending calls rather than bounding a queue, so an
+ * executor with an unbounded queue of its own is still kept within {@link Offload#maxPending()}.
+ * Sites belong to the woven class and go away with it.
+ *
+ * @author xEcho1337
+ */
+public final class Offloads {
+    
+    /**
+     * Flags of {@link #bootstrap}.
+     */
+    public static final int BATCH = 1;
+    public static final int COALESCE = 2;
+    
+    private static final ClassRegistry<Site> SITES = new ClassRegistry<>();
+    private static final ConcurrentMap<String, Executor> EXECUTORS = new ConcurrentHashMap<>();
+    private static final ThreadFactory VIRTUAL = Thread.ofVirtual().name("hypermixins-offload-", 0).factory();
+    private static final Executor VIRTUAL_PER_TASK = task -> VIRTUAL.newThread(task).start();
+    private static final MethodHandle SUBMIT;
+    
+    static {
+        try {
+            SUBMIT = MethodHandles.lookup().findVirtual(Site.class, "submit", MethodType.methodType(void.class, Object[].class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+    
+    private Offloads() {
+    }
+    
+    /**
+     * Bootstrap method of offloaded call sites, invoked by the JVM.
+     *
+     * @param lookup the lookup of the woven class
+     * @param name the name of the handler, unused
+     * @param type the type of the handler, returning {@code void}
+     * @param id the id of the redirect
+     * @param site the call site, unique among the sites of the redirect
+     * @param handler the handler to run on the executor
+     * @param executor the name of the executor
+     * @param maxPending the calls left waiting beyond which the overflow applies
+     * @param overflow the name of an {@link Offload.Overflow}
+     * @param flags {@link #BATCH} and {@link #COALESCE}
+     */
+    public static CallSite bootstrap(
+        MethodHandles.Lookup lookup,
+        String name,
+        MethodType type,
+        String id,
+        String site,
+        MethodHandle handler,
+        String executor,
+        int maxPending,
+        String overflow,
+        int flags
+    ) {
+        int arguments = type.parameterCount();
+        Site created = new Site(
+            id,
+            site,
+            handler.asSpreader(Object[].class, arguments).asType(MethodType.methodType(void.class, Object[].class)),
+            executor,
+            maxPending,
+            Offload.Overflow.valueOf(overflow),
+            (flags & (BATCH | COALESCE)) != 0,
+            (flags & COALESCE) != 0
+        );
+        
+        // a reweave replaces the site, calls still pending on the previous one run as they were
+        SITES.compute(lookup.lookupClass(), id + "@" + site, current -> created);
+        
+        MethodHandle target = SUBMIT.bindTo(created).asCollector(Object[].class, arguments);
+        return new ConstantCallSite(target.asType(type));
+    }
+    
+    /**
+     * Registers the executor running the call sites that ask for it by name, or restores the
+     * default one when {@code null}. Replacing the {@link Offload#DEFAULT_EXECUTOR default}
+     * executor also replaces it for every name that has no executor of its own.
+     */
+    public static void setExecutor(String name, Executor executor) {
+        if (executor == null) {
+            EXECUTORS.remove(name);
+        } else {
+            EXECUTORS.put(name, executor);
+        }
+    }
+    
+    /**
+     * Returns the counters of every offloaded call site that ran at least once, sorted by id.
+     */
+    public static List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>();
+        
+        for (Site site : SITES.values()) {
+            stats.add(new Stats(
+                site.id,
+                site.site,
+                site.submitted.sum(),
+                site.executed.sum(),
+                site.coalesced.sum(),
+                site.discarded.sum(),
+                site.failed.sum(),
+                site.pending.get()
+            ));
+        }
+        
+        stats.sort(Comparator.comparing(Stats::id).thenComparing(Stats::site));
+        return stats;
+    }
+    
+    private static Executor executor(String name) {
+        Executor executor = EXECUTORS.get(name);
+        
+        if (executor == null) executor = EXECUTORS.get(Offload.DEFAULT_EXECUTOR);
+        
+        return Objects.requireNonNullElse(executor, VIRTUAL_PER_TASK);
+    }
+    
+    /**
+     * One offloaded call site. Plain sites submit one task per call, batching sites queue the
+     * calls and keep a single task draining them, coalescing sites only keep the latest call.
+     */
+    private static final class Site {
+        
+        private final String id;
+        private final String site;
+        private final MethodHandle handler; // (Object[])V
+        private final String executor;
+        private final int maxPending;
+        private final Offload.Overflow overflow;
+        private final boolean batch;
+        private final boolean coalesce;
+        
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Queue<Object[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Object[]> latest = new AtomicReference<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder discarded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        
+        private Site(
+            String id,
+            String site,
+            MethodHandle handler,
+            String executor,
+            int maxPending,
+            Offload.Overflow overflow,
+            boolean batch,
+            boolean coalesce
+        ) {
+            this.id = id;
+            this.site = site;
+            this.handler = handler;
+            this.executor = executor;
+            this.maxPending = maxPending;
+            this.overflow = overflow;
+            this.batch = batch;
+            this.coalesce = coalesce;
+        }
+        
+        private void submit(Object[] args) {
+            submitted.increment();
+            
+            if (coalesce) {
+                // the call waiting so far is superseded, only one is ever pending
+                if (latest.getAndSet(args) != null) {
+                    coalesced.increment();
+                } else {
+                    pending.incrementAndGet();
+                }
+                
+                schedule();
+                return;
+            }
+            
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                overflow(args);
+                return;
+            }
+            
+            if (batch) {
+                queue.add(args);
+                schedule();
+                return;
+            }
+            
+            try {
+                executor(executor).execute(() -> {
+                    pending.decrementAndGet();
+                    run(args);
+                });
+            } catch (RejectedExecutionException ex) {
+                pending.decrementAndGet();
+                discarded.increment();
+            }
+        }
+        
+        private void overflow(Object[] args) {
+            if (overflow == Offload.Overflow.CALLER_RUNS) {
+                run(args);
+            } else {
+                discarded.increment();
+            }
+        }
+        
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            
+            try {
+                executor(executor).execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                scheduled.set(false);
+                
+                for (Object[] args = next(); args != null; args = next()) {
+                    discarded.increment();
+                }
+            }
+        }
+        
+        private void drain() {
+            do {
+                for (Object[] args = next(); args != null; args = next()) {
+                    run(args);
+                }
+                
+                // checked again after the reset, a call made in between would be left behind otherwise
+                scheduled.set(false);
+            } while (hasNext() && scheduled.compareAndSet(false, true));
+        }
+        
+        private Object[] next() {
+            Object[] args = coalesce ? latest.getAndSet(null) : queue.poll();
+            
+            if (args != null) pending.decrementAndGet();
+            
+            return args;
+        }
+        
+        private boolean hasNext() {
+            return coalesce ? latest.get() != null : !queue.isEmpty();
+        }
+        
+        private void run(Object[] args) {
+            try {
+                handler.invokeExact(args);
+                executed.increment();
+            } catch (Throwable t) {
+                failed.increment();
+                new IllegalStateException("Offloaded call of " + id + " failed", t).printStackTrace(System.err);
+            }
+        }
+    }
+    
+    /**
+     * Counters of an offloaded call site.
+     *
+     * @param id the id of the redirect, in the form {@code mixin.Class#handler}
+     * @param site the call site, in the form {@code target.Class.method(desc)#occurrence}
+     * @param submitted calls made by the call site
+     * @param executed calls the handler completed
+     * @param coalesced calls superseded by a later one before they ran
+     * @param discarded calls dropped by a full site or rejected by the executor
+     * @param failed calls the handler threw from
+     * @param pending calls waiting to run
+     */
+    public record Stats(
+        String id,
+        String site,
+        long submitted,
+        long executed,
+        long coalesced,
+        long discarded,
+        long failed,
+        int pending
+    ) {
+    }
+}
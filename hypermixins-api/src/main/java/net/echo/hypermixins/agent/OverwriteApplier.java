@@ -0,0 +1,638 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Weaves {@link net.echo.hypermixins.api.Overwrite Overwrites}, keeping each original body
+ * under a synthetic name for {@link net.echo.hypermixins.api.Original} calls.
+ * <p>
+ * A {@link MixinMapping#stateless stateless} mixin is shared by the whole class through a static
+ * final field initialized in {@code <clinit>}, a stateful one lives in an instance field allocated
+ * by the first overwrite that runs. A static overwrite calls the mixin directly and needs neither.
+ * <p>
+ * An {@link net.echo.hypermixins.api.Overwrite#inline() inline} overwrite copies the mixin
+ * bytecode into the target when everything it references is accessible from there.
+ *
+ * @author xEcho1337
+ */
+final class OverwriteApplier {
+    
+    private final TargetClass target;
+    private final Map<MixinMapping, Holder> holders = new LinkedHashMap<>();
+    private final List<MethodNode> originals = new ArrayList<>();
+    private int overwriteCount;
+    
+    OverwriteApplier(TargetClass target) {
+        this.target = target;
+        
+        TargetMapping mapping = target.mapping();
+        
+        // only instance overwrite trampolines dispatch through a mixin instance, static ones call the mixin directly
+        for (MixinMapping mixin : mapping.mixins) {
+            if (mapping.overwrites.containsValue(mixin)) {
+                boolean dispatched = mapping.overwrites.entrySet().stream()
+                    .anyMatch(entry -> entry.getValue() == mixin && !mixin.staticOverwrites.contains(entry.getKey()));
+                
+                holders.put(mixin, new Holder(mixin, dispatched));
+            }
+        }
+    }
+    
+    /**
+     * Returns whether an instance overwrite dispatches to a stateless mixin, which the static initializer may create.
+     */
+    boolean dispatchesStateless() {
+        return holders.values().stream().anyMatch(holder -> holder.dispatched && holder.mapping.stateless);
+    }
+    
+    /**
+     * Returns whether a woven overwrite dispatched to a stateless mixin, the static initializer must create it.
+     */
+    boolean usesStateless() {
+        return holders.values().stream().anyMatch(holder -> holder.used && holder.mapping.stateless);
+    }
+    
+    /**
+     * Returns how many methods were overwritten, once the class was visited.
+     */
+    int overwriteCount() {
+        return overwriteCount;
+    }
+    
+    /**
+     * @param changed whether the body was already rewritten, e.g. by a redirect
+     */
+    void apply(MethodNode method, MixinMapping overwrite, boolean changed) {
+        String key = method.name + method.desc;
+        Holder holder = holders.get(overwrite);
+        
+        if (overwrite.staticOverwrites.contains(key) != ((method.access & Opcodes.ACC_STATIC) != 0)) {
+            throw new IllegalStateException(
+                "@Overwrite " + overwrite.overwrites.get(key) + " must be " + (overwrite.staticOverwrites.contains(key) ? "an instance" : "a static")
+                    + " method like " + target.owner() + "." + key
+            );
+        }
+        
+        originals.add(target.withFrames(cloneAsOriginal(method), changed));
+        
+        // overwrite = replace BODY, not symbol
+        if (target.mapping().isInlined(key) && isInlinable(holder, overwrite.overwrites.get(key))) {
+            applyInline(method, holder, overwrite.overwrites.get(key));
+        } else {
+            applyOverwrite(method, holder, overwrite.overwrites.get(key));
+        }
+        
+        overwriteCount++;
+    }
+    
+    /**
+     * Adds the holders of the mixins dispatched to and the original methods, once every method was woven.
+     *
+     * @param hasClinit whether the class declares a static initializer, which created the stateless mixins
+     */
+    void addMembers(ClassVisitor cv, boolean hasClinit) {
+        for (Holder holder : holders.values()) {
+            addMixinHolder(cv, holder);
+        }
+        
+        InsnList init = newMixinStatics();
+        
+        if (!hasClinit && init.size() > 0) {
+            MethodNode clinit = new MethodNode(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+            
+            clinit.instructions.add(init);
+            clinit.instructions.add(new InsnNode(Opcodes.RETURN));
+            clinit.accept(cv);
+        }
+        
+        // adds the original methods to the class
+        for (MethodNode orig : originals) {
+            if (target.addMethod(orig.name + orig.desc)) { // avoids multiple methods with the same signature
+                orig.accept(cv);
+            }
+        }
+    }
+    
+    private void addMixinHolder(ClassVisitor cv, Holder holder) {
+        if (!holder.used) return;
+        
+        if (holder.mapping.stateless) {
+            // one shared instance, constant for the JIT
+            if (!target.hasField(holder.field)) {
+                cv.visitField(
+                    Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC,
+                    holder.field,
+                    holder.desc,
+                    null,
+                    null
+                ).visitEnd();
+            }
+            
+            return;
+        }
+        
+        if (!target.hasField(holder.field)) {
+            // volatile so the lazily created instance is safely published
+            cv.visitField(
+                Opcodes.ACC_PRIVATE | Opcodes.ACC_VOLATILE | Opcodes.ACC_SYNTHETIC,
+                holder.field,
+                holder.desc,
+                null,
+                null
+            ).visitEnd();
+        }
+        
+        if (target.addMethod(holder.init + "()" + holder.desc)) {
+            target.withFrames(newMixinInit(holder), true).accept(cv);
+        }
+    }
+    
+    /**
+     * Returns the creation of the stateless mixins dispatched to, for the static initializer.
+     */
+    InsnList newMixinStatics() {
+        InsnList insns = new InsnList();
+        
+        for (Holder holder : holders.values()) {
+            if (!holder.used || !holder.mapping.stateless) continue;
+            
+            insns.add(new TypeInsnNode(Opcodes.NEW, holder.name));
+            insns.add(new InsnNode(Opcodes.DUP));
+            insns.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, holder.name, "<init>", "()V", false));
+            insns.add(new FieldInsnNode(Opcodes.PUTSTATIC, target.owner(), holder.field, holder.desc));
+        }
+        
+        return insns;
+    }
+    
+    private MethodNode newMixinInit(Holder holder) {
+        // slow path of the lazy allocation, published with a compare and set so every caller sees the same instance
+        MethodNode init = new MethodNode(
+            Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC,
+            holder.init,
+            "()" + holder.desc,
+            null,
+            null
+        );
+        
+        LabelNode initialized = new LabelNode();
+        InsnList insns = init.instructions;
+        
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 0));
+        insns.add(new FieldInsnNode(Opcodes.GETFIELD, target.owner(), holder.field, holder.desc));
+        insns.add(new VarInsnNode(Opcodes.ASTORE, 1));
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 1));
+        insns.add(new JumpInsnNode(Opcodes.IFNONNULL, initialized));
+        
+        insns.add(new TypeInsnNode(Opcodes.NEW, holder.name));
+        insns.add(new InsnNode(Opcodes.DUP));
+        insns.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, holder.name, "<init>", "()V", false));
+        insns.add(new VarInsnNode(Opcodes.ASTORE, 1));
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 0));
+        insns.add(new InsnNode(Opcodes.ACONST_NULL));
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 1));
+        insns.add(new InvokeDynamicInsnNode(
+            holder.field,
+            "(" + Type.getObjectType(target.owner()).getDescriptor() + holder.desc + holder.desc + ")Z",
+            Bytecode.bootstrap(MixinInstances.class)
+        ));
+        insns.add(new JumpInsnNode(Opcodes.IFNE, initialized));
+        
+        // another thread published its instance first
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 0));
+        insns.add(new FieldInsnNode(Opcodes.GETFIELD, target.owner(), holder.field, holder.desc));
+        insns.add(new VarInsnNode(Opcodes.ASTORE, 1));
+        
+        insns.add(initialized);
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 1));
+        insns.add(new InsnNode(Opcodes.ARETURN));
+        
+        return init;
+    }
+    
+    private InsnList loadMixin(Holder holder) {
+        // an interface can neither have instance fields nor private static ones
+        if (target.isInterface()) {
+            throw new IllegalStateException("Interface " + target.owner() + " cannot hold an instance of " + holder.name
+                + ", its overwrites can only be static");
+        }
+        
+        if (!holder.mapping.stateless) {
+            target.checkIndy("Mixins with instance state need");
+        }
+        
+        InsnList insns = new InsnList();
+        holder.used = true;
+        
+        if (holder.mapping.stateless) {
+            insns.add(new FieldInsnNode(Opcodes.GETSTATIC, target.owner(), holder.field, holder.desc));
+            return insns;
+        }
+        
+        LabelNode loaded = new LabelNode();
+        
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 0)); // this (original class)
+        insns.add(new FieldInsnNode(
+            Opcodes.GETFIELD, // loads the injected __mixin field from the class
+            target.owner(), // original class
+            holder.field, // __mixin
+            holder.desc
+        ));
+        insns.add(new InsnNode(Opcodes.DUP));
+        insns.add(new JumpInsnNode(Opcodes.IFNONNULL, loaded));
+        
+        // first call on this instance, allocate the mixin
+        insns.add(new InsnNode(Opcodes.POP));
+        insns.add(new VarInsnNode(Opcodes.ALOAD, 0));
+        insns.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, target.owner(), holder.init, "()" + holder.desc, false));
+        insns.add(loaded);
+        
+        return insns;
+    }
+    
+    private void applyOverwrite(MethodNode method, Holder holder, MethodRef mixinMethod) {
+        method.instructions.clear();
+        method.tryCatchBlocks.clear();
+        method.localVariables = null;
+        
+        boolean isStatic = (method.access & Opcodes.ACC_STATIC) != 0;
+        InsnList insns = new InsnList();
+        int localIndex = 0;
+        
+        // a static overwrite is a plain static call, no mixin instance is involved
+        if (!isStatic) {
+            insns.add(loadMixin(holder)); // this.__mixin
+            insns.add(new VarInsnNode(Opcodes.ALOAD, 0)); // this (original class)
+            localIndex = 1;
+        }
+        
+        Type[] targetArgs = Type.getArgumentTypes(method.desc);
+        
+        for (Type t : targetArgs) {
+            // choose the right LOAD based on the type
+            insns.add(new VarInsnNode(t.getOpcode(Opcodes.ILOAD), localIndex));
+            localIndex += t.getSize();
+        }
+        
+        insns.add(new MethodInsnNode(
+            isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL,
+            mixinMethod.owner(),
+            mixinMethod.name(),
+            mixinMethod.desc(),
+            false
+        ));
+        
+        Type returnType = Type.getReturnType(mixinMethod.desc()); // get the return type
+        insns.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN))); // choose the right RETURN based on the type
+        
+        method.instructions.add(insns);
+    }
+    
+    private void applyInline(MethodNode method, Holder holder, MethodRef mixinMethod) {
+        MethodNode source = mixinMethod(holder, mixinMethod);
+        boolean isStatic = (source.access & Opcodes.ACC_STATIC) != 0;
+        Frame<SourceValue>[] frames = ThisInterpreter.analyze(holder.name, source);
+        
+        // loads of the mixin 'this' that are only the receiver of an @Original call
+        Set<AbstractInsnNode> receivers = new HashSet<>();
+        // loads of the mixin 'this' that are the receiver of a shadow access, they are the target 'this' already
+        Set<AbstractInsnNode> shadowReceivers = new HashSet<>();
+        // loads of 'self' passed to an @Original call, dropped instead of spilling the args
+        Set<AbstractInsnNode> selfLoads = new HashSet<>();
+        Set<MethodInsnNode> spilled = new HashSet<>();
+        AbstractInsnNode[] insns = source.instructions.toArray();
+        
+        for (int i = 0; i < insns.length; i++) {
+            ShadowMapping shadow = holder.mapping.shadowOf(insns[i]);
+            
+            if (shadow != null && !shadow.isStatic() && isStatic) {
+                throw new IllegalStateException("@Shadow " + shadow.key() + " is an instance member, used in static @Overwrite " + mixinMethod);
+            }
+            
+            if (shadow != null && !shadow.isStatic() && frames[i] != null) {
+                ThisInterpreter.addReceivers(shadow, insns[i], frames[i], shadowReceivers);
+            }
+            
+            // static originals have no receiver nor self, they are called as they are
+            if (!(insns[i] instanceof MethodInsnNode mi) || !isOriginalCall(holder, mi) || mi.getOpcode() == Opcodes.INVOKESTATIC) continue;
+            
+            Frame<SourceValue> frame = frames[i];
+            
+            if (frame == null) continue; // unreachable
+            
+            int argc = Type.getArgumentTypes(mi.desc).length;
+            SourceValue receiver = frame.getStack(frame.getStackSize() - argc - 1);
+            SourceValue self = frame.getStack(frame.getStackSize() - argc);
+            
+            for (AbstractInsnNode producer : receiver.insns) {
+                if (producer.getOpcode() != Opcodes.ALOAD || ((VarInsnNode) producer).var != 0) {
+                    throw new IllegalStateException("@Original must be called directly on this in inline @Overwrite " + mixinMethod);
+                }
+                
+                receivers.add(producer);
+            }
+            
+            if (self.insns.stream().allMatch(p -> p.getOpcode() == Opcodes.ALOAD)) {
+                selfLoads.addAll(self.insns);
+            } else {
+                spilled.add(mi);
+            }
+        }
+        
+        for (int i = 0; i < insns.length; i++) {
+            int opcode = insns[i].getOpcode();
+            
+            // a receiver or self that is also duplicated would be used elsewhere
+            if (opcode >= Opcodes.DUP && opcode <= Opcodes.SWAP && frames[i] != null) {
+                Frame<SourceValue> frame = frames[i];
+                
+                for (int depth = 1; depth <= Math.min(4, frame.getStackSize()); depth++) {
+                    for (AbstractInsnNode producer : frame.getStack(frame.getStackSize() - depth).insns) {
+                        if (receivers.contains(producer) || selfLoads.contains(producer)) {
+                            throw new IllegalStateException("Unsupported use of this in inline @Overwrite " + mixinMethod);
+                        }
+                    }
+                }
+            }
+        }
+        
+        // mixin locals: 0 = mixin, 1 = self, 2.. = args, target locals: 0 = this, 1.. = args
+        // a static mixin method has the locals of the static target already
+        int shift = isStatic ? 0 : 1;
+        int spill = source.maxLocals - 1;
+        
+        for (AbstractInsnNode insn : insns) {
+            switch (insn) {
+                case VarInsnNode var when selfLoads.contains(var) -> source.instructions.remove(var);
+                case VarInsnNode var when !isStatic && var.var == 0 -> {
+                    if (var.getOpcode() != Opcodes.ALOAD) {
+                        throw new IllegalStateException("Inline @Overwrite cannot reassign this: " + mixinMethod);
+                    }
+                    
+                    if (!receivers.contains(var) && !shadowReceivers.contains(var)) {
+                        source.instructions.insert(var, loadMixin(holder));
+                        source.instructions.remove(var);
+                    }
+                }
+                case VarInsnNode var -> var.var -= shift;
+                case IincInsnNode iinc -> iinc.var -= shift;
+                case MethodInsnNode mi when isOriginalCall(holder, mi) -> {
+                    source.instructions.insert(mi, callOriginal(holder, mi, spilled.contains(mi) ? spill : -1));
+                    source.instructions.remove(mi);
+                }
+                // shadow fields are plain field accesses once in the target
+                case FieldInsnNode fi when holder.mapping.shadowOf(fi) != null -> fi.owner = target.owner();
+                case MethodInsnNode mi when holder.mapping.shadowOf(mi) != null -> {
+                    source.instructions.set(mi, holder.mapping.shadowOf(mi).accessorCall(target.owner(), mi.getOpcode()));
+                }
+                // debug info of the mixin is meaningless in the target, frames are recomputed
+                case LineNumberNode line -> source.instructions.remove(line);
+                case FrameNode frame -> source.instructions.remove(frame);
+                default -> {
+                }
+            }
+        }
+        
+        method.instructions = source.instructions;
+        method.tryCatchBlocks = source.tryCatchBlocks;
+        method.localVariables = null;
+        method.visibleLocalVariableAnnotations = null;
+        method.invisibleLocalVariableAnnotations = null;
+    }
+    
+    private InsnList callOriginal(Holder holder, MethodInsnNode mi, int spill) {
+        InsnList insns = new InsnList();
+        String targetName = holder.mapping.originals.get(mi.name + mi.desc);
+        
+        if (mi.getOpcode() == Opcodes.INVOKESTATIC) {
+            // the arguments of a static original are the ones of the static target
+            insns.add(new MethodInsnNode(Opcodes.INVOKESTATIC, target.owner(), MixinMapping.originalName(targetName, mi.desc), mi.desc, false));
+            return insns;
+        }
+        
+        Type[] args = Type.getArgumentTypes(mi.desc);
+        Type[] targetArgs = Arrays.copyOfRange(args, 1, args.length);
+        String targetDesc = Type.getMethodDescriptor(Type.getReturnType(mi.desc), targetArgs);
+        
+        // when self was never pushed the stack is already [this, args...]
+        if (spill >= 0) {
+            int[] slots = new int[targetArgs.length];
+            
+            for (int i = 0; i < targetArgs.length; i++) {
+                slots[i] = spill;
+                spill += targetArgs[i].getSize();
+            }
+            
+            // stack is [this, self, args...], park the args to drop self
+            for (int i = targetArgs.length - 1; i >= 0; i--) {
+                insns.add(new VarInsnNode(targetArgs[i].getOpcode(Opcodes.ISTORE), slots[i]));
+            }
+            
+            insns.add(new InsnNode(Opcodes.POP));
+            
+            for (int i = 0; i < targetArgs.length; i++) {
+                insns.add(new VarInsnNode(targetArgs[i].getOpcode(Opcodes.ILOAD), slots[i]));
+            }
+        }
+        
+        insns.add(new MethodInsnNode(
+            Opcodes.INVOKEVIRTUAL,
+            target.owner(),
+            MixinMapping.originalName(targetName, targetDesc),
+            targetDesc,
+            false
+        ));
+        
+        return insns;
+    }
+    
+    private static boolean isOriginalCall(Holder holder, MethodInsnNode mi) {
+        return mi.owner.equals(holder.name) && holder.mapping.originals.containsKey(mi.name + mi.desc);
+    }
+    
+    /**
+     * Returns whether the body of a mixin method can run inside the target. It was compiled to
+     * run in the package of the mixin, so it can only be copied if everything it references is
+     * accessible from the package of the target as well, otherwise the overwrite is left as a
+     * trampoline to the mixin.
+     */
+    private boolean isInlinable(Holder holder, MethodRef mixinMethod) {
+        MethodNode source = mixinMethod(holder, mixinMethod);
+        
+        for (AbstractInsnNode insn : source.instructions) {
+            boolean accessible = switch (insn) {
+                case MethodInsnNode mi when isOriginalCall(holder, mi) || holder.mapping.shadowOf(mi) != null -> true;
+                case FieldInsnNode fi when holder.mapping.shadowOf(fi) != null -> true;
+                // a super call only resolves in a subclass of its owner
+                case MethodInsnNode mi when mi.getOpcode() == Opcodes.INVOKESPECIAL && !mi.name.equals("<init>") -> false;
+                case MethodInsnNode mi -> isAccessible(holder, mi.owner, mi.name + mi.desc);
+                case FieldInsnNode fi -> isAccessible(holder, fi.owner, fi.name + ":" + fi.desc);
+                case TypeInsnNode ti -> isAccessible(holder, ti.desc, null);
+                case MultiANewArrayInsnNode array -> isAccessible(holder, array.desc, null);
+                case LdcInsnNode ldc when ldc.cst instanceof Type type && type.getSort() != Type.METHOD -> isAccessible(holder, type.getInternalName(), null);
+                case InvokeDynamicInsnNode indy -> Arrays.stream(indy.bsmArgs)
+                    .allMatch(arg -> !(arg instanceof Handle handle) || isAccessible(holder, handle.getOwner(), handle.getName()
+                        + (handle.getTag() <= Opcodes.H_PUTSTATIC ? ":" : "") + handle.getDesc()));
+                default -> true;
+            };
+            
+            if (!accessible) return false;
+        }
+        
+        return source.tryCatchBlocks.stream().allMatch(block -> block.type == null || isAccessible(holder, block.type, null));
+    }
+    
+    /**
+     * @param member {@code name:desc} for a field, name and descriptor for a method, {@code null} for the type alone
+     */
+    private boolean isAccessible(Holder holder, String type, String member) {
+        // arrays are as accessible as their element type
+        if (type.startsWith("[")) {
+            Type element = Type.getType(type).getElementType();
+            
+            if (element.getSort() != Type.OBJECT) return true;
+            
+            type = element.getInternalName();
+        }
+        
+        if (type.equals(target.owner())) return true;
+        
+        boolean samePackage = packageOf(type).equals(packageOf(target.owner()));
+        
+        if (type.equals(holder.name)) {
+            if (member == null) return samePackage || (holder.node.access & Opcodes.ACC_PUBLIC) != 0;
+            
+            // an inherited member may be protected, its flags are not known here
+            Integer access = memberAccess(holder.node, member);
+            
+            if (access == null || (access & Opcodes.ACC_PRIVATE) != 0) return false;
+            
+            return samePackage || (holder.node.access & access & Opcodes.ACC_PUBLIC) != 0;
+        }
+        
+        // the private members of a nestmate of the mixin are only accessible from the nest
+        if (type.startsWith(topLevel(holder.name) + "$")) return samePackage && member == null;
+        
+        // javac let the mixin reach public types and members only, outside of its own package
+        return samePackage || !packageOf(type).equals(packageOf(holder.name));
+    }
+    
+    private static Integer memberAccess(ClassNode node, String member) {
+        int colon = member.indexOf(':');
+        
+        if (colon >= 0) {
+            String name = member.substring(0, colon);
+            String desc = member.substring(colon + 1);
+            
+            return node.fields.stream()
+                .filter(f -> f.name.equals(name) && f.desc.equals(desc))
+                .map(f -> f.access)
+                .findFirst()
+                .orElse(null);
+        }
+        
+        return node.methods.stream()
+            .filter(m -> member.equals(m.name + m.desc))
+            .map(m -> m.access)
+            .findFirst()
+            .orElse(null);
+    }
+    
+    private static String packageOf(String type) {
+        int slash = type.lastIndexOf('/');
+        return slash < 0 ? "" : type.substring(0, slash);
+    }
+    
+    private static String topLevel(String type) {
+        int dollar = type.indexOf('$', type.lastIndexOf('/') + 1);
+        return dollar < 0 ? type : type.substring(0, dollar);
+    }
+    
+    private static MethodNode mixinMethod(Holder holder, MethodRef mixinMethod) {
+        if (holder.node == null) {
+            holder.node = new ClassNode();
+            new ClassReader(holder.mapping.mixinBytes()).accept(holder.node, 0);
+        }
+        
+        return holder.node.methods.stream()
+            .filter(m -> m.name.equals(mixinMethod.name()) && m.desc.equals(mixinMethod.desc()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Missing bytecode of inline @Overwrite " + mixinMethod));
+    }
+    
+    private static MethodNode cloneAsOriginal(MethodNode original) {
+        String newName = MixinMapping.originalName(original.name, original.desc);
+        
+        int acc = (original.access & Opcodes.ACC_STATIC) != 0
+            ? (Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC)
+            : (Opcodes.ACC_PUBLIC | Opcodes.ACC_SYNTHETIC);
+        
+        MethodNode copy = new MethodNode(
+            acc,
+            newName,
+            original.desc,
+            original.signature,
+            original.exceptions == null ? null : original.exceptions.toArray(new String[0])
+        );
+        
+        original.accept(copy);
+        return copy;
+    }
+    
+    /**
+     * Where the target keeps the instance of one of its mixins, if it needs one.
+     */
+    private static final class Holder {
+        
+        private final MixinMapping mapping;
+        private final String name;
+        private final String desc;
+        private final String field;
+        private final String init;
+        
+        private final boolean dispatched; // false when every overwrite is static, the target keeps no instance
+        private boolean used; // an overwrite of this class dispatched to the mixin
+        
+        private ClassNode node; // parsed on the first inline overwrite
+        
+        private Holder(MixinMapping mapping, boolean dispatched) {
+            this.mapping = mapping;
+            this.dispatched = dispatched;
+            this.name = mapping.mixinName;
+            this.desc = Type.getObjectType(mapping.mixinName).getDescriptor();
+            this.field = "__mixin$" + mapping.mixinName.replace('/', '$');
+            this.init = "__mixin$init$" + mapping.mixinName.replace('/', '$');
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+import java.lang.invoke.MethodHandle;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Weaves {@link net.echo.hypermixins.api.Redirect Redirects}, replacing the matched instruction
+ * with a static call of the handler, or with a {@link DynamicRedirects dynamic} or
+ * {@link Offloads offloaded} call site.
+ *
+ * @author xEcho1337
+ */
+final class RedirectApplier {
+    
+    private final TargetClass target;
+    private final Set<RedirectMapping> redirected = new HashSet<>();
+    private int redirectCount;
+    
+    RedirectApplier(TargetClass target) {
+        this.target = target;
+    }
+    
+    /**
+     * Returns whether the redirect replaced anything, once the class was visited.
+     */
+    boolean redirected(RedirectMapping redirect) {
+        return redirected.contains(redirect);
+    }
+    
+    /**
+     * Returns how many instructions were redirected, once the class was visited.
+     */
+    int redirectCount() {
+        return redirectCount;
+    }
+    
+    boolean apply(MethodNode method) {
+        RedirectIndex index = target.mapping().redirectIndex;
+        Map<String, List<RedirectIndex.Site>> sites = index.sites(method.name);
+        
+        // if it's not a method we are targeting forget
+        if (sites == null || method.instructions == null) return false;
+        
+        int[] occurrences = new int[index.siteCount(method.name)];
+        boolean changed = false;
+        
+        for (AbstractInsnNode insn = method.instructions.getFirst();
+             insn != null;
+             insn = insn.getNext()) {
+            
+            String insnOwner;
+            String insnName;
+            String insnDesc;
+            
+            switch (insn) {
+                case MethodInsnNode mi -> {
+                    insnOwner = mi.owner;
+                    insnName = mi.name;
+                    insnDesc = mi.desc;
+                }
+                case FieldInsnNode fi -> {
+                    insnOwner = fi.owner;
+                    insnName = fi.name;
+                    insnDesc = fi.desc;
+                }
+                default -> {
+                    continue;
+                }
+            }
+            
+            List<RedirectIndex.Site> candidates = sites.get(insnName);
+            
+            if (candidates == null) continue;
+            
+            // only constructor calls of a new expression are matched, not this() or super()
+            TypeInsnNode created = insnName.equals("<init>") ? findNew(insn) : null;
+            
+            if (insnName.equals("<init>") && created == null) continue;
+            
+            boolean store = insn.getOpcode() == Opcodes.PUTFIELD || insn.getOpcode() == Opcodes.PUTSTATIC;
+            
+            for (RedirectIndex.Site site : candidates) {
+                // check the signature
+                if (!site.owner().equals(insnOwner) || !site.desc().equals(insnDesc) || site.store() != store) continue;
+                
+                RedirectIndex.Entry entry = site.match(occurrences[site.slot()]++); // check the call index
+                
+                if (entry == null) break;
+                
+                RedirectMapping redirect = entry.redirect();
+                checkCall(redirect, insn);
+                
+                if (created != null) {
+                    // the handler builds the object, only the constructor arguments are left on the stack
+                    if (created.getNext().getOpcode() != Opcodes.DUP) {
+                        throw new IllegalStateException("Unsupported new " + created.desc + " without dup in " + target.owner() + "." + method.name);
+                    }
+                    
+                    method.instructions.remove(created.getNext());
+                    method.instructions.remove(created);
+                }
+                
+                AbstractInsnNode replacement = redirect.offload() != null
+                    ? offloadRedirect(redirect, method, occurrences[site.slot()] - 1)
+                    : redirect.dynamic()
+                    ? dynamicRedirect(redirect, insn, insnOwner, insnName, insnDesc)
+                    : new MethodInsnNode(
+                        Opcodes.INVOKESTATIC,
+                        entry.handlerOwner(),
+                        redirect.handler().name(),
+                        entry.handlerDesc(),
+                        false
+                    );
+                
+                method.instructions.set(insn, replacement);
+                insn = replacement;
+                redirected.add(redirect);
+                redirectCount++;
+                changed = true;
+                break;
+            }
+        }
+        
+        return changed;
+    }
+    
+    /**
+     * Returns the {@code new} of the object built by a constructor call, or {@code null} for
+     * a {@code this()} or {@code super()} call.
+     */
+    private static TypeInsnNode findNew(AbstractInsnNode init) {
+        String type = ((MethodInsnNode) init).owner;
+        int depth = 0;
+        
+        // walks back over the arguments, which may build objects of their own
+        for (AbstractInsnNode insn = init.getPrevious(); insn != null; insn = insn.getPrevious()) {
+            if (insn instanceof MethodInsnNode mi && mi.getOpcode() == Opcodes.INVOKESPECIAL && mi.name.equals("<init>")) {
+                depth++;
+            } else if (insn instanceof TypeInsnNode ti && ti.getOpcode() == Opcodes.NEW && depth-- == 0) {
+                return ti.desc.equals(type) ? ti : null;
+            }
+        }
+        
+        return null;
+    }
+    
+    private InvokeDynamicInsnNode dynamicRedirect(
+        RedirectMapping redirect,
+        AbstractInsnNode insn,
+        String insnOwner,
+        String insnName,
+        String insnDesc
+    ) {
+        target.checkIndy("Dynamic redirects need");
+        
+        MethodRef handler = redirect.handler();
+        
+        Handle original = new Handle(
+            switch (insn.getOpcode()) {
+                case Opcodes.INVOKESTATIC -> Opcodes.H_INVOKESTATIC;
+                case Opcodes.INVOKEINTERFACE -> Opcodes.H_INVOKEINTERFACE;
+                case Opcodes.INVOKESPECIAL -> insnName.equals("<init>") ? Opcodes.H_NEWINVOKESPECIAL : Opcodes.H_INVOKESPECIAL;
+                case Opcodes.GETFIELD -> Opcodes.H_GETFIELD;
+                case Opcodes.PUTFIELD -> Opcodes.H_PUTFIELD;
+                case Opcodes.GETSTATIC -> Opcodes.H_GETSTATIC;
+                case Opcodes.PUTSTATIC -> Opcodes.H_PUTSTATIC;
+                default -> Opcodes.H_INVOKEVIRTUAL;
+            },
+            insnOwner,
+            insnName,
+            insnDesc,
+            insn instanceof MethodInsnNode mi && mi.itf
+        );
+        
+        // the call site has the handler's type, so the stack is the same as the original invoke
+        return new InvokeDynamicInsnNode(
+            handler.name(),
+            handler.desc(),
+            Bytecode.bootstrap(
+                DynamicRedirects.class,
+                Type.getType(String.class),
+                Type.getType(MethodHandle.class),
+                Type.getType(MethodHandle.class)
+            ),
+            redirect.id(),
+            original,
+            handlerHandle(handler)
+        );
+    }
+    
+    private InvokeDynamicInsnNode offloadRedirect(RedirectMapping redirect, MethodNode method, int occurrence) {
+        target.checkIndy("Offloaded redirects need");
+        
+        MethodRef handler = redirect.handler();
+        OffloadMapping offload = redirect.offload();
+        int flags = (offload.batch() ? Offloads.BATCH : 0) | (offload.coalesce() ? Offloads.COALESCE : 0);
+        
+        // the handler returns void, the call site only pops the arguments like the original invoke
+        return new InvokeDynamicInsnNode(
+            handler.name(),
+            handler.desc(),
+            Bytecode.bootstrap(
+                Offloads.class,
+                Type.getType(String.class),
+                Type.getType(String.class),
+                Type.getType(MethodHandle.class),
+                Type.getType(String.class),
+                Type.INT_TYPE,
+                Type.getType(String.class),
+                Type.INT_TYPE
+            ),
+            redirect.id(),
+            target.owner().replace('/', '.') + "." + method.name + method.desc + "#" + occurrence,
+            handlerHandle(handler),
+            offload.executor(),
+            offload.maxPending(),
+            offload.overflow().name(),
+            flags
+        );
+    }
+    
+    private static Handle handlerHandle(MethodRef handler) {
+        return new Handle(Opcodes.H_INVOKESTATIC, handler.owner(), handler.name(), handler.desc(), false);
+    }
+    
+    private static void checkCall(RedirectMapping redirect, AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        
+        boolean matches = switch (redirect.call()) {
+            case INVOKEVIRTUAL -> opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKEINTERFACE;
+            case INVOKESTATIC -> opcode == Opcodes.INVOKESTATIC;
+            case INVOKESPECIAL, NEW -> opcode == Opcodes.INVOKESPECIAL;
+            case INVOKEINTERFACE -> opcode == Opcodes.INVOKEINTERFACE;
+            case GETFIELD -> opcode == Opcodes.GETFIELD;
+            case PUTFIELD -> opcode == Opcodes.PUTFIELD;
+            case GETSTATIC -> opcode == Opcodes.GETSTATIC;
+            case PUTSTATIC -> opcode == Opcodes.PUTSTATIC;
+        };
+        
+        if (!matches) {
+            throw new IllegalStateException(
+                "Expected " + redirect.call() + " but found opcode " + opcode + " for " + redirect.invokeDesc()
+            );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package net.echo.hypermixins.agent;
+
+import java.util.*;
+
+/**
+ * Precompiled lookup of the redirects of a mixin.
+ * <p>
+ * Redirects are grouped by target method name and then by invoked method or field name,
+ * so weaving a method is a single walk over its instructions where each invoke or field
+ * access costs one hash lookup on its name followed by an owner/descriptor comparison
+ * against the few candidates left. No key is built per instruction.
+ *
+ * @author xEcho1337
+ */
+public class RedirectIndex {
+    
+    private final Map<String, Map<String, List<Site>>> methods = new HashMap<>();
+    private final Map<String, Integer> siteCounts = new HashMap<>();
+    
+    public RedirectIndex(List<RedirectMapping> redirects) {
+        Map<String, MethodRef> switchable = new HashMap<>(); // id -> handler, for the redirects the runtime API reaches by id
+        
+        for (RedirectMapping redirect : redirects) {
+            if (redirect.dynamic() || redirect.offload() != null) {
+                MethodRef other = switchable.putIfAbsent(redirect.id(), redirect.handler());
+                
+                if (other != null && !other.equals(redirect.handler())) {
+                    throw new IllegalStateException(
+                        "Dynamic and offloaded @Redirect handlers cannot be overloaded, " + redirect.id()
+                            + " is declared with " + other.desc() + " and " + redirect.handler().desc()
+                    );
+                }
+            }
+            
+            String invoke = redirect.invokeDesc();
+            int paren = invoke.indexOf(redirect.isField() ? ':' : '(');
+            int dot = paren == -1 ? -1 : invoke.lastIndexOf('.', paren);
+            
+            if (dot == -1) {
+                throw new IllegalArgumentException("Invalid desc in @At, expected owner.name(desc) or owner.name:desc: " + invoke);
+            }
+            
+            String owner = invoke.substring(0, dot);
+            String name = invoke.substring(dot + 1, paren);
+            String desc = invoke.substring(redirect.isField() ? paren + 1 : paren);
+            boolean store = redirect.isStore();
+            
+            List<Site> candidates = methods
+                .computeIfAbsent(redirect.targetMethod(), k -> new HashMap<>())
+                .computeIfAbsent(name, k -> new ArrayList<>());
+            
+            Site site = candidates.stream()
+                .filter(s -> s.owner.equals(owner) && s.desc.equals(desc) && s.store == store)
+                .findFirst()
+                .orElse(null);
+            
+            if (site == null) {
+                int slot = siteCounts.merge(redirect.targetMethod(), 1, Integer::sum) - 1;
+                site = new Site(owner, desc, store, slot, new ArrayList<>());
+                candidates.add(site);
+            }
+            
+            for (Entry other : site.entries) {
+                if (other.redirect.overlaps(redirect)) {
+                    throw new IllegalStateException(
+                        "Overlapping @Redirect on " + invoke + " in " + redirect.targetMethod()
+                            + ": " + other.redirect.handler() + " and " + redirect.handler()
+                    );
+                }
+            }
+            
+            site.entries.add(new Entry(redirect, redirect.handler().owner(), redirect.handler().desc()));
+        }
+    }
+    
+    /**
+     * Returns whether any redirect targets a method with the given name.
+     */
+    public boolean targets(String method) {
+        return methods.containsKey(method);
+    }
+    
+    /**
+     * Returns the instructions redirected inside a method, keyed by invoked method or field
+     * name, or {@code null} if none is.
+     */
+    public Map<String, List<Site>> sites(String method) {
+        return methods.get(method);
+    }
+    
+    /**
+     * Number of distinct sites redirected inside a method, used to size the occurrence counters.
+     */
+    public int siteCount(String method) {
+        return siteCounts.getOrDefault(method, 0);
+    }
+    
+    /**
+     * A redirected instruction, i.e. one owner/name/descriptor triple inside one target method.
+     * Reads and writes of a field are separate sites, each with its own occurrences.
+     *
+     * @param desc the method descriptor, or the field descriptor
+     * @param store whether the site is a field write
+     * @param slot index of this site's occurrence counter within the target method
+     * @param entries redirects on this invoke, with non overlapping occurrence ranges
+     */
+    public record Site(String owner, String desc, boolean store, int slot, List<Entry> entries) {
+        
+        /**
+         * Returns the redirect covering the given occurrence of the instruction, if any.
+         */
+        public Entry match(int occurrence) {
+            for (Entry entry : entries) {
+                if (entry.covers(occurrence)) return entry;
+            }
+            
+            return null;
+        }
+    }
+    
+    /**
+     * A redirect with the handler data needed at each match already resolved.
+     */
+    public record Entry(RedirectMapping redirect, String handlerOwner, String handlerDesc) {
+        
+        boolean covers(int occurrence) {
+            // subtraction so At.ALL doesn't overflow
+            return occurrence >= redirect.index() && occurrence - redirect.index() < redirect.count();
+        }
+    }
+}
@@ -2,7 +2,63 @@ package net.echo.hypermixins.agent;
 
 import net.echo.hypermixins.api.Call;
 
-import java.lang.reflect.Method;
-
-public record RedirectMapping(String targetMethod, String invokeDesc, int index, Call call, Method handler) {
+public record RedirectMapping(
+    String targetMethod,
+    String invokeDesc,
+    int index,
+    int count,
+    Call call,
+    MethodRef handler,
+    boolean dynamic,
+    OffloadMapping offload // null unless the handler runs on an executor
+) {
+    
+    /**
+     * Id of the redirect used by the runtime API, in the form {@code mixin.Class#handler}. The
+     * handlers of dynamic and offloaded redirects are not overloaded, see {@link RedirectIndex}.
+     */
+    public String id() {
+        return handler.owner().replace('/', '.') + "#" + handler.name();
+    }
+    
+    /**
+     * Returns this redirect with its handler run on an executor.
+     */
+    public RedirectMapping offloaded(OffloadMapping offload) {
+        return new RedirectMapping(targetMethod, invokeDesc, index, count, call, handler, dynamic, offload);
+    }
+    
+    /**
+     * Returns whether the redirect replaces a field access rather than an invoke.
+     */
+    public boolean isField() {
+        return isField(call);
+    }
+    
+    /**
+     * Returns whether the redirect replaces a field write.
+     */
+    public boolean isStore() {
+        return call == Call.PUTFIELD || call == Call.PUTSTATIC;
+    }
+    
+    static boolean isField(Call call) {
+        return switch (call) {
+            case GETFIELD, PUTFIELD, GETSTATIC, PUTSTATIC -> true;
+            default -> false;
+        };
+    }
+    
+    /**
+     * Returns whether both redirects replace some same occurrence of the same instruction in the same method.
+     */
+    public boolean overlaps(RedirectMapping other) {
+        if (!targetMethod.equals(other.targetMethod) || !invokeDesc.equals(other.invokeDesc)) return false;
+        
+        if (isStore() != other.isStore()) return false;
+        
+        long start = Math.max(index, other.index);
+        long end = Math.min((long) index + count, (long) other.index + other.count);
+        return start < end;
+    }
 }
@@ -0,0 +1,130 @@
+package net.echo.hypermixins.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * The class files a loader ships for the runtime package of a class, listed to find every
+ * subclass the class can have before it is made final.
+ * <p>
+ * A non public class can only be extended, and a package private method only be overridden,
+ * from its own runtime package, so these are the only subclasses {@link AccessChanges} needs.
+ * The package is listed from every directory and jar its loader resolves it to, any other
+ * location, such as a module image or a custom URL scheme, leaves it unlistable. Classes
+ * defined without a class file, such as proxies, are not seen.
+ *
+ * @author xEcho1337
+ */
+final class RuntimePackage {
+    
+    private RuntimePackage() {
+    }
+    
+    /**
+     * Returns the classes of the package of a class that extend it, directly or not, with the
+     * methods they declare.
+     *
+     * @param loader the loader defining the class
+     * @param className the internal name of the class
+     * @return the subclasses by internal name, or {@code null} if the package cannot be listed
+     */
+    static Map<String, Set<String>> subclasses(ClassHierarchy hierarchy, ClassLoader loader, String className) {
+        Set<String> classes = list(loader, className);
+        
+        if (classes == null) return null;
+        
+        Map<String, Set<String>> subclasses = new TreeMap<>();
+        
+        for (String type : classes) {
+            List<String> superClasses = type.equals(className) ? null : hierarchy.superClasses(type, loader);
+            
+            // a class whose super classes cannot be found cannot be loaded either
+            if (superClasses == null || !superClasses.contains(className)) continue;
+            
+            byte[] classfile = read(loader, type);
+            
+            if (classfile != null) subclasses.put(type, AccessChanges.methods(classfile));
+        }
+        
+        return subclasses;
+    }
+    
+    private static Set<String> list(ClassLoader loader, String className) {
+        String pkg = className.substring(0, className.lastIndexOf('/') + 1);
+        Set<String> classes = new TreeSet<>();
+        
+        try {
+            URL own = loader != null ? loader.getResource(className + ".class") : ClassLoader.getSystemResource(className + ".class");
+            
+            if (own == null) return null;
+            
+            List<URL> roots = new ArrayList<>(List.of(own));
+            roots.addAll(Collections.list(loader != null ? loader.getResources(pkg) : ClassLoader.getSystemResources(pkg)));
+            
+            for (URL root : roots) {
+                if (!list(root, pkg, classes)) return null;
+            }
+        } catch (IOException | URISyntaxException ex) {
+            return null;
+        }
+        
+        return classes;
+    }
+    
+    private static boolean list(URL root, String pkg, Set<String> classes) throws IOException, URISyntaxException {
+        switch (root.getProtocol()) {
+            case "file" -> {
+                Path path = Path.of(root.toURI());
+                Path directory = Files.isDirectory(path) ? path : path.getParent();
+                
+                try (Stream<Path> files = Files.list(directory)) {
+                    files.map(file -> file.getFileName().toString())
+                        .filter(file -> file.endsWith(".class"))
+                        .forEach(file -> classes.add(pkg + file.substring(0, file.length() - ".class".length())));
+                }
+                
+                return true;
+            }
+            case "jar" -> {
+                JarURLConnection connection = (JarURLConnection) root.openConnection();
+                connection.setUseCaches(false);
+                
+                // versioned, a multi-release jar lists the entries of the running release
+                try (JarFile jar = connection.getJarFile()) {
+                    jar.versionedStream()
+                        .map(JarEntry::getName)
+                        .filter(entry -> entry.startsWith(pkg) && entry.endsWith(".class") && entry.indexOf('/', pkg.length()) < 0)
+                        .forEach(entry -> classes.add(entry.substring(0, entry.length() - ".class".length())));
+                }
+                
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+    
+    private static byte[] read(ClassLoader loader, String type) {
+        String resource = type + ".class";
+        
+        try (InputStream in = loader != null
+            ? loader.getResourceAsStream(resource)
+            : ClassLoader.getSystemResourceAsStream(resource)) {
+            
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
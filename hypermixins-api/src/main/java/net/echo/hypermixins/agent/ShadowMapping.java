@@ -0,0 +1,80 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+/**
+ * A target member declared in a mixin with {@link net.echo.hypermixins.api.Shadow}, reached
+ * through public static synthetic accessors that the target gets for it.
+ * <p>
+ * Instance accessors take the target instance as first argument and are static as well, so
+ * a woven subclass shadowing a member of the same name never overrides them.
+ *
+ * @param desc the field descriptor, or the method descriptor
+ * @author xEcho1337
+ */
+public record ShadowMapping(String name, String desc, boolean isStatic) {
+    
+    /**
+     * Key of the member in {@link MixinMapping#shadows}, {@code name:desc} for a field and
+     * {@code name + desc} for a method.
+     */
+    public String key() {
+        return isField() ? name + ":" + desc : name + desc;
+    }
+    
+    public boolean isField() {
+        return desc.charAt(0) != '(';
+    }
+    
+    /**
+     * Name of the accessor reading the field, or calling the method.
+     */
+    public String getter() {
+        return isField() ? "__shadow$get$" + name : "__shadow$" + name + "$" + Integer.toHexString(desc.hashCode());
+    }
+    
+    /**
+     * Name of the accessor writing the field.
+     */
+    public String setter() {
+        return "__shadow$set$" + name;
+    }
+    
+    /**
+     * Descriptor of the getter of a field or of the accessor of a method.
+     *
+     * @param owner internal name of the target class
+     */
+    public String getterDesc(String owner) {
+        String self = isStatic ? "" : "L" + owner + ";";
+        return isField() ? "(" + self + ")" + desc : "(" + self + desc.substring(1);
+    }
+    
+    /**
+     * Descriptor of the setter of a field.
+     *
+     * @param owner internal name of the target class
+     */
+    public String setterDesc(String owner) {
+        return "(" + (isStatic ? "" : "L" + owner + ";") + desc + ")V";
+    }
+    
+    /**
+     * Call to the accessor replacing a field or method instruction on this member, with the same
+     * stack effect once the receiver is the target instance.
+     *
+     * @param owner internal name of the target class
+     */
+    public MethodInsnNode accessorCall(String owner, int opcode) {
+        boolean store = opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC;
+        
+        return new MethodInsnNode(
+            Opcodes.INVOKESTATIC,
+            owner,
+            store ? setter() : getter(),
+            store ? setterDesc(owner) : getterDesc(owner),
+            false
+        );
+    }
+}
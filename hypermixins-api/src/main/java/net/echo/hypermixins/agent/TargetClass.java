@@ -0,0 +1,106 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The class woven by a {@link TargetClassVisitor}, shared with the appliers of each feature.
+ * <p>
+ * The header is known once the class was visited, the members as they are visited.
+ *
+ * @author xEcho1337
+ */
+final class TargetClass {
+    
+    private final HierarchyClassWriter writer;
+    private final TargetMapping mapping;
+    private final Set<String> fields = new HashSet<>();
+    private final Set<String> methods = new HashSet<>();
+    private final Map<String, Integer> members = new HashMap<>(); // ShadowMapping#key -> access
+    
+    private int version;
+    private String owner;
+    private String superName;
+    private boolean isInterface;
+    
+    TargetClass(HierarchyClassWriter writer, TargetMapping mapping) {
+        this.writer = writer;
+        this.mapping = mapping;
+    }
+    
+    void visit(int version, int access, String name, String superName) {
+        this.version = version;
+        this.owner = name;
+        this.superName = superName;
+        this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+    
+    void visitField(int access, String name, String descriptor) {
+        fields.add(name);
+        members.put(name + ":" + descriptor, access);
+    }
+    
+    void visitMethod(int access, String name, String descriptor) {
+        methods.add(name + descriptor);
+        members.put(name + descriptor, access);
+    }
+    
+    TargetMapping mapping() {
+        return mapping;
+    }
+    
+    String owner() {
+        return owner;
+    }
+    
+    boolean isInterface() {
+        return isInterface;
+    }
+    
+    boolean hasField(String name) {
+        return fields.contains(name);
+    }
+    
+    boolean hasMethod(String key) {
+        return methods.contains(key);
+    }
+    
+    /**
+     * Claims a method name and descriptor for a method added to the class.
+     *
+     * @return false if the class already declares it
+     */
+    boolean addMethod(String key) {
+        return methods.add(key);
+    }
+    
+    /**
+     * Returns the access of a member, {@code name:desc} for a field, or {@code null} if the class declares none.
+     */
+    Integer memberAccess(String key) {
+        return members.get(key);
+    }
+    
+    /**
+     * Returns the method with freshly computed frames if it changed, untouched bodies keep their own.
+     */
+    MethodNode withFrames(MethodNode method, boolean changed) {
+        return changed ? writer.computeFrames(version, owner, superName, method) : method;
+    }
+    
+    /**
+     * Checks that the class can link an {@code invokedynamic}, which the feature relies on.
+     *
+     * @param feature what needs it, e.g. {@code "@Memoize needs"}
+     */
+    void checkIndy(String feature) {
+        if ((version & 0xFFFF) < Opcodes.V1_7) {
+            throw new IllegalStateException(feature + " class file version 51 or newer: " + owner);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming weaver for a mixin target class, applying all of its mixins in one pass.
+ * <p>
+ * Methods that are not touched by any mixin are handed straight to the
+ * downstream {@link org.objectweb.asm.ClassWriter}, which copies them raw
+ * from the original class bytes. Only the touched methods and, for stateless mixins,
+ * the static initializer are buffered as {@link MethodNode}s and rewritten by the
+ * applier of each feature, and only the ones that actually changed get their frames
+ * recomputed. Abstract methods are never woven.
+ * <p>
+ * {@link AccessChanges Access changes}, validated beforehand, only swap the flags of the class
+ * and of its members as they are visited.
+ */
+class TargetClassVisitor extends ClassVisitor {
+    
+    private final TargetMapping mapping;
+    private final AccessChanges access;
+    private final TargetClass target;
+    private final OverwriteApplier overwrites;
+    private final RedirectApplier redirects;
+    private final InjectApplier injects;
+    private final MemoizeApplier memoizes;
+    private final MetricsApplier metrics;
+    private final AccessorApplier accessors;
+    private final List<String> unmatched = new ArrayList<>();
+    private final Set<String> exact = new HashSet<>(); // mixins targeting this class by name, whose members must all apply
+    
+    private MethodNode initializer; // woven last when it may create a mixin, once the holders in use are known
+    private boolean hasClinit;
+    private boolean changed;
+    
+    TargetClassVisitor(HierarchyClassWriter writer, TargetMapping mapping, AccessChanges access) {
+        super(Opcodes.ASM9, writer);
+        this.mapping = mapping;
+        this.access = access;
+        this.target = new TargetClass(writer, mapping);
+        this.overwrites = new OverwriteApplier(target);
+        this.redirects = new RedirectApplier(target);
+        this.injects = new InjectApplier(target);
+        this.memoizes = new MemoizeApplier(target);
+        this.metrics = new MetricsApplier(target);
+        this.accessors = new AccessorApplier(target);
+    }
+    
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        target.visit(version, access, name, superName);
+        
+        for (MixinMapping mixin : mapping.mixins) {
+            if (mixin.targetClass.replace('.', '/').equals(name)) {
+                exact.add(mixin.mixinName);
+            }
+        }
+        
+        Set<String> implemented = new LinkedHashSet<>(interfaces == null ? List.of() : Arrays.asList(interfaces));
+        
+        // mixin interfaces are implemented by the accessors added in visitEnd
+        for (MixinMapping mixin : mapping.mixins) {
+            if (!mixin.accessors.isEmpty()) {
+                implemented.add(mixin.mixinName);
+            }
+        }
+        
+        super.visit(version, this.access.access(AccessChanges.CLASS, access), name, signature, superName, implemented.toArray(new String[0]));
+    }
+    
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        super.visitInnerClass(name, outerName, innerName, name.equals(target.owner()) ? this.access.innerAccess(access) : access);
+    }
+    
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        access = this.access.access(name + ":" + descriptor, access);
+        target.visitField(access, name, descriptor);
+        return super.visitField(access, name, descriptor, signature, value);
+    }
+    
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        access = this.access.access(name + descriptor, access);
+        target.visitMethod(access, name, descriptor);
+        
+        boolean clinit = name.equals("<clinit>");
+        MixinMapping overwrite = mapping.overwrites.get(name + descriptor);
+        
+        hasClinit |= clinit;
+        
+        boolean initMixin = clinit && overwrites.dispatchesStateless();
+        
+        boolean untouched = overwrite == null && !mapping.redirectIndex.targets(name) && !touches(name);
+        
+        // untouched methods go directly to the writer and are copied as is, there is nothing to weave in an abstract one
+        if (!initMixin && untouched || (access & Opcodes.ACC_ABSTRACT) != 0) {
+            return super.visitMethod(access, name, descriptor, signature, exceptions);
+        }
+        
+        return new MethodNode(api, access, name, descriptor, signature, exceptions) {
+            @Override
+            public void visitEnd() {
+                if (initMixin) {
+                    initializer = this;
+                } else {
+                    weave(this, false, overwrite).accept(cv);
+                }
+            }
+        };
+    }
+    
+    private boolean touches(String method) {
+        return mapping.injects.containsKey(method)
+            || mapping.memoized.containsKey(method)
+            || mapping.timed.contains(method)
+            || mapping.counted.contains(method);
+    }
+    
+    @Override
+    public void visitEnd() {
+        // before the class gains methods of its own below
+        for (Map.Entry<String, MixinMapping> overwrite : mapping.overwrites.entrySet()) {
+            if (exact.contains(overwrite.getValue().mixinName) && !target.hasMethod(overwrite.getKey())) {
+                unmatched.add("@Overwrite " + overwrite.getValue().overwrites.get(overwrite.getKey()));
+            }
+        }
+        
+        for (RedirectMapping redirect : mapping.redirects) {
+            if (exact.contains(redirect.handler().owner()) && !redirects.redirected(redirect)) {
+                unmatched.add("@Redirect " + redirect.id() + " of " + redirect.invokeDesc() + " in " + redirect.targetMethod());
+            }
+        }
+        
+        Collections.sort(unmatched);
+        
+        // every other method was woven, the mixins dispatched to are known
+        if (initializer != null) {
+            weave(initializer, overwrites.usesStateless(), null).accept(cv);
+        }
+        
+        overwrites.addMembers(cv, hasClinit);
+        accessors.apply(cv);
+        injects.checkInjected(exact);
+        
+        super.visitEnd();
+    }
+    
+    /**
+     * Returns how many methods were overwritten, once the class was visited.
+     */
+    int overwriteCount() {
+        return overwrites.overwriteCount();
+    }
+    
+    /**
+     * Returns how many instructions were redirected, once the class was visited.
+     */
+    int redirectCount() {
+        return redirects.redirectCount();
+    }
+    
+    /**
+     * Returns the overwrites and redirects that found nothing to replace, once the class was visited.
+     */
+    List<String> unmatched() {
+        return unmatched;
+    }
+    
+    /**
+     * Returns whether the class was changed at all, once it was visited.
+     */
+    boolean changed() {
+        return changed
+            || access.changes()
+            || !mapping.shadows.isEmpty()
+            || mapping.mixins.stream().anyMatch(mixin -> !mixin.accessors.isEmpty());
+    }
+    
+    private MethodNode weave(MethodNode method, boolean initMixin, MixinMapping overwrite) {
+        boolean changed = redirects.apply(method);
+        
+        if (initMixin) {
+            method.instructions.insert(overwrites.newMixinStatics());
+            changed = true;
+        }
+        
+        if (overwrite != null) {
+            overwrites.apply(method, overwrite, changed);
+            changed = true;
+        }
+        
+        changed |= memoizes.apply(method);
+        changed |= injects.apply(method);
+        changed |= metrics.apply(method); // outermost, so the measure includes the injects
+        
+        this.changed |= changed;
+        return target.withFrames(method, changed);
+    }
+}
@@ -0,0 +1,162 @@
+package net.echo.hypermixins.agent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Every mixin applied to one target class, merged so the class is parsed, woven and
+ * written once whatever the number of mixins.
+ * <p>
+ * Mixins are ordered by ascending {@link net.echo.hypermixins.api.Mixin#priority() priority},
+ * then by name, so the result never depends on the registration order. When two mixins
+ * overwrite or memoize the same method or redirect the same occurrence of an invoke, the member of
+ * the mixin with the higher priority is kept, the other one is dropped and the conflict
+ * is listed in {@link #conflicts}. Injects at the same point all run, lowest priority first,
+ * and {@link net.echo.hypermixins.api.Access access changes} all apply.
+ * <p>
+ * A class loader that only some of the mixins {@link MixinMapping#appliesTo apply to} gets
+ * the target mapping of those mixins alone, see {@link #scopedTo}.
+ *
+ * @author xEcho1337
+ */
+public class TargetMapping {
+    
+    private static final Comparator<MixinMapping> ORDER = Comparator
+        .comparingInt((MixinMapping mapping) -> mapping.priority)
+        .thenComparing(mapping -> mapping.mixinName);
+    
+    public final String targetClass;
+    public final List<MixinMapping> mixins; // ascending priority
+    public final Map<String, MixinMapping> overwrites; // overwritten target method -> mixin applying it
+    public final List<RedirectMapping> redirects; // winners
+    public final RedirectIndex redirectIndex;
+    public final Map<String, List<InjectMapping>> injects; // target method name -> injects, ascending priority
+    public final Set<String> timed;
+    public final Set<String> counted; // only the methods that are not timed, timing counts as well
+    public final Map<String, MemoizeMapping> memoized; // winners
+    public final Set<ShadowMapping> shadows; // members of the target shadowed by any mixin
+    public final List<AccessMapping> access; // ascending priority, changes never conflict
+    public final List<String> conflicts;
+    
+    private final ConcurrentMap<List<MixinMapping>, TargetMapping> scoped = new ConcurrentHashMap<>();
+    
+    public TargetMapping(String targetClass, List<MixinMapping> mappings) {
+        this.targetClass = targetClass;
+        this.mixins = mappings.stream().sorted(ORDER).toList();
+        this.overwrites = new HashMap<>();
+        this.injects = new HashMap<>();
+        this.timed = new HashSet<>();
+        this.counted = new HashSet<>();
+        this.memoized = new HashMap<>();
+        this.shadows = new LinkedHashSet<>();
+        this.access = new ArrayList<>();
+        this.redirects = new ArrayList<>();
+        this.conflicts = new ArrayList<>();
+        
+        Map<String, MixinMapping> byName = new HashMap<>();
+        Map<String, MixinMapping> memoizedBy = new HashMap<>();
+        
+        for (MixinMapping mixin : mixins) {
+            if (byName.put(mixin.mixinName, mixin) != null) {
+                throw new IllegalArgumentException("Mixin registered twice: " + mixin.mixinName);
+            }
+            
+            // injects never conflict, they all run one after the other
+            for (InjectMapping inject : mixin.injects) {
+                injects.computeIfAbsent(inject.targetMethod(), k -> new ArrayList<>()).add(inject);
+            }
+            
+            timed.addAll(mixin.timed);
+            counted.addAll(mixin.counted);
+            shadows.addAll(mixin.shadows.values());
+            access.addAll(mixin.access);
+        }
+        
+        counted.removeAll(timed);
+        
+        // winners first, each member only has to be checked against the ones already kept
+        for (MixinMapping mixin : mixins.reversed()) {
+            for (String key : new TreeSet<>(mixin.overwrites.keySet())) {
+                MixinMapping winner = overwrites.putIfAbsent(key, mixin);
+                
+                if (winner != null) {
+                    conflicts.add(conflict("@Overwrite of " + key, winner, mixin));
+                }
+            }
+            
+            for (String method : new TreeSet<>(mixin.memoized.keySet())) {
+                MixinMapping winner = memoizedBy.putIfAbsent(method, mixin);
+                
+                if (winner == null) {
+                    memoized.put(method, mixin.memoized.get(method));
+                } else {
+                    conflicts.add(conflict("@Memoize of " + method, winner, mixin));
+                }
+            }
+            
+            for (RedirectMapping redirect : mixin.redirects) {
+                RedirectMapping winner = redirects.stream()
+                    .filter(redirect::overlaps)
+                    .findFirst()
+                    .orElse(null);
+                
+                if (winner == null) {
+                    redirects.add(redirect);
+                } else {
+                    conflicts.add(conflict(
+                        "@Redirect of " + redirect.invokeDesc() + " in " + redirect.targetMethod(),
+                        byName.get(winner.handler().owner()),
+                        mixin
+                    ));
+                }
+            }
+        }
+        
+        this.redirectIndex = new RedirectIndex(redirects);
+    }
+    
+    /**
+     * Returns whether the overwrite of a target method is copied in place rather than dispatched.
+     */
+    public boolean isInlined(String method) {
+        MixinMapping mixin = overwrites.get(method);
+        return mixin != null && mixin.inlined.contains(method);
+    }
+    
+    /**
+     * Returns whether the class or one of its methods is made final, which needs the subclasses
+     * of its package to be listed.
+     */
+    public boolean finalizes() {
+        return access.stream().anyMatch(AccessMapping::finalizes);
+    }
+    
+    /**
+     * Returns the mapping of the mixins applying to the classes of a loader, this mapping if all
+     * of them do, or {@code null} if none does.
+     */
+    public TargetMapping scopedTo(ClassLoader loader) {
+        List<MixinMapping> applied = mixins.stream()
+            .filter(mixin -> mixin.appliesTo(loader))
+            .toList();
+        
+        if (applied.size() == mixins.size()) return this;
+        
+        if (applied.isEmpty()) return null;
+        
+        // few distinct subsets in practice, one per kind of loader
+        return scoped.computeIfAbsent(applied, k -> new TargetMapping(targetClass, k));
+    }
+    
+    private String conflict(String member, MixinMapping winner, MixinMapping loser) {
+        return "Conflicting %s on %s: %s (priority %d) overrides %s (priority %d)".formatted(
+            member,
+            targetClass,
+            winner.mixinName.replace('/', '.'),
+            winner.priority,
+            loser.mixinName.replace('/', '.'),
+            loser.priority
+        );
+    }
+}
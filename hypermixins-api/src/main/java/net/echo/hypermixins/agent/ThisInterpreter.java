@@ -0,0 +1,67 @@
+package net.echo.hypermixins.agent;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.Frame;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.Set;
+
+/**
+ * Source interpreter that sees through stack copies, so a value duplicated by {@code dup}
+ * or moved by {@code swap} keeps the instruction that loaded it as its source.
+ * <p>
+ * Used to find the loads of the mixin {@code this} that only serve as receiver of an
+ * instance {@link ShadowMapping shadow} access, compound assignments such as
+ * {@code this.ticks++} included.
+ *
+ * @author xEcho1337
+ */
+final class ThisInterpreter extends SourceInterpreter {
+    
+    private ThisInterpreter() {
+        super(Opcodes.ASM9);
+    }
+    
+    static Frame<SourceValue>[] analyze(String owner, MethodNode method) {
+        try {
+            return new Analyzer<>(new ThisInterpreter()).analyze(owner, method);
+        } catch (AnalyzerException ex) {
+            throw new IllegalStateException("Unable to analyze " + owner + "." + method.name + method.desc, ex);
+        }
+    }
+    
+    /**
+     * Adds the loads of {@code this} that push the receiver of an instance shadow access.
+     *
+     * @param frame the frame before the access
+     * @throws IllegalStateException if the receiver is not always {@code this}
+     */
+    static void addReceivers(ShadowMapping shadow, AbstractInsnNode insn, Frame<SourceValue> frame, Set<AbstractInsnNode> receivers) {
+        int depth = switch (insn.getOpcode()) {
+            case Opcodes.GETFIELD -> 1;
+            case Opcodes.PUTFIELD -> 2;
+            default -> Type.getArgumentTypes(shadow.desc()).length + 1;
+        };
+        
+        for (AbstractInsnNode producer : frame.getStack(frame.getStackSize() - depth).insns) {
+            if (producer.getOpcode() != Opcodes.ALOAD || ((VarInsnNode) producer).var != 0) {
+                throw new IllegalStateException("@Shadow " + shadow.key() + " must be accessed through this");
+            }
+            
+            receivers.add(producer);
+        }
+    }
+    
+    @Override
+    public SourceValue copyOperation(AbstractInsnNode insn, SourceValue value) {
+        int opcode = insn.getOpcode();
+        return opcode >= Opcodes.DUP && opcode <= Opcodes.SWAP ? value : super.copyOperation(insn, value);
+    }
+}
@@ -0,0 +1,401 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.HyperMixins;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of woven class bytes.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of the original class bytes, the bytes of the
+ * mixins applied to it and the identity of the weaver, so any change to one of them
+ * simply misses. The identity is the {@link HyperMixins#VERSION}, the {@link #FORMAT}
+ * revision and a hash of the classes of the weaver, so a build weaving differently under the
+ * same version never reads the entries of another. Hits are decoded straight from a
+ * memory-mapped file. Each entry keeps what the weave applied next to the woven bytes, so a
+ * hit is reported like the weave it replaces.
+ * <p>
+ * The cache is opt-in and configured through system properties:
+ * <ul>
+ *     <li>{@code hypermixins.cache} - the cache directory, enables the cache</li>
+ *     <li>{@code hypermixins.cache.maxSize} - maximum size in bytes, 64 MiB by default</li>
+ * </ul>
+ * When the directory grows past its maximum size the least recently used entries are evicted.
+ *
+ * @author xEcho1337
+ */
+public class WeaveCache {
+    
+    public static final String DIRECTORY_PROPERTY = "hypermixins.cache";
+    public static final String MAX_SIZE_PROPERTY = "hypermixins.cache.maxSize";
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+    
+    /**
+     * Revision of the entry layout, bumped whenever entries written before can no longer be read.
+     */
+    public static final int FORMAT = 3;
+    
+    private static final String EXTENSION = ".class";
+    private static final String VERSION_FILE = "VERSION";
+    private static final String WEAVER_PACKAGE = "net/echo/hypermixins/agent";
+    private static final int MAGIC = 0x484D5743; // HMWC
+    private static final HexFormat HEX = HexFormat.of();
+    
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ConcurrentMap<MixinMapping, byte[]> mixinDigests = new ConcurrentHashMap<>();
+    private final byte[] weaver = weaverDigest();
+    
+    public WeaveCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        
+        try {
+            Files.createDirectories(directory);
+            invalidateStale();
+            
+            try (Stream<Path> entries = entries()) {
+                size.set(entries.mapToLong(WeaveCache::sizeOf).sum());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open weave cache in " + directory, ex);
+        }
+    }
+    
+    /**
+     * Creates the cache configured through system properties.
+     *
+     * @return the cache, or {@code null} if {@value #DIRECTORY_PROPERTY} is not set
+     */
+    public static WeaveCache fromSystemProperties() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        
+        if (directory == null || directory.isBlank()) return null;
+        
+        long maxSize = Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE);
+        return new WeaveCache(Path.of(directory), maxSize);
+    }
+    
+    /**
+     * Computes the cache key of a class woven with the given mixins, in application order.
+     */
+    public byte[] key(byte[] classfile, List<MixinMapping> mappings) {
+        MessageDigest digest = sha256();
+        
+        digest.update(weaver);
+        
+        for (MixinMapping mapping : mappings) {
+            digest.update(mixinDigests.computeIfAbsent(mapping, WeaveCache::digestOf));
+        }
+        
+        digest.update(classfile);
+        
+        return digest.digest();
+    }
+    
+    /**
+     * Returns the entry stored for the key, or {@code null} on a miss.
+     */
+    public Entry get(byte[] key) {
+        Path file = fileOf(key);
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Entry entry = read(buffer);
+            
+            // a truncated or foreign file is treated as a miss and dropped
+            if (entry == null) {
+                remove(file);
+                misses.incrementAndGet();
+                return null;
+            }
+            
+            // keeps the entry fresh for the LRU eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            
+            hits.incrementAndGet();
+            return entry;
+        } catch (IOException ex) {
+            // no entry for this key
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+    
+    /**
+     * Stores an entry under the key, evicting old entries if the cache is full.
+     */
+    public void put(byte[] key, Entry entry) {
+        if (entry.woven().length > maxSize) return;
+        
+        Path file = fileOf(key);
+        
+        try {
+            byte[] bytes = write(entry);
+            Path temp = Files.createTempFile(directory, "weave", ".tmp");
+            
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            
+            long previous = Files.exists(file) ? sizeOf(file) : 0;
+            
+            // readers only ever see complete entries
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+            if (size.addAndGet(bytes.length - previous) > maxSize) {
+                evict();
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace(System.err);
+        }
+    }
+    
+    /**
+     * Deletes every entry in the cache.
+     */
+    public void clear() {
+        try (Stream<Path> entries = entries()) {
+            entries.forEach(this::remove);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), size.get());
+    }
+    
+    public Path directory() {
+        return directory;
+    }
+    
+    private synchronized void evict() throws IOException {
+        if (size.get() <= maxSize) return;
+        
+        List<Path> files;
+        
+        try (Stream<Path> entries = entries()) {
+            files = new ArrayList<>(entries.toList());
+        }
+        
+        files.sort(Comparator.comparing(WeaveCache::lastModified));
+        
+        // evicts down to 3/4 of the bound so a full cache doesn't evict on every write
+        long target = maxSize - maxSize / 4;
+        
+        for (Path file : files) {
+            if (size.get() <= target) break;
+            
+            remove(file);
+            evictions.incrementAndGet();
+        }
+    }
+    
+    private void invalidateStale() throws IOException {
+        Path versionFile = directory.resolve(VERSION_FILE);
+        String version = Files.exists(versionFile) ? Files.readString(versionFile).trim() : null;
+        
+        if (HEX.formatHex(weaver).equals(version)) return;
+        
+        // entries written by another weaver can never hit again
+        try (Stream<Path> entries = entries()) {
+            entries.forEach(this::remove);
+        }
+        
+        Files.writeString(versionFile, HEX.formatHex(weaver));
+    }
+    
+    // magic, woven class length, woven class, then the counters and the unmatched members as UTF-8
+    private static byte[] write(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.woven().length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        
+        out.writeInt(MAGIC);
+        out.writeInt(entry.woven().length);
+        out.write(entry.woven());
+        out.writeInt(entry.overwrites());
+        out.writeInt(entry.redirects());
+        out.writeInt(entry.unmatched().size());
+        
+        for (String member : entry.unmatched()) {
+            byte[] utf8 = member.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+        
+        return bytes.toByteArray();
+    }
+    
+    private static Entry read(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) return null;
+            
+            byte[] woven = bytes(buffer);
+            
+            if (woven == null) return null;
+            
+            int overwrites = buffer.getInt();
+            int redirects = buffer.getInt();
+            int count = buffer.getInt();
+            
+            if (count < 0 || count > buffer.remaining() / 4) return null;
+            
+            String[] unmatched = new String[count];
+            
+            for (int i = 0; i < count; i++) {
+                byte[] utf8 = bytes(buffer);
+                
+                if (utf8 == null) return null;
+                
+                unmatched[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            
+            return new Entry(woven, overwrites, redirects, List.of(unmatched));
+        } catch (BufferUnderflowException ex) {
+            return null;
+        }
+    }
+    
+    // a length, then as many bytes, or null if the length runs past the end of the entry
+    private static byte[] bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        
+        if (length < 0 || length > buffer.remaining()) return null;
+        
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    private void remove(Path file) {
+        try {
+            long length = sizeOf(file);
+            
+            if (Files.deleteIfExists(file)) {
+                size.addAndGet(-length);
+            }
+        } catch (IOException ignored) {
+            // another JVM sharing the directory may have removed it already
+        }
+    }
+    
+    private Stream<Path> entries() throws IOException {
+        return Files.list(directory).filter(p -> p.getFileName().toString().endsWith(EXTENSION));
+    }
+    
+    private Path fileOf(byte[] key) {
+        return directory.resolve(HEX.formatHex(key) + EXTENSION);
+    }
+    
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+    
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+    
+    private static byte[] weaverDigest() {
+        MessageDigest digest = sha256();
+        
+        digest.update((HyperMixins.VERSION + "/" + FORMAT).getBytes(StandardCharsets.UTF_8));
+        
+        try {
+            CodeSource source = WeaveCache.class.getProtectionDomain().getCodeSource();
+            Path location = source == null ? null : Path.of(source.getLocation().toURI());
+            
+            if (location != null && Files.isRegularFile(location)) {
+                try (FileSystem jar = FileSystems.newFileSystem(location)) {
+                    digestClasses(digest, jar.getPath(WEAVER_PACKAGE));
+                }
+            } else if (location != null && Files.isDirectory(location)) {
+                // an exploded build, such as the classes of an IDE or a test run
+                digestClasses(digest, location.resolve(WEAVER_PACKAGE));
+            }
+        } catch (IOException | URISyntaxException | RuntimeException ex) {
+            // the version and the format still tell releases apart
+            new IllegalStateException("Unable to hash the weaver classes for the weave cache", ex).printStackTrace(System.err);
+        }
+        
+        return digest.digest();
+    }
+    
+    // only the classes of the weaver, not the whole agent jar and the libraries shaded into it
+    private static void digestClasses(MessageDigest digest, Path weaver) throws IOException {
+        try (Stream<Path> files = Files.walk(weaver)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(EXTENSION)).sorted().toList()) {
+                digest.update(Files.readAllBytes(file));
+            }
+        }
+    }
+    
+    private static byte[] digestOf(MixinMapping mapping) {
+        return sha256().digest(mapping.mixinBytes());
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * A woven class and what its weave applied.
+     *
+     * @param woven the woven class bytes
+     * @param overwrites methods overwritten
+     * @param redirects instructions redirected
+     * @param unmatched overwrites and redirects that found nothing to replace in the class
+     */
+    public record Entry(byte[] woven, int overwrites, int redirects, List<String> unmatched) {
+    }
+    
+    /**
+     * Snapshot of the cache counters.
+     *
+     * @param hits transforms served from the cache
+     * @param misses transforms that had to be woven
+     * @param evictions entries removed to respect the size bound
+     * @param size current size of the cache directory in bytes
+     */
+    public record Stats(long hits, long misses, long evictions, long size) {
+    }
+}
@@ -0,0 +1,77 @@
+package net.echo.hypermixins.agent;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR view of a single weave, only loaded by {@link WeaveMetrics} when {@code jdk.jfr} is present.
+ *
+ * @author xEcho1337
+ */
+@Name("net.echo.hypermixins.Weave")
+@Label("Mixin Weave")
+@Category("HyperMixins")
+@Description("A class woven by the mixin transformer, or a weave that failed")
+@StackTrace(false)
+final class WeaveEvent extends Event {
+    
+    @Label("Class")
+    String className;
+    
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseTime;
+    
+    @Label("Weave Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long weaveTime;
+    
+    @Label("Write Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long writeTime;
+    
+    @Label("Bytes In")
+    @DataAmount
+    int bytesIn;
+    
+    @Label("Bytes Out")
+    @DataAmount
+    int bytesOut;
+    
+    @Label("Overwrites")
+    int overwrites;
+    
+    @Label("Redirects")
+    int redirects;
+    
+    @Label("Unmatched")
+    @Description("Overwrites and redirects that found nothing to replace")
+    String unmatched;
+    
+    @Label("Failure")
+    String failure;
+    
+    static void emit(WeaveMetrics.Stats weave) {
+        WeaveEvent event = new WeaveEvent();
+        
+        if (!event.shouldCommit()) return;
+        
+        event.className = weave.className();
+        event.parseTime = weave.parseNanos();
+        event.weaveTime = weave.weaveNanos();
+        event.writeTime = weave.writeNanos();
+        event.bytesIn = weave.bytesIn();
+        event.bytesOut = weave.bytesOut();
+        event.overwrites = weave.overwrites();
+        event.redirects = weave.redirects();
+        event.unmatched = weave.unmatched().isEmpty() ? null : String.join(", ", weave.unmatched());
+        event.failure = weave.lastFailure();
+        event.commit();
+    }
+}
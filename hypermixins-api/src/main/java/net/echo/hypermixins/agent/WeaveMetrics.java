@@ -0,0 +1,142 @@
+package net.echo.hypermixins.agent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * What a {@link MixinTransformer} did to each class it wove, to track the cost of the agent
+ * and to notice mixins that silently stopped applying.
+ * <p>
+ * Weaving happens once per class load, so every weave, and every hit of the weave cache, is
+ * merged into the {@link Stats} of its class under the lock of the map entry. Each weave and
+ * each failure is also emitted as a {@code net.echo.hypermixins.Weave} JFR event, unless the
+ * {@code jdk.jfr} module is missing.
+ * <p>
+ * Problems that do not fail a weave, such as conflicts between mixins or rejected access changes,
+ * are {@link #warn warned} about here as well, so they all reach {@code System.err} the same way.
+ *
+ * @author xEcho1337
+ */
+public final class WeaveMetrics {
+    
+    private static final boolean JFR = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+    
+    private final ConcurrentMap<String, Stats> classes = new ConcurrentHashMap<>();
+    private final Set<String> warnings = ConcurrentHashMap.newKeySet();
+    
+    void recordWeave(Stats weave) {
+        classes.merge(weave.className(), weave, Stats::plus);
+        
+        if (JFR) WeaveEvent.emit(weave);
+    }
+    
+    void recordCacheHit(String className, int bytesIn, WeaveCache.Entry entry) {
+        Stats stats = new Stats(
+            className.replace('/', '.'),
+            0,
+            0,
+            1,
+            0,
+            0,
+            0,
+            bytesIn,
+            entry.woven().length,
+            entry.overwrites(),
+            entry.redirects(),
+            entry.unmatched(),
+            null
+        );
+        classes.merge(stats.className(), stats, Stats::plus);
+    }
+    
+    void recordFailure(String className, Throwable failure) {
+        Stats stats = new Stats(className.replace('/', '.'), 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, List.of(), failure.toString());
+        classes.merge(stats.className(), stats, Stats::plus);
+        
+        if (JFR) WeaveEvent.emit(stats);
+    }
+    
+    /**
+     * Reports a problem that does not fail the weave, printed to {@code System.err} the first time
+     * it is found rather than on every weave or registration finding it again.
+     */
+    public void warn(String warning) {
+        if (warnings.add(warning)) {
+            System.err.println("[HyperMixins] " + warning);
+        }
+    }
+    
+    /**
+     * Returns every problem warned about so far, sorted.
+     */
+    public List<String> warnings() {
+        return warnings.stream().sorted().toList();
+    }
+    
+    /**
+     * Returns the stats of every class woven or failed so far, sorted by class name.
+     */
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>(classes.values());
+        stats.sort(Comparator.comparing(Stats::className));
+        return stats;
+    }
+    
+    /**
+     * Weaves of a class. Times add up over every weave, the other counters are the ones of the last weave.
+     *
+     * @param className the binary name of the class
+     * @param weaves successful weaves, retransformations included, weave cache hits excluded
+     * @param failures weaves that threw
+     * @param cacheHits weaves served from the {@link WeaveCache}, which take no time here
+     * @param parseNanos time spent reading the class header and recording its hierarchy
+     * @param weaveNanos time spent visiting the class, which parses the method bodies as it weaves them
+     * @param writeNanos time spent assembling the woven class file
+     * @param bytesIn size of the class file handed to the transformer
+     * @param bytesOut size of the woven class file, the same as {@code bytesIn} if nothing applied
+     * @param overwrites methods overwritten
+     * @param redirects instructions redirected
+     * @param unmatched overwrites and redirects that found nothing to replace in the class
+     * @param lastFailure the last exception thrown while weaving the class, or {@code null}
+     */
+    public record Stats(
+        String className,
+        long weaves,
+        long failures,
+        long cacheHits,
+        long parseNanos,
+        long weaveNanos,
+        long writeNanos,
+        int bytesIn,
+        int bytesOut,
+        int overwrites,
+        int redirects,
+        List<String> unmatched,
+        String lastFailure
+    ) {
+        
+        private Stats plus(Stats next) {
+            boolean woven = next.weaves > 0 || next.cacheHits > 0;
+            
+            return new Stats(
+                className,
+                weaves + next.weaves,
+                failures + next.failures,
+                cacheHits + next.cacheHits,
+                parseNanos + next.parseNanos,
+                weaveNanos + next.weaveNanos,
+                writeNanos + next.writeNanos,
+                woven ? next.bytesIn : bytesIn,
+                woven ? next.bytesOut : bytesOut,
+                woven ? next.overwrites : overwrites,
+                woven ? next.redirects : redirects,
+                woven ? next.unmatched : unmatched,
+                next.lastFailure != null ? next.lastFailure : lastFailure
+            );
+        }
+    }
+}
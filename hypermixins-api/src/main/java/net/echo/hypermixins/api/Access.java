@@ -0,0 +1,73 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Changes the modifiers of the target class of a {@link Mixin}, or of one of its fields or
+ * methods, without touching any method body.
+ * <p>
+ * Making a class or method {@code final} lets the JIT bind calls without a type check, making a
+ * member {@code public} lets mixins and other code reach it without reflection. Only {@code static
+ * final} fields are folded into constants, instance fields made {@code final} document the intent
+ * and guard against writes added later. Every change is validated against the class first:
+ * <ul>
+ *     <li>a class can only be made {@code final} if it is neither public, abstract, sealed nor an
+ *     interface, and no class of its package extends it, directly or not;</li>
+ *     <li>a method can only be made {@code final} if it is neither abstract nor declared by an
+ *     interface, and it is private, static, declared by a final class, or package private and
+ *     overridden by no subclass of its package;</li>
+ *     <li>a field can only be made {@code final} if it is private, not volatile, only written by
+ *     the initializer of its class, its class has no nestmates, and it is neither shadowed, set by
+ *     an accessor nor redirected.</li>
+ * </ul>
+ * Subclasses are looked up in the class files the loader of the target ships for its package,
+ * since a subclass defined after its super class was made {@code final} could not be defined
+ * anymore. Public classes and public or protected methods can be extended from any package,
+ * which cannot be listed, and a package in neither a directory nor a jar cannot be listed either.
+ * A rejected change is reported and left out, the others still apply. Classes and methods can
+ * only be made {@code final} on a single target class, not on a pattern.
+ * <p>
+ * Changes are listed by {@link net.echo.hypermixins.HyperMixins#accessChanges()}. A class loaded
+ * before its mixins were registered cannot have its modifiers changed by a retransformation.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(Access.List.class)
+public @interface Access {
+    
+    /**
+     * Name of the target field, every field of that name is changed.
+     */
+    String field() default "";
+    
+    /**
+     * Name of the target method, optionally followed by its descriptor as in {@code "tick()V"},
+     * without it every overload is changed.
+     * <p>
+     * With neither a field nor a method, the class itself is changed.
+     */
+    String method() default "";
+    
+    /**
+     * Widens the member, or the class, to {@code public}.
+     */
+    boolean makePublic() default false;
+    
+    /**
+     * Makes the member, or the class, {@code final}.
+     */
+    boolean makeFinal() default false;
+    
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @interface List {
+        
+        Access[] value();
+    }
+}
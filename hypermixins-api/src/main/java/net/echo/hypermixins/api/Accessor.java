@@ -0,0 +1,25 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads or writes a field of the target class from a method of a {@link Mixin} interface.
+ * <p>
+ * The target class implements the interface, so casting any instance of it to the
+ * interface gives typed access to the field. A method without parameters returning the
+ * field type is a getter, a {@code void} method taking the field type is a setter.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Accessor {
+    
+    /**
+     * Name of the target field.
+     */
+    String value();
+}
@@ -1,7 +1,26 @@
 package net.echo.hypermixins.api;
 
 public @interface At {
+    
+    /**
+     * Value of {@link #count()} matching every occurrence from {@link #index()} on.
+     */
+    int ALL = Integer.MAX_VALUE;
+    
+    /**
+     * The instruction matched, in the form {@code owner.name(desc)} for invokes and
+     * {@code owner.name:desc} for field accesses, see {@link Call}.
+     */
     String desc();
     Call call();
+    
+    /**
+     * Zero based occurrence of the instruction, within the target method, where matching starts.
+     */
     int index() default 0;
+    
+    /**
+     * Number of consecutive occurrences matched starting at {@link #index()}, or {@link #ALL}.
+     */
+    int count() default 1;
 }
@@ -1,6 +1,32 @@
 package net.echo.hypermixins.api;
 
+/**
+ * Instruction replaced by a {@link Redirect}, and the shape of its handler.
+ * <ul>
+ *     <li>invokes, described as {@code owner.name(desc)}, take the receiver of an instance
+ *     call as first argument followed by the arguments of the call;</li>
+ *     <li>{@link #NEW} is described by its constructor, {@code owner.<init>(desc)}, and its
+ *     handler takes the constructor arguments and returns the instance;</li>
+ *     <li>field accesses, described as {@code owner.name:desc}, take the receiver of an
+ *     instance field, then the stored value for a put, and return the read value for a get.</li>
+ * </ul>
+ */
 public enum Call {
+    
+    /**
+     * Also matches {@code invokeinterface}, for calls through an interface type.
+     */
     INVOKEVIRTUAL,
-    INVOKESTATIC
+    INVOKESTATIC,
+    
+    /**
+     * Private methods and {@code super} calls, constructors are redirected through {@link #NEW}.
+     */
+    INVOKESPECIAL,
+    INVOKEINTERFACE,
+    NEW,
+    GETFIELD,
+    PUTFIELD,
+    GETSTATIC,
+    PUTSTATIC
 }
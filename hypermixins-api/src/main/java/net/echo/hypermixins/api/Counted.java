@@ -0,0 +1,24 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Counts the calls to methods of the target class of a {@link Mixin}, every overload included.
+ * <p>
+ * Cheaper than {@link Timed}, which counts as well: the woven methods only increment a
+ * striped counter on entry.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Counted {
+    
+    /**
+     * Names of the target methods.
+     */
+    String[] value();
+}
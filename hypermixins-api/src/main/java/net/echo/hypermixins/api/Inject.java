@@ -0,0 +1,44 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Calls a static mixin method at a {@link Point} of a target method, leaving its body in place.
+ * <p>
+ * The handler declares {@code Object self} first when the target method is not static, then
+ * for {@link Point#RETURN} and {@link Point#TAIL} the value about to be returned, then any
+ * number of the leading arguments of the target method. Every overload of {@link #method()}
+ * accepting these parameters is injected, in ascending {@link Mixin#priority() priority}
+ * order when several mixins inject at the same point.
+ * <p>
+ * Nothing is allocated per call, the handler answers through its return type:
+ * <ul>
+ *     <li>a {@link #cancellable()} {@link Point#HEAD} handler returns {@code boolean},
+ *     {@code true} returns from the target method right away with {@code 0}, {@code false}
+ *     or {@code null}, after running its return injectors, which can replace that value;</li>
+ *     <li>a return handler declaring the return type of the target method replaces the
+ *     returned value, one declaring {@code void} only observes it;</li>
+ *     <li>any other handler returns {@code void}.</li>
+ * </ul>
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Inject {
+    
+    /**
+     * Name of the target method.
+     */
+    String method();
+    
+    Point at();
+    
+    /**
+     * Lets a {@link Point#HEAD} handler return {@code true} to skip the body of the target method.
+     */
+    boolean cancellable() default false;
+}
@@ -0,0 +1,25 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Calls a method of the target class from a method of a {@link Mixin} interface,
+ * declared with the same descriptor as the target method.
+ * <p>
+ * The target class implements the interface, so casting any instance of it to the
+ * interface calls the method directly, private ones included.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Invoker {
+    
+    /**
+     * Name of the target method.
+     */
+    String value();
+}
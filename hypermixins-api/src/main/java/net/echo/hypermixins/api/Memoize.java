@@ -0,0 +1,45 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of a pure method of the target class of a {@link Mixin}, every
+ * overload having its own cache.
+ * <p>
+ * Results are keyed on the arguments and, for instance methods, on the receiver, compared
+ * with {@code equals}. A call with cached arguments returns the cached result without running
+ * the method, thrown exceptions are not cached. The cache holds at most {@link #maxSize()}
+ * results, rounded up to a power of two, each new result evicting the one it collides with.
+ * <p>
+ * Counters and invalidation are available through {@link net.echo.hypermixins.agent.MemoCache}.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(Memoize.List.class)
+public @interface Memoize {
+    
+    /**
+     * Name of the target method, it must return a value.
+     */
+    String method();
+    
+    int maxSize() default 1024;
+    
+    /**
+     * How long a result stays valid after it was computed, {@code 0} keeps it until it is evicted.
+     */
+    long expireAfterMillis() default 0;
+    
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @interface List {
+        
+        Memoize[] value();
+    }
+}
@@ -9,7 +9,14 @@ import java.lang.annotation.Target;
  * Declares a class as a mixin targeting an existing class.
  * <p>
  * Methods annotated with {@link Overwrite} or {@link Original} will be
- * applied to the specified target class at runtime.
+ * applied to the specified target class at runtime. An interface declaring
+ * {@link Accessor} and {@link Invoker} methods is implemented by the target class.
+ * <p>
+ * A mixin can also target many classes at once through a pattern, e.g. to patch the same
+ * method in every implementation of an interface. Each matching class declaring a target
+ * method gets the overwrites, redirects, injects and metrics of that method, the other ones
+ * are left as they are. {@link Original}, {@link Shadow}, {@link Accessor} and {@link Invoker}
+ * need a single target class and cannot be used with a pattern.
  *
  * @author xEcho1337
  */
@@ -18,8 +25,26 @@ import java.lang.annotation.Target;
 public @interface Mixin {
     
     /**
-     * Fully qualified binary name of the target class.
+     * Priority of mixins that don't declare one.
+     */
+    int DEFAULT_PRIORITY = 1000;
+    
+    /**
+     * Fully qualified binary name of the target class, or a pattern:
+     * <ul>
+     *     <li>{@code com.example.Entity+} targets {@code Entity} and every class extending or
+     *     implementing it, directly or not;</li>
+     *     <li>{@code com.example.entity.*} targets every class of the package;</li>
+     *     <li>{@code com.example.entity.**} targets every class of the package and of its subpackages.</li>
+     * </ul>
      */
     String value();
+    
+    /**
+     * Order of this mixin among the mixins of the same target, lower priorities are applied first.
+     * When two mixins overwrite the same method or redirect the same invoke, the one with the
+     * higher priority wins and the conflict is reported at startup.
+     */
+    int priority() default DEFAULT_PRIORITY;
 }
 
@@ -0,0 +1,74 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs a {@link Redirect} handler on an executor instead of the thread reaching the call site,
+ * so a blocking call such as a file write or a sleep never holds up a hot loop.
+ * <p>
+ * Only calls returning {@code void} can be offloaded, the call site returns as soon as the call
+ * is submitted. Its arguments are captured as they are, a mutable argument must not be changed
+ * afterward. Calls are run on the executor registered under {@link #executor()} through
+ * {@link net.echo.hypermixins.HyperMixins#setOffloadExecutor}, one virtual thread per call by
+ * default. Virtual threads do not keep the JVM alive, calls still pending at exit are lost.
+ * <p>
+ * Each call site keeps at most {@link #maxPending()} calls waiting to run, the ones beyond are
+ * handled by {@link #overflow()}. A failing handler is reported to {@code System.err}. Counters
+ * of every call site are available through {@link net.echo.hypermixins.HyperMixins#offloadStats}.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Offload {
+    
+    /**
+     * Name of the executor used when none is registered under the requested name, runs each call
+     * on a virtual thread of its own unless replaced.
+     */
+    String DEFAULT_EXECUTOR = "default";
+    
+    /**
+     * Name of the executor running the calls.
+     */
+    String executor() default DEFAULT_EXECUTOR;
+    
+    /**
+     * Calls of a call site waiting to run, beyond which {@link #overflow()} applies.
+     */
+    int maxPending() default 1024;
+    
+    /**
+     * What a call site does with a call when {@link #maxPending()} calls are already waiting.
+     */
+    Overflow overflow() default Overflow.DISCARD;
+    
+    /**
+     * Runs the calls of a call site one after the other, in the order they were made, by a single
+     * task submitted for every burst of calls instead of one task per call.
+     */
+    boolean batch() default false;
+    
+    /**
+     * Only runs the last call of a call site made while the previous one was waiting, the earlier
+     * ones are dropped. Suits calls that supersede each other, such as saving a state. Implies
+     * {@link #batch()}, at most one call runs at a time.
+     */
+    boolean coalesce() default false;
+    
+    enum Overflow {
+        
+        /**
+         * Drops the call, the call site never blocks.
+         */
+        DISCARD,
+        
+        /**
+         * Runs the call on the thread of the call site, which slows down as the executor does.
+         */
+        CALLER_RUNS
+    }
+}
@@ -7,7 +7,8 @@ import java.lang.annotation.RetentionPolicy;
  * Marks a method as a call to the original implementation
  * of a target method.
  * <p>
- * The method must declare {@code Object self} as its first parameter.
+ * The method must declare {@code Object self} as its first parameter, unless the target
+ * method is static: the method is then static too and takes exactly the parameters of the target.
  *
  * @author xEcho1337
  */
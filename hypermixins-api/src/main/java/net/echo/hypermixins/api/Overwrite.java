@@ -8,6 +8,10 @@ import java.lang.annotation.Target;
 
 /**
  * Replaces the body of a method in the target class.
+ * <p>
+ * An instance method declares {@code Object self} before the parameters of the target method.
+ * A static method overwrites a static target method, takes exactly its parameters and is
+ * called directly, without any mixin instance.
  *
  * @author xEcho1337
  */
@@ -15,4 +19,17 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface Overwrite {
     String value();
+    
+    /**
+     * Copies the bytecode of the mixin method into the target method instead of
+     * turning it into a trampoline to the mixin.
+     * <p>
+     * The woven method is a single frame: {@code self}, if any, becomes {@code this} and
+     * {@link Original} calls become direct calls to the original copy in the target.
+     * Its code runs inside the target class, so it is only copied if every type and member it
+     * references is accessible from the package of the target: public ones, and the non-private
+     * ones of that package. Otherwise, e.g. when it uses a private or package-private member of
+     * the mixin from another package, the overwrite stays a trampoline.
+     */
+    boolean inline() default false;
 }
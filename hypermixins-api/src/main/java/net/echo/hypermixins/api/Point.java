@@ -0,0 +1,24 @@
+package net.echo.hypermixins.api;
+
+/**
+ * Where an {@link Inject} handler is called within its target method.
+ *
+ * @author xEcho1337
+ */
+public enum Point {
+    
+    /**
+     * Before the first instruction. In constructors, only {@link #RETURN} and {@link #TAIL} are allowed.
+     */
+    HEAD,
+    
+    /**
+     * Before every return instruction.
+     */
+    RETURN,
+    
+    /**
+     * Before the last return instruction of the method.
+     */
+    TAIL
+}
@@ -7,4 +7,12 @@ import java.lang.annotation.RetentionPolicy;
 public @interface Redirect {
     String method();
     At at();
+    
+    /**
+     * Weaves the call site as an {@code invokedynamic} that can be switched back to the
+     * original invoke, or to another handler, at runtime through
+     * {@link net.echo.hypermixins.HyperMixins#disableRedirect} and friends. The redirect is
+     * addressed by the name of its handler, which therefore cannot be overloaded.
+     */
+    boolean dynamic() default false;
 }
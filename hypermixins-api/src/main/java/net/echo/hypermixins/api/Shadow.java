@@ -0,0 +1,26 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a field or method of the target class inside a mixin, with the same name,
+ * type and static modifier.
+ * <p>
+ * Accesses to a shadow member through {@code this} act on {@code self}, so the method
+ * must declare {@code Object self} as its first parameter, and static shadow members can
+ * be used from any method. Both are rewritten into calls to public synthetic accessors
+ * added to the target, or into direct field accesses in an
+ * {@link Overwrite#inline() inline} overwrite, no reflection is involved.
+ * <p>
+ * The mixin declaration is never used: shadow fields are not mixin state and shadow
+ * methods can be {@code native}.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Shadow {
+}
@@ -0,0 +1,28 @@
+package net.echo.hypermixins.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Measures methods of the target class of a {@link Mixin}, every overload included.
+ * <p>
+ * The woven methods read {@link System#nanoTime()} on entry and record the elapsed time
+ * when they return or throw, in a striped counter and a histogram that never lock nor
+ * allocate. Results are read through {@link net.echo.hypermixins.HyperMixins#metrics()}
+ * or JMX, see {@link net.echo.hypermixins.agent.MethodMetrics}.
+ * <p>
+ * Constructors and static initializers cannot be timed.
+ *
+ * @author xEcho1337
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Timed {
+    
+    /**
+     * Names of the target methods.
+     */
+    String[] value();
+}
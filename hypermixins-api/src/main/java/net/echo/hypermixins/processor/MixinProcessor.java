@@ -0,0 +1,674 @@
+package net.echo.hypermixins.processor;
+
+import net.echo.hypermixins.agent.MethodRef;
+import net.echo.hypermixins.agent.MixinIndex;
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.OffloadMapping;
+import net.echo.hypermixins.agent.RedirectIndex;
+import net.echo.hypermixins.agent.RedirectMapping;
+import net.echo.hypermixins.api.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compile-time counterpart of {@link MixinMapping}.
+ * <p>
+ * Runs the checks the agent would otherwise throw at startup as compiler errors on the
+ * offending method, and writes the {@link MixinIndex} of the compiled mixins so
+ * {@link net.echo.hypermixins.HyperMixins#register(java.lang.instrument.Instrumentation, ClassLoader)}
+ * can build the mappings without reflection and without loading the mixin classes.
+ * <p>
+ * Enable it with {@code annotationProcessor "net.echo:hypermixins-api"} in Gradle.
+ *
+ * @author xEcho1337
+ */
+public class MixinProcessor extends AbstractProcessor {
+    
+    private static final List<Class<? extends Annotation>> MEMBERS = List.of(
+        Overwrite.class,
+        Original.class,
+        Redirect.class,
+        Offload.class,
+        Inject.class,
+        Shadow.class,
+        Accessor.class,
+        Invoker.class
+    );
+    
+    private static final List<Class<? extends Annotation>> TYPE_MEMBERS = List.of(
+        Timed.class,
+        Counted.class,
+        Memoize.class,
+        Memoize.List.class,
+        Access.class,
+        Access.List.class
+    );
+    
+    private final List<String> index = new ArrayList<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+    private boolean failed;
+    
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new HashSet<>();
+        
+        types.add(Mixin.class.getCanonicalName());
+        
+        for (Class<? extends Annotation> member : MEMBERS) {
+            types.add(member.getCanonicalName());
+        }
+        
+        for (Class<? extends Annotation> member : TYPE_MEMBERS) {
+            types.add(member.getCanonicalName());
+        }
+        
+        return types;
+    }
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Mixin.class)) {
+            if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.INTERFACE) {
+                error("@Mixin can only be applied to classes and interfaces", element);
+                continue;
+            }
+            
+            processMixin((TypeElement) element);
+        }
+        
+        for (Class<? extends Annotation> member : MEMBERS) {
+            for (Element element : round.getElementsAnnotatedWith(member)) {
+                if (element.getEnclosingElement().getAnnotation(Mixin.class) == null) {
+                    error("@" + member.getSimpleName() + " can only be used inside a @Mixin type", element);
+                }
+            }
+        }
+        
+        for (Class<? extends Annotation> member : TYPE_MEMBERS) {
+            for (Element element : round.getElementsAnnotatedWith(member)) {
+                if (element.getAnnotation(Mixin.class) == null) {
+                    error("@" + member.getSimpleName() + " can only be used on a @Mixin class", element);
+                }
+            }
+        }
+        
+        if (round.processingOver() && !failed && !round.errorRaised() && !index.isEmpty()) {
+            writeIndex();
+        }
+        
+        return false;
+    }
+    
+    private void processMixin(TypeElement type) {
+        Mixin mixin = type.getAnnotation(Mixin.class);
+        String mixinName = internalName(type);
+        
+        if (mixin.value().isEmpty() || !isToken(mixin.value())) {
+            error("Invalid target class in @Mixin: \"" + mixin.value() + "\"", type);
+            return;
+        }
+        
+        try {
+            MixinMapping.checkTarget(mixin.value());
+        } catch (IllegalArgumentException ex) {
+            error(ex.getMessage(), type);
+            return;
+        }
+        
+        boolean pattern = MixinMapping.isPattern(mixin.value());
+        
+        List<String> entries = new ArrayList<>();
+        List<RedirectMapping> redirects = new ArrayList<>();
+        Set<String> overwrites = new HashSet<>();
+        
+        entries.add(line(
+            MixinIndex.MIXIN,
+            mixinName,
+            mixin.value(),
+            Integer.toString(mixin.priority()),
+            isStateless(type) ? MixinIndex.STATELESS : null
+        ));
+        
+        Timed timed = type.getAnnotation(Timed.class);
+        Counted counted = type.getAnnotation(Counted.class);
+        
+        processMetrics(type, MixinIndex.TIMED, timed == null ? new String[0] : timed.value(), entries);
+        processMetrics(type, MixinIndex.COUNTED, counted == null ? new String[0] : counted.value(), entries);
+        processMemoizes(type, entries);
+        processAccesses(type, pattern, entries);
+        
+        for (Element element : type.getEnclosedElements()) {
+            if (pattern && needsSingleTarget(element)) {
+                error("@Original, @Shadow, @Accessor and @Invoker need a single target class, not a pattern", element);
+                continue;
+            }
+            
+            if (element.getKind() == ElementKind.FIELD && element.getAnnotation(Shadow.class) != null) {
+                processShadow(element, descriptor(element.asType()), entries);
+            }
+            
+            if (element.getKind() != ElementKind.METHOD) continue;
+            
+            ExecutableElement method = (ExecutableElement) element;
+            
+            if (method.getAnnotation(Shadow.class) != null) {
+                processShadow(method, descriptor(method), entries);
+            } else if (method.getAnnotation(Accessor.class) != null || method.getAnnotation(Invoker.class) != null) {
+                processAccessor(method, type, entries);
+            } else if (method.getAnnotation(Original.class) != null) {
+                processOriginal(method, entries);
+            } else if (method.getAnnotation(Overwrite.class) != null) {
+                processOverwrite(method, mixin, overwrites, entries);
+            } else if (method.getAnnotation(Redirect.class) != null) {
+                processRedirect(method, mixinName, redirects, entries);
+            } else if (method.getAnnotation(Inject.class) != null) {
+                processInject(method, entries);
+            }
+            
+            if (method.getAnnotation(Offload.class) != null && method.getAnnotation(Redirect.class) == null) {
+                error("@Offload can only be used on a @Redirect method", method);
+            }
+        }
+        
+        try {
+            new RedirectIndex(redirects);
+        } catch (RuntimeException ex) {
+            error(ex.getMessage(), type);
+        }
+        
+        index.addAll(entries);
+        originatingElements.add(type);
+    }
+    
+    private void processMetrics(TypeElement type, String kind, String[] methods, List<String> entries) {
+        for (String method : methods) {
+            try {
+                MixinMapping.checkMetric(method);
+            } catch (IllegalArgumentException ex) {
+                error(ex.getMessage(), type);
+                continue;
+            }
+            
+            if (!isToken(method)) {
+                error("Invalid method name in @Timed or @Counted: \"" + method + "\"", type);
+                continue;
+            }
+            
+            entries.add(line(kind, method));
+        }
+    }
+    
+    private void processMemoizes(TypeElement type, List<String> entries) {
+        Set<String> memoized = new HashSet<>();
+        
+        for (Memoize memoize : type.getAnnotationsByType(Memoize.class)) {
+            try {
+                MixinMapping.checkMemoize(memoize.method(), memoize.maxSize(), memoize.expireAfterMillis());
+            } catch (IllegalArgumentException ex) {
+                error(ex.getMessage(), type);
+                continue;
+            }
+            
+            if (!isToken(memoize.method())) {
+                error("Invalid method name in @Memoize: \"" + memoize.method() + "\"", type);
+                continue;
+            }
+            
+            if (!memoized.add(memoize.method())) {
+                error("Duplicate @Memoize for " + memoize.method(), type);
+                continue;
+            }
+            
+            entries.add(line(
+                MixinIndex.MEMOIZE,
+                memoize.method(),
+                Integer.toString(memoize.maxSize()),
+                Long.toString(memoize.expireAfterMillis())
+            ));
+        }
+    }
+    
+    private void processAccesses(TypeElement type, boolean pattern, List<String> entries) {
+        for (Access access : type.getAnnotationsByType(Access.class)) {
+            try {
+                MixinMapping.checkAccess(access.field(), access.method(), access.makePublic(), access.makeFinal(), pattern);
+            } catch (IllegalArgumentException ex) {
+                error(ex.getMessage(), type);
+                continue;
+            }
+            
+            if (!isToken(access.field()) || !isToken(access.method())) {
+                error("Invalid member name in @Access: \"" + access.field() + access.method() + "\"", type);
+                continue;
+            }
+            
+            String kind = !access.field().isEmpty() ? MixinIndex.FIELD : !access.method().isEmpty() ? MixinIndex.METHOD : MixinIndex.CLASS;
+            
+            entries.add(line(
+                MixinIndex.ACCESS,
+                kind,
+                kind.equals(MixinIndex.CLASS) ? null : access.field() + access.method(),
+                access.makePublic() ? MixinIndex.PUBLIC : null,
+                access.makeFinal() ? MixinIndex.FINAL : null
+            ));
+        }
+    }
+    
+    private void processShadow(Element member, String desc, List<String> entries) {
+        if (desc == null) return;
+        
+        entries.add(line(
+            MixinIndex.SHADOW,
+            member.getSimpleName().toString(),
+            desc,
+            member.getModifiers().contains(Modifier.STATIC) ? MixinIndex.STATIC : null
+        ));
+    }
+    
+    private void processAccessor(ExecutableElement method, TypeElement type, List<String> entries) {
+        Accessor accessor = method.getAnnotation(Accessor.class);
+        Invoker invoker = method.getAnnotation(Invoker.class);
+        String target = accessor != null ? accessor.value() : invoker.value();
+        
+        if (type.getKind() != ElementKind.INTERFACE || method.getModifiers().contains(Modifier.STATIC)) {
+            error("@Accessor and @Invoker must be abstract methods of a mixin interface", method);
+            return;
+        }
+        
+        if (target.isEmpty() || !isToken(target)) {
+            error("Value inside @Accessor or @Invoker is empty or invalid", method);
+            return;
+        }
+        
+        String desc = descriptor(method);
+        
+        if (desc == null) return;
+        
+        try {
+            MixinMapping.checkAccessor(desc, invoker != null);
+        } catch (IllegalArgumentException ex) {
+            error(ex.getMessage(), method);
+            return;
+        }
+        
+        entries.add(line(invoker != null ? MixinIndex.INVOKER : MixinIndex.ACCESSOR, name(method), desc, target));
+    }
+    
+    private void processOriginal(ExecutableElement method, List<String> entries) {
+        Original original = method.getAnnotation(Original.class);
+        
+        if (original.value().isEmpty() || !isToken(original.value())) {
+            error("Value inside @Original is empty or invalid", method);
+            return;
+        }
+        
+        if (!method.getModifiers().contains(Modifier.STATIC) && method.getParameters().isEmpty()) {
+            error("@Original method must declare Object self as first parameter", method);
+            return;
+        }
+        
+        String desc = descriptor(method);
+        
+        if (desc != null) {
+            entries.add(line(MixinIndex.ORIGINAL, name(method), desc, original.value()));
+        }
+    }
+    
+    private void processOverwrite(
+        ExecutableElement method,
+        Mixin mixin,
+        Set<String> overwrites,
+        List<String> entries
+    ) {
+        Overwrite overwrite = method.getAnnotation(Overwrite.class);
+        
+        if (overwrite.value().isEmpty() || !isToken(overwrite.value())) {
+            error("Value inside @Overwrite is empty or invalid", method);
+            return;
+        }
+        
+        boolean isStatic = method.getModifiers().contains(Modifier.STATIC);
+        
+        // static methods take the parameters of the target as they are, there is no self
+        if (!isStatic) {
+            if (method.getParameters().isEmpty()) {
+                error("Missing Object self on overwritten method", method);
+                return;
+            }
+            
+            for (VariableElement parameter : method.getParameters()) {
+                String name = binaryName(parameter.asType());
+                
+                if (name != null && MixinMapping.isTargetType(mixin.value(), name)) {
+                    error(
+                        "Overwritten methods cannot contain a reference to the target class! "
+                            + "Use \"Object self\" instead and cast the object later",
+                        parameter
+                    );
+                    return;
+                }
+            }
+        }
+        
+        String desc = descriptor(method);
+        
+        if (desc == null) return;
+        
+        String key = overwrite.value() + (isStatic ? desc : MixinMapping.targetDescriptor(desc));
+        
+        if (!overwrites.add(key)) {
+            error("Duplicate @Overwrite for " + key, method);
+            return;
+        }
+        
+        entries.add(line(
+            MixinIndex.OVERWRITE,
+            name(method),
+            desc,
+            overwrite.value(),
+            overwrite.inline() ? MixinIndex.INLINE : null,
+            isStatic ? MixinIndex.STATIC : null
+        ));
+    }
+    
+    private void processRedirect(
+        ExecutableElement method,
+        String mixinName,
+        List<RedirectMapping> redirects,
+        List<String> entries
+    ) {
+        Redirect redirect = method.getAnnotation(Redirect.class);
+        At at = redirect.at();
+        
+        if (!method.getModifiers().contains(Modifier.STATIC)) {
+            error("@Redirect methods must be static", method);
+            return;
+        }
+        
+        if (at.desc().isEmpty() || !isToken(at.desc())) {
+            error("Missing or invalid desc in @At for @Redirect", method);
+            return;
+        }
+        
+        if (redirect.method().isEmpty() || !isToken(redirect.method())) {
+            error("Missing or invalid target method in @Redirect", method);
+            return;
+        }
+        
+        if (at.index() < 0) {
+            error("Negative index in @Redirect", method);
+            return;
+        }
+        
+        if (at.count() <= 0) {
+            error("Count must be positive in @Redirect", method);
+            return;
+        }
+        
+        String handlerDesc = descriptor(method);
+        
+        if (handlerDesc == null) return;
+        
+        String invokeDesc;
+        
+        try {
+            invokeDesc = MixinMapping.handlerDescriptor(at.desc(), at.call());
+        } catch (IllegalArgumentException ex) {
+            error(ex.getMessage(), method);
+            return;
+        }
+        
+        if (!handlerDesc.equals(invokeDesc)) {
+            error(
+                "Redirect method signature does not match " + at.call() + " signature! Expected: "
+                    + invokeDesc + " Found: " + handlerDesc,
+                method
+            );
+            return;
+        }
+        
+        Offload offload = method.getAnnotation(Offload.class);
+        
+        if (offload != null) {
+            try {
+                MixinMapping.checkOffload(at.call(), at.desc(), redirect.dynamic(), offload.executor(), offload.maxPending());
+            } catch (IllegalArgumentException ex) {
+                error(ex.getMessage(), method);
+                return;
+            }
+        }
+        
+        redirects.add(new RedirectMapping(
+            redirect.method(),
+            at.desc(),
+            at.index(),
+            at.count(),
+            at.call(),
+            new MethodRef(mixinName, name(method), handlerDesc),
+            redirect.dynamic(),
+            offload == null ? null : new OffloadMapping(
+                offload.executor(),
+                offload.maxPending(),
+                offload.overflow(),
+                offload.batch(),
+                offload.coalesce()
+            )
+        ));
+        
+        entries.add(line(
+            MixinIndex.REDIRECT,
+            name(method),
+            handlerDesc,
+            redirect.method(),
+            at.desc(),
+            at.call().name(),
+            Integer.toString(at.index()),
+            Integer.toString(at.count()),
+            redirect.dynamic() ? MixinIndex.DYNAMIC : null
+        ));
+        
+        if (offload != null) {
+            entries.add(line(
+                MixinIndex.OFFLOAD,
+                name(method),
+                handlerDesc,
+                offload.executor(),
+                Integer.toString(offload.maxPending()),
+                offload.overflow().name(),
+                offload.batch() ? MixinIndex.BATCH : null,
+                offload.coalesce() ? MixinIndex.COALESCE : null
+            ));
+        }
+    }
+    
+    private void processInject(ExecutableElement method, List<String> entries) {
+        Inject inject = method.getAnnotation(Inject.class);
+        
+        if (!method.getModifiers().contains(Modifier.STATIC)) {
+            error("@Inject methods must be static", method);
+            return;
+        }
+        
+        if (inject.method().isEmpty() || !isToken(inject.method())) {
+            error("Missing or invalid target method in @Inject", method);
+            return;
+        }
+        
+        String handlerDesc = descriptor(method);
+        
+        if (handlerDesc == null) return;
+        
+        try {
+            MixinMapping.checkInject(inject.method(), inject.at(), inject.cancellable(), handlerDesc);
+        } catch (IllegalArgumentException ex) {
+            error(ex.getMessage(), method);
+            return;
+        }
+        
+        entries.add(line(
+            MixinIndex.INJECT,
+            name(method),
+            handlerDesc,
+            inject.method(),
+            inject.at().name(),
+            inject.cancellable() ? MixinIndex.CANCELLABLE : null
+        ));
+    }
+    
+    private void writeIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT,
+                "",
+                MixinIndex.RESOURCE,
+                originatingElements.toArray(new Element[0])
+            );
+            
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write(MixinIndex.HEADER);
+                writer.write('\n');
+                
+                for (String line : index) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                "Unable to write " + MixinIndex.RESOURCE + ": " + ex.getMessage()
+            );
+        }
+    }
+    
+    private static boolean needsSingleTarget(Element element) {
+        return element.getAnnotation(Original.class) != null
+            || element.getAnnotation(Shadow.class) != null
+            || element.getAnnotation(Accessor.class) != null
+            || element.getAnnotation(Invoker.class) != null;
+    }
+    
+    private boolean isStateless(TypeElement type) {
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            if (current.getQualifiedName().contentEquals("java.lang.Object")) break;
+            
+            for (Element element : current.getEnclosedElements()) {
+                // shadow fields stand for fields of the target
+                if (element.getKind() == ElementKind.FIELD
+                    && !element.getModifiers().contains(Modifier.STATIC)
+                    && element.getAnnotation(Shadow.class) == null) {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+    }
+    
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        
+        if (superclass.getKind() != TypeKind.DECLARED) return null;
+        
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+    
+    /**
+     * Erased JVM descriptor of a method, or {@code null} if one of its types is unresolved.
+     */
+    private String descriptor(ExecutableElement method) {
+        StringBuilder desc = new StringBuilder("(");
+        
+        for (VariableElement parameter : method.getParameters()) {
+            String type = descriptor(parameter.asType());
+            
+            if (type == null) return null;
+            
+            desc.append(type);
+        }
+        
+        String returnType = descriptor(method.getReturnType());
+        return returnType == null ? null : desc.append(')').append(returnType).toString();
+    }
+    
+    private String descriptor(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        
+        return switch (erased.getKind()) {
+            case BOOLEAN -> "Z";
+            case BYTE -> "B";
+            case CHAR -> "C";
+            case SHORT -> "S";
+            case INT -> "I";
+            case LONG -> "J";
+            case FLOAT -> "F";
+            case DOUBLE -> "D";
+            case VOID -> "V";
+            case ARRAY -> {
+                String component = descriptor(((ArrayType) erased).getComponentType());
+                yield component == null ? null : "[" + component;
+            }
+            case DECLARED -> "L" + internalName((TypeElement) ((DeclaredType) erased).asElement()) + ";";
+            default -> null; // unresolved, javac reports it already
+        };
+    }
+    
+    private String binaryName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        
+        if (erased.getKind() != TypeKind.DECLARED) return null;
+        
+        return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString();
+    }
+    
+    private String internalName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString().replace('.', '/');
+    }
+    
+    private static String name(ExecutableElement method) {
+        return method.getSimpleName().toString();
+    }
+    
+    private static String line(String... fields) {
+        StringJoiner joiner = new StringJoiner(" ");
+        
+        for (String field : fields) {
+            if (field != null) joiner.add(field);
+        }
+        
+        return joiner.toString();
+    }
+    
+    /**
+     * Index fields are space separated, annotation values must not contain whitespace.
+     */
+    private static boolean isToken(String value) {
+        return value.chars().noneMatch(Character::isWhitespace);
+    }
+    
+    private void error(String message, Element element) {
+        failed = true;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
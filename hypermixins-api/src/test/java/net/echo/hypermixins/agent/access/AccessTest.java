@@ -0,0 +1,93 @@
+package net.echo.hypermixins.agent.access;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validation of {@link net.echo.hypermixins.api.Access} changes against the classes of the target package.
+ *
+ * @author xEcho1337
+ */
+class AccessTest {
+    
+    private static final String PACKAGE = "net.echo.hypermixins.agent.access.";
+    
+    private MixinTransformer transformer;
+    private WeavingClassLoader loader;
+    
+    @BeforeEach
+    void weave() {
+        transformer = new MixinTransformer(List.of(
+            new MixinMapping(BaseMixin.class),
+            new MixinMapping(LeafMixin.class),
+            new MixinMapping(OpenMixin.class),
+            new MixinMapping(NestMixin.class)
+        ));
+        loader = new WeavingClassLoader(AccessTest.class.getClassLoader(), transformer);
+    }
+    
+    @Test
+    void classExtendedIndirectlyStaysOpen() throws ReflectiveOperationException {
+        assertFalse(Modifier.isFinal(load(Base.class).getModifiers()));
+        assertRejected("Base", BaseMixin.class, "it is extended by " + PACKAGE + "Deep, " + PACKAGE + "Mid");
+    }
+    
+    @Test
+    void methodOverriddenIndirectlyStaysOpen() throws ReflectiveOperationException {
+        Class<?> base = load(Base.class);
+        
+        assertTrue(Modifier.isFinal(base.getDeclaredMethod("tick").getModifiers()));
+        assertFalse(Modifier.isFinal(base.getDeclaredMethod("over").getModifiers()));
+        assertRejected("Base.over()I", BaseMixin.class, "it is overridden by " + PACKAGE + "Deep");
+    }
+    
+    @Test
+    void publicMembersStayOpen() throws ReflectiveOperationException {
+        assertFalse(Modifier.isFinal(load(Base.class).getDeclaredMethod("shared").getModifiers()));
+        assertFalse(Modifier.isFinal(load(Open.class).getModifiers()));
+        assertRejected("Open", OpenMixin.class, "it is public, its subclasses cannot all be listed");
+    }
+    
+    @Test
+    void classWithoutSubclassesIsFinalized() throws ReflectiveOperationException {
+        Class<?> leaf = load(Leaf.class);
+        
+        assertTrue(Modifier.isFinal(leaf.getModifiers()));
+        assertTrue(Modifier.isPublic(leaf.getModifiers()));
+        assertTrue(Modifier.isFinal(leaf.getDeclaredMethod("value").getModifiers()));
+    }
+    
+    @Test
+    void fieldsOnlyWrittenByTheirInitializerAreFinalized() throws ReflectiveOperationException {
+        Class<?> base = load(Base.class);
+        
+        assertTrue(Modifier.isFinal(base.getDeclaredField("count").getModifiers()));
+        assertFalse(Modifier.isFinal(base.getDeclaredField("written").getModifiers()));
+        assertRejected("Base.written", BaseMixin.class, "it is written by tick");
+    }
+    
+    @Test
+    void fieldsOfNestmatesStayOpen() throws ReflectiveOperationException {
+        assertFalse(Modifier.isFinal(load(Nest.class).getDeclaredField("value").getModifiers()));
+        assertRejected("Nest.value", NestMixin.class, "its nestmates may write it");
+    }
+    
+    private Class<?> load(Class<?> target) throws ClassNotFoundException {
+        return loader.loadClass(target.getName());
+    }
+    
+    private void assertRejected(String member, Class<?> mixin, String reason) {
+        String change = PACKAGE + member + " not made final by " + mixin.getName() + ", " + reason;
+        assertTrue(transformer.accessChanges().contains(change), () -> change + " not in " + transformer.accessChanges());
+        assertTrue(transformer.warnings().contains(change), () -> change + " not warned");
+    }
+}
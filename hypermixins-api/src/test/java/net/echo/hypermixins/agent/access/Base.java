@@ -0,0 +1,29 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Target of {@link BaseMixin}, extended within its package by {@link Mid}, and through it by
+ * {@link Deep}.
+ *
+ * @author xEcho1337
+ */
+class Base {
+    
+    private int count;
+    private int written;
+    
+    Base() {
+        count = 1;
+    }
+    
+    int tick() {
+        return ++written + count;
+    }
+    
+    int over() {
+        return 1;
+    }
+    
+    public int shared() {
+        return 3;
+    }
+}
@@ -0,0 +1,19 @@
+package net.echo.hypermixins.agent.access;
+
+import net.echo.hypermixins.api.Access;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Makes {@link Base} and its members final, only some of them can be.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.access.Base")
+@Access(makeFinal = true)
+@Access(field = "count", makeFinal = true)
+@Access(field = "written", makeFinal = true)
+@Access(method = "tick", makeFinal = true)
+@Access(method = "over", makeFinal = true)
+@Access(method = "shared", makeFinal = true)
+public class BaseMixin {
+}
@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Indirect subclass of {@link Base}, overriding one of its package private methods.
+ *
+ * @author xEcho1337
+ */
+class Deep extends Mid {
+    
+    @Override
+    int over() {
+        return 2;
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Target of {@link LeafMixin}, extended by no class.
+ *
+ * @author xEcho1337
+ */
+class Leaf {
+    
+    int value() {
+        return 4;
+    }
+}
@@ -0,0 +1,15 @@
+package net.echo.hypermixins.agent.access;
+
+import net.echo.hypermixins.api.Access;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Makes {@link Leaf} public and final.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.access.Leaf")
+@Access(makeFinal = true, makePublic = true)
+@Access(method = "value", makeFinal = true)
+public class LeafMixin {
+}
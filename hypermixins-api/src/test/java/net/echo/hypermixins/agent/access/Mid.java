@@ -0,0 +1,9 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Direct subclass of {@link Base}, overriding nothing.
+ *
+ * @author xEcho1337
+ */
+class Mid extends Base {
+}
@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Nest host, whose nested class could write its private fields directly.
+ *
+ * @author xEcho1337
+ */
+class Nest {
+    
+    private int value;
+    
+    Nest() {
+        value = 5;
+    }
+    
+    static class Inner {
+    }
+}
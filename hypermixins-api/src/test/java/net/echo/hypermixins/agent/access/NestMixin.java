@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.access;
+
+import net.echo.hypermixins.api.Access;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Makes a private field of {@link Nest} final.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.access.Nest")
+@Access(field = "value", makeFinal = true)
+public class NestMixin {
+}
@@ -0,0 +1,9 @@
+package net.echo.hypermixins.agent.access;
+
+/**
+ * Public target of {@link OpenMixin}, which any package could extend.
+ *
+ * @author xEcho1337
+ */
+public class Open {
+}
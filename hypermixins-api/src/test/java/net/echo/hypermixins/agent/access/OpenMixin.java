@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.access;
+
+import net.echo.hypermixins.api.Access;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Makes {@link Open} final.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.access.Open")
+@Access(makeFinal = true)
+public class OpenMixin {
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.cache;
+
+/**
+ * Target of {@link CachedMixin}, woven once and then read back from the cache.
+ *
+ * @author xEcho1337
+ */
+public class Cached {
+    
+    public int value() {
+        return 1;
+    }
+}
@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.cache;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Overwrites {@link Cached#value}.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.cache.Cached")
+public class CachedMixin {
+    
+    @Overwrite("value")
+    public int value(Object self) {
+        return 2;
+    }
+}
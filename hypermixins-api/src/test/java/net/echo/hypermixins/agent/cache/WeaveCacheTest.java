@@ -0,0 +1,177 @@
+package net.echo.hypermixins.agent.cache;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeaveCache;
+import net.echo.hypermixins.agent.WeaveMetrics;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hits, misses, invalidation and eviction of the persistent weave cache.
+ *
+ * @author xEcho1337
+ */
+class WeaveCacheTest {
+    
+    private static final long MAX_SIZE = 1 << 20;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void weavesOnAMissAndServesTheNextRunFromTheCache() {
+        WeaveCache cache = new WeaveCache(directory, MAX_SIZE);
+        MixinTransformer first = transformer(cache);
+        
+        assertEquals(2, WeavingClassLoader.invoke(load(first), "value"));
+        assertEquals(0, cache.stats().hits());
+        assertEquals(0, stats(first).cacheHits());
+        
+        // another run, every class is read back from the entries written by the first one
+        WeaveCache reopened = new WeaveCache(directory, MAX_SIZE);
+        MixinTransformer second = transformer(reopened);
+        
+        assertEquals(2, WeavingClassLoader.invoke(load(second), "value"));
+        assertEquals(cache.stats().misses(), reopened.stats().hits());
+        assertEquals(0, reopened.stats().misses());
+        assertEquals(1, stats(second).cacheHits());
+        assertEquals(1, stats(second).overwrites());
+    }
+    
+    @Test
+    void readsBackEveryFieldOfAnEntry() {
+        WeaveCache cache = new WeaveCache(directory, MAX_SIZE);
+        byte[] key = cache.key(new byte[] {1}, List.of());
+        WeaveCache.Entry entry = new WeaveCache.Entry(new byte[] {1, 2, 3}, 4, 5, List.of("value()I", "naïve(J)V"));
+        
+        assertNull(cache.get(key));
+        cache.put(key, entry);
+        
+        WeaveCache.Entry read = cache.get(key);
+        
+        assertArrayEquals(entry.woven(), read.woven());
+        assertEquals(entry.overwrites(), read.overwrites());
+        assertEquals(entry.redirects(), read.redirects());
+        assertEquals(entry.unmatched(), read.unmatched());
+        assertEquals(new WeaveCache.Stats(1, 1, 0, cache.stats().size()), cache.stats());
+    }
+    
+    @Test
+    void keysChangeWithTheClassAndItsMixins() {
+        WeaveCache cache = new WeaveCache(directory, MAX_SIZE);
+        List<MixinMapping> mixins = List.of(new MixinMapping(CachedMixin.class));
+        Set<String> keys = new HashSet<>();
+        
+        keys.add(hex(cache.key(new byte[] {1}, List.of())));
+        keys.add(hex(cache.key(new byte[] {2}, List.of())));
+        keys.add(hex(cache.key(new byte[] {1}, mixins)));
+        
+        assertEquals(3, keys.size());
+        assertEquals(hex(cache.key(new byte[] {1}, mixins)), hex(cache.key(new byte[] {1}, mixins)));
+    }
+    
+    @Test
+    void dropsTruncatedEntries() throws IOException {
+        WeaveCache cache = new WeaveCache(directory, MAX_SIZE);
+        byte[] key = cache.key(new byte[] {1}, List.of());
+        
+        cache.put(key, new WeaveCache.Entry(new byte[100], 0, 0, List.of()));
+        
+        Path file = entries().getFirst();
+        Files.write(file, new byte[10]);
+        
+        assertNull(cache.get(key));
+        assertFalse(Files.exists(file));
+    }
+    
+    @Test
+    void dropsTheEntriesOfAnotherWeaver() throws IOException {
+        WeaveCache cache = new WeaveCache(directory, MAX_SIZE);
+        byte[] key = cache.key(new byte[] {1}, List.of());
+        
+        cache.put(key, new WeaveCache.Entry(new byte[100], 0, 0, List.of()));
+        Files.writeString(directory.resolve("VERSION"), "another build");
+        
+        WeaveCache reopened = new WeaveCache(directory, MAX_SIZE);
+        
+        assertEquals(List.of(), entries());
+        assertEquals(0, reopened.stats().size());
+        assertNull(reopened.get(key));
+    }
+    
+    @Test
+    void evictsTheLeastRecentlyUsedEntries() throws IOException {
+        // an entry is its 1000 woven bytes and 20 bytes of header, only two fit
+        WeaveCache cache = new WeaveCache(directory, 3000);
+        byte[] first = cache.key(new byte[] {1}, List.of());
+        byte[] second = cache.key(new byte[] {2}, List.of());
+        byte[] third = cache.key(new byte[] {3}, List.of());
+        
+        putAged(cache, first, 1000);
+        putAged(cache, second, 2000);
+        
+        // reading the first entry makes the second one the least recently used
+        assertNotNull(cache.get(first));
+        
+        cache.put(third, new WeaveCache.Entry(new byte[1000], 0, 0, List.of()));
+        
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2040, cache.stats().size());
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(first));
+        assertNotNull(cache.get(third));
+    }
+    
+    private static MixinTransformer transformer(WeaveCache cache) {
+        return new MixinTransformer(List.of(new MixinMapping(CachedMixin.class)), cache);
+    }
+    
+    private static Object load(MixinTransformer transformer) {
+        return new WeavingClassLoader(Cached.class.getClassLoader(), transformer).newInstance(Cached.class.getName());
+    }
+    
+    private static WeaveMetrics.Stats stats(MixinTransformer transformer) {
+        return transformer.weaveStats().stream()
+            .filter(weave -> weave.className().equals(Cached.class.getName()))
+            .findFirst()
+            .orElseThrow();
+    }
+    
+    // the written entry is dated explicitly, file times are too coarse to order writes in a row
+    private void putAged(WeaveCache cache, byte[] key, long millis) throws IOException {
+        List<Path> before = entries();
+        cache.put(key, new WeaveCache.Entry(new byte[1000], 0, 0, List.of()));
+        
+        for (Path file : entries()) {
+            if (!before.contains(file)) Files.setLastModifiedTime(file, FileTime.fromMillis(millis));
+        }
+    }
+    
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".class")).toList();
+        }
+    }
+    
+    private static String hex(byte[] key) {
+        return HexFormat.of().formatHex(key);
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.dynamic;
+
+/**
+ * Target of {@link DiceMixin}.
+ *
+ * @author xEcho1337
+ */
+public class Dice {
+    
+    public int roll() {
+        return Math.abs(-4);
+    }
+}
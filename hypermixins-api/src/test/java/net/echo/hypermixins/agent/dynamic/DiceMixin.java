@@ -0,0 +1,20 @@
+package net.echo.hypermixins.agent.dynamic;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Loads the dice of {@link Dice} through a dynamic redirect.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.dynamic.Dice")
+public class DiceMixin {
+    
+    @Redirect(method = "roll", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC), dynamic = true)
+    public static int loaded(int value) {
+        return 6;
+    }
+}
@@ -0,0 +1,53 @@
+package net.echo.hypermixins.agent.dynamic;
+
+import net.echo.hypermixins.HyperMixins;
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Dynamic redirects switched at runtime, after their call sites are linked.
+ *
+ * @author xEcho1337
+ */
+class DynamicTest {
+    
+    private static final String ID = DiceMixin.class.getName() + "#loaded";
+    
+    @Test
+    void linkedCallSitesFollowTheRedirect() {
+        Object dice = WeavingClassLoader.of(DiceMixin.class).newInstance(Dice.class.getName());
+        MethodHandle one = MethodHandles.dropArguments(MethodHandles.constant(int.class, 1), 0, int.class);
+        
+        // the first call links the site
+        assertEquals(6, WeavingClassLoader.invoke(dice, "roll"));
+        
+        try {
+            HyperMixins.swapRedirect(ID, one);
+            assertEquals(1, WeavingClassLoader.invoke(dice, "roll"));
+            
+            HyperMixins.disableRedirect(ID);
+            assertEquals(4, WeavingClassLoader.invoke(dice, "roll"));
+            
+            HyperMixins.enableRedirect(ID);
+            assertEquals(1, WeavingClassLoader.invoke(dice, "roll"));
+            
+            HyperMixins.swapRedirect(ID, null);
+            assertEquals(6, WeavingClassLoader.invoke(dice, "roll"));
+        } finally {
+            HyperMixins.enableRedirect(ID);
+            HyperMixins.swapRedirect(ID, null);
+        }
+    }
+    
+    @Test
+    void rejectsOverloadedHandlers() {
+        assertThrows(IllegalStateException.class, () -> new MixinMapping(OverloadedMixin.class));
+    }
+}
@@ -0,0 +1,25 @@
+package net.echo.hypermixins.agent.dynamic;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Two dynamic redirects sharing the name of their handler, so the runtime API cannot tell them apart.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.dynamic.Dice")
+public class OverloadedMixin {
+    
+    @Redirect(method = "roll", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC), dynamic = true)
+    public static int loaded(int value) {
+        return 6;
+    }
+    
+    @Redirect(method = "roll", at = @At(desc = "java/lang/Math.abs(J)J", call = Call.INVOKESTATIC), dynamic = true)
+    public static long loaded(long value) {
+        return 6;
+    }
+}
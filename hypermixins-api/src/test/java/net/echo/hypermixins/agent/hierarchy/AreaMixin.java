@@ -0,0 +1,20 @@
+package net.echo.hypermixins.agent.hierarchy;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects a call of {@link AreaPicker#pick}, so its frames are recomputed.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.hierarchy.AreaPicker")
+public class AreaMixin {
+    
+    @Redirect(method = "pick", at = @At(desc = "java/lang/Math.negateExact(I)I", call = Call.INVOKESTATIC))
+    public static int doubled(int area) {
+        return area * 2;
+    }
+}
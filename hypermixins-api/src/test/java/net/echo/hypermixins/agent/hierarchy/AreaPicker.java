@@ -0,0 +1,15 @@
+package net.echo.hypermixins.agent.hierarchy;
+
+/**
+ * Target whose woven method merges two sibling types in a local, so its recomputed frames need
+ * their common super class.
+ *
+ * @author xEcho1337
+ */
+public class AreaPicker {
+    
+    public int pick(boolean round) {
+        Shape shape = round ? new Circle() : new Square();
+        return Math.negateExact(shape.area());
+    }
+}
@@ -0,0 +1,41 @@
+package net.echo.hypermixins.agent.hierarchy;
+
+import net.echo.hypermixins.agent.ClassHierarchy;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Common super classes resolved from class files, and the frames computed from them.
+ *
+ * @author xEcho1337
+ */
+class HierarchyTest {
+    
+    private static final String SHAPE = "net/echo/hypermixins/agent/hierarchy/Shape";
+    private static final String CIRCLE = "net/echo/hypermixins/agent/hierarchy/Circle";
+    private static final String SQUARE = "net/echo/hypermixins/agent/hierarchy/Square";
+    
+    @Test
+    void resolvesCommonSuperClassFromClassFiles() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        ClassLoader loader = HierarchyTest.class.getClassLoader();
+        
+        assertEquals(SHAPE, hierarchy.getCommonSuperClass(CIRCLE, SQUARE, loader));
+        assertEquals(SHAPE, hierarchy.getCommonSuperClass(CIRCLE, SHAPE, loader));
+        assertEquals("java/lang/Object", hierarchy.getCommonSuperClass(CIRCLE, "java/lang/Runnable", loader));
+        assertEquals("java/lang/Object", hierarchy.getCommonSuperClass(CIRCLE, "missing/Type", loader));
+    }
+    
+    @Test
+    void recomputedFramesMergeSiblingTypes() {
+        WeavingClassLoader loader = WeavingClassLoader.of(AreaMixin.class);
+        
+        // the verifier rejects the woven method if the local merging both shapes is typed as Object
+        Object picker = loader.newInstance(AreaPicker.class.getName());
+        
+        assertEquals(6, WeavingClassLoader.invoke(picker, "pick", true));
+        assertEquals(8, WeavingClassLoader.invoke(picker, "pick", false));
+    }
+}
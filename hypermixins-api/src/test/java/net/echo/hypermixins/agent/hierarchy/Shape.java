@@ -0,0 +1,11 @@
+package net.echo.hypermixins.agent.hierarchy;
+
+/**
+ * Common super class of {@link Circle} and {@link Square}.
+ *
+ * @author xEcho1337
+ */
+public abstract class Shape {
+    
+    public abstract int area();
+}
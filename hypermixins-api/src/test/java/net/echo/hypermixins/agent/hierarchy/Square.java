@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.hierarchy;
+
+/**
+ * One of the two shapes {@link AreaPicker} picks from.
+ *
+ * @author xEcho1337
+ */
+public class Square extends Shape {
+    
+    @Override
+    public int area() {
+        return 4;
+    }
+}
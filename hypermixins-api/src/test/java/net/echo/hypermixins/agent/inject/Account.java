@@ -0,0 +1,25 @@
+package net.echo.hypermixins.agent.inject;
+
+/**
+ * Target of {@link AccountMixin}, which refuses overdrafts and rewards large deposits.
+ *
+ * @author xEcho1337
+ */
+public class Account {
+    
+    private int balance = 10;
+    
+    public int withdraw(int amount) {
+        balance -= amount;
+        return balance;
+    }
+    
+    public int deposit(int amount) {
+        balance += amount;
+        return balance;
+    }
+    
+    public int balance() {
+        return balance;
+    }
+}
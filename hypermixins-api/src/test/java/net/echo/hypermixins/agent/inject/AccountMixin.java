@@ -0,0 +1,24 @@
+package net.echo.hypermixins.agent.inject;
+
+import net.echo.hypermixins.api.Inject;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Point;
+
+/**
+ * A cancellable head injector and a return injector replacing the value.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.inject.Account")
+public class AccountMixin {
+    
+    @Inject(method = "withdraw", at = Point.HEAD, cancellable = true)
+    public static boolean refuseOverdraft(Object self, int amount) {
+        return amount > ((Account) self).balance();
+    }
+    
+    @Inject(method = "deposit", at = Point.RETURN)
+    public static int bonus(Object self, int balance, int amount) {
+        return amount >= 100 ? balance + 1 : balance;
+    }
+}
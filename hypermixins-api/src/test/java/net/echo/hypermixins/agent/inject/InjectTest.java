@@ -0,0 +1,36 @@
+package net.echo.hypermixins.agent.inject;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cancelled calls and replaced return values of {@link net.echo.hypermixins.api.Inject}.
+ *
+ * @author xEcho1337
+ */
+class InjectTest {
+    
+    @Test
+    void cancelledCallSkipsTheBody() {
+        Object account = newAccount();
+        
+        assertEquals(0, WeavingClassLoader.invoke(account, "withdraw", 50));
+        assertEquals(10, WeavingClassLoader.invoke(account, "balance"));
+        assertEquals(6, WeavingClassLoader.invoke(account, "withdraw", 4));
+    }
+    
+    @Test
+    void returnHandlerReplacesTheValue() {
+        Object account = newAccount();
+        
+        assertEquals(15, WeavingClassLoader.invoke(account, "deposit", 5));
+        assertEquals(116, WeavingClassLoader.invoke(account, "deposit", 100));
+        assertEquals(115, WeavingClassLoader.invoke(account, "balance"));
+    }
+    
+    private static Object newAccount() {
+        return WeavingClassLoader.of(AccountMixin.class).newInstance(Account.class.getName());
+    }
+}
@@ -0,0 +1,29 @@
+package net.echo.hypermixins.agent.inline;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import net.echo.hypermixins.agent.inline.target.Locator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Inline overwrites run in the target, unless their body reaches what the target cannot.
+ *
+ * @author xEcho1337
+ */
+class InlineTest {
+    
+    @Test
+    void accessibleBodyIsInlined() {
+        Object locator = WeavingClassLoader.of(LocatorMixin.class).newInstance(Locator.class.getName());
+        
+        assertEquals(Locator.class.getName(), WeavingClassLoader.invoke(locator, "open"));
+    }
+    
+    @Test
+    void inaccessibleBodyStaysTrampoline() {
+        Object locator = WeavingClassLoader.of(LocatorMixin.class).newInstance(Locator.class.getName());
+        
+        assertEquals(LocatorMixin.class.getName(), WeavingClassLoader.invoke(locator, "hidden"));
+    }
+}
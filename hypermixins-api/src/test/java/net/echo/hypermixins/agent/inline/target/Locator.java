@@ -0,0 +1,17 @@
+package net.echo.hypermixins.agent.inline.target;
+
+/**
+ * Target of {@link net.echo.hypermixins.agent.inline.LocatorMixin}, in a package of its own.
+ *
+ * @author xEcho1337
+ */
+public class Locator {
+    
+    public String open() {
+        return null;
+    }
+    
+    public String hidden() {
+        return null;
+    }
+}
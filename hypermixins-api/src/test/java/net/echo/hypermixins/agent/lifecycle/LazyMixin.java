@@ -0,0 +1,27 @@
+package net.echo.hypermixins.agent.lifecycle;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stateful mixin, allocated the first time a {@link LazyOwner} needs it.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.lifecycle.LazyOwner")
+public class LazyMixin {
+    
+    private final AtomicInteger total = new AtomicInteger();
+    
+    @Overwrite("mixin")
+    public Object mixin(Object self) {
+        return this;
+    }
+    
+    @Overwrite("add")
+    public int add(Object self, int amount) {
+        return total.addAndGet(amount);
+    }
+}
@@ -0,0 +1,17 @@
+package net.echo.hypermixins.agent.lifecycle;
+
+/**
+ * Target of {@link LazyMixin}.
+ *
+ * @author xEcho1337
+ */
+public class LazyOwner {
+    
+    public Object mixin() {
+        return null;
+    }
+    
+    public int add(int amount) {
+        return 0;
+    }
+}
@@ -0,0 +1,112 @@
+package net.echo.hypermixins.agent.lifecycle;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Where the woven targets keep their mixin instances.
+ *
+ * @author xEcho1337
+ */
+class LifecycleTest {
+    
+    private static final int THREADS = 8;
+    
+    @Test
+    void statelessMixinIsSharedThroughStaticField() throws ReflectiveOperationException {
+        WeavingClassLoader loader = WeavingClassLoader.of(SharedMixin.class);
+        
+        Object first = loader.newInstance(SharedOwner.class.getName());
+        Object second = loader.newInstance(SharedOwner.class.getName());
+        Field holder = holder(first.getClass());
+        
+        assertTrue(Modifier.isStatic(holder.getModifiers()));
+        assertTrue(Modifier.isFinal(holder.getModifiers()));
+        assertNotNull(holder.get(null));
+        assertSame(holder.get(null), WeavingClassLoader.invoke(first, "mixin"));
+        assertSame(holder.get(null), WeavingClassLoader.invoke(second, "mixin"));
+    }
+    
+    @Test
+    void statefulMixinIsAllocatedOnFirstCall() throws ReflectiveOperationException {
+        WeavingClassLoader loader = WeavingClassLoader.of(LazyMixin.class);
+        
+        Object first = loader.newInstance(LazyOwner.class.getName());
+        Object second = loader.newInstance(LazyOwner.class.getName());
+        Field holder = holder(first.getClass());
+        
+        assertFalse(Modifier.isStatic(holder.getModifiers()));
+        assertNull(holder.get(first));
+        
+        assertEquals(2, WeavingClassLoader.invoke(first, "add", 2));
+        assertEquals(5, WeavingClassLoader.invoke(first, "add", 3));
+        assertEquals(4, WeavingClassLoader.invoke(second, "add", 4));
+        
+        assertSame(holder.get(first), WeavingClassLoader.invoke(first, "mixin"));
+        assertNotSame(holder.get(first), holder.get(second));
+    }
+    
+    @Test
+    void concurrentFirstCallsPublishOneInstance() throws Exception {
+        WeavingClassLoader loader = WeavingClassLoader.of(LazyMixin.class);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        
+        try {
+            // repeated on fresh targets, the race on the first call is narrow
+            for (int round = 0; round < 200; round++) {
+                Object owner = loader.newInstance(LazyOwner.class.getName());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Object>> calls = new ArrayList<>();
+                
+                for (int i = 0; i < THREADS; i++) {
+                    calls.add(executor.submit(() -> {
+                        start.await();
+                        WeavingClassLoader.invoke(owner, "add", 1);
+                        return WeavingClassLoader.invoke(owner, "mixin");
+                    }));
+                }
+                
+                start.countDown();
+                
+                Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                
+                for (Future<Object> call : calls) {
+                    seen.add(call.get());
+                }
+                
+                assertEquals(1, seen.size());
+                assertSame(holder(owner.getClass()).get(owner), seen.iterator().next());
+                
+                // no increment went to an instance that lost the race
+                assertEquals(THREADS, WeavingClassLoader.invoke(owner, "add", 0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static Field holder(Class<?> target) {
+        Field field = Arrays.stream(target.getDeclaredFields())
+            .filter(candidate -> candidate.getName().startsWith("__mixin$"))
+            .findFirst()
+            .orElseThrow();
+        
+        field.setAccessible(true);
+        return field;
+    }
+}
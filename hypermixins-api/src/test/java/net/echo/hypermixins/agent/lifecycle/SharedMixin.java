@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.lifecycle;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Stateless mixin, one instance is shared by every {@link SharedOwner}.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.lifecycle.SharedOwner")
+public class SharedMixin {
+    
+    @Overwrite("mixin")
+    public Object mixin(Object self) {
+        return this;
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.lifecycle;
+
+/**
+ * Target of {@link SharedMixin}.
+ *
+ * @author xEcho1337
+ */
+public class SharedOwner {
+    
+    public Object mixin() {
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package net.echo.hypermixins.agent.memoize;
+
+/**
+ * Target of {@link CalculationsMixin}, one memoized method per shape of cache key. Every run of
+ * a memoized method is counted, a cached call leaves the count as is.
+ *
+ * @author xEcho1337
+ */
+public class Calculations {
+    
+    private static int runs;
+    
+    // a single integral argument
+    public static long square(int x) {
+        runs++;
+        return (long) x * x;
+    }
+    
+    // a single reference argument
+    public static int length(String text) {
+        runs++;
+        return text.length();
+    }
+    
+    // several arguments
+    public static double scale(int x, double factor) {
+        runs++;
+        return x * factor;
+    }
+    
+    // a single floating point argument, boxed like several arguments
+    public static float half(float x) {
+        runs++;
+        return x / 2;
+    }
+    
+    // the receiver alone
+    public int hash() {
+        runs++;
+        return System.identityHashCode(this);
+    }
+    
+    public static int runs() {
+        return runs;
+    }
+}
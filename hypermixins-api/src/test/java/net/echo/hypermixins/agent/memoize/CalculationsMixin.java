@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.memoize;
+
+import net.echo.hypermixins.api.Memoize;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Memoizes every method of {@link Calculations}.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.memoize.Calculations")
+@Memoize(method = "square")
+@Memoize(method = "length")
+@Memoize(method = "scale")
+@Memoize(method = "half")
+@Memoize(method = "hash")
+public class CalculationsMixin {
+}
@@ -0,0 +1,97 @@
+package net.echo.hypermixins.agent.memoize;
+
+import net.echo.hypermixins.agent.MemoCache;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hits and misses of each shape of cache key, see {@link MemoCache}.
+ *
+ * @author xEcho1337
+ */
+class MemoizeTest {
+    
+    private static final String CALCULATIONS = Calculations.class.getName();
+    
+    private WeavingClassLoader loader;
+    
+    @BeforeEach
+    void weave() {
+        // every test weaves its own class, its results must not come from another test
+        MemoCache.invalidateAll();
+        loader = WeavingClassLoader.of(CalculationsMixin.class);
+    }
+    
+    @Test
+    void integralKey() {
+        assertEquals(49L, call("square", 7));
+        assertEquals(49L, call("square", 7));
+        assertEquals(1, runs());
+        
+        assertEquals(64L, call("square", 8));
+        assertEquals(2, runs());
+    }
+    
+    @Test
+    void referenceKey() {
+        assertEquals(5, call("length", "hello"));
+        assertEquals(5, call("length", new String("hello")));
+        assertEquals(1, runs());
+        
+        assertEquals(3, call("length", "hey"));
+        assertEquals(2, runs());
+    }
+    
+    @Test
+    void compositeKey() {
+        assertEquals(3.0, call("scale", 2, 1.5));
+        assertEquals(3.0, call("scale", 2, 1.5));
+        assertEquals(1, runs());
+        
+        assertEquals(2.0, call("scale", 1, 2.0));
+        assertEquals(3.0, call("scale", 3, 1.0));
+        assertEquals(3, runs());
+    }
+    
+    @Test
+    void floatingPointKey() {
+        assertEquals(1.5f, call("half", 3f));
+        assertEquals(1.5f, call("half", 3f));
+        assertEquals(1, runs());
+        
+        assertEquals(-0.5f, call("half", -1f));
+        assertEquals(2, runs());
+    }
+    
+    @Test
+    void receiverKey() {
+        Object calculations = loader.newInstance(CALCULATIONS);
+        Object other = loader.newInstance(CALCULATIONS);
+        
+        assertEquals(WeavingClassLoader.invoke(calculations, "hash"), WeavingClassLoader.invoke(calculations, "hash"));
+        assertEquals(1, runs());
+        
+        WeavingClassLoader.invoke(other, "hash");
+        assertEquals(2, runs());
+    }
+    
+    @Test
+    void invalidatedResultsRunAgain() {
+        call("square", 7);
+        MemoCache.invalidate(CALCULATIONS + ".square(I)J");
+        call("square", 7);
+        
+        assertEquals(2, runs());
+    }
+    
+    private Object call(String method, Object... args) {
+        return loader.invokeStatic(CALCULATIONS, method, args);
+    }
+    
+    private int runs() {
+        return (int) call("runs");
+    }
+}
@@ -0,0 +1,31 @@
+package net.echo.hypermixins.agent.metrics;
+
+/**
+ * Target of {@link MeterMixin}, with several returns, a throw and a handler of its own.
+ *
+ * @author xEcho1337
+ */
+public class Meter {
+    
+    public int work(int amount) {
+        if (amount < 0) return -amount;
+        
+        return amount * 2;
+    }
+    
+    public void fail() {
+        throw new IllegalStateException("failed");
+    }
+    
+    public int guarded(String text) {
+        try {
+            return text.length();
+        } catch (NullPointerException ex) {
+            return -1;
+        }
+    }
+    
+    public int tick() {
+        return 1;
+    }
+}
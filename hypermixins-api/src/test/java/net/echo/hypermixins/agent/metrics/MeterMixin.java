@@ -0,0 +1,16 @@
+package net.echo.hypermixins.agent.metrics;
+
+import net.echo.hypermixins.api.Counted;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Timed;
+
+/**
+ * Measures the methods of {@link Meter}.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.metrics.Meter")
+@Timed({"work", "fail", "guarded"})
+@Counted("tick")
+public class MeterMixin {
+}
@@ -0,0 +1,109 @@
+package net.echo.hypermixins.agent.metrics;
+
+import net.echo.hypermixins.agent.MethodMetrics;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls measured by {@link net.echo.hypermixins.api.Timed} and counted by
+ * {@link net.echo.hypermixins.api.Counted}, see {@link MethodMetrics}.
+ *
+ * @author xEcho1337
+ */
+class MetricsTest {
+    
+    private static final String METER = Meter.class.getName();
+    
+    private WeavingClassLoader loader;
+    private Object meter;
+    
+    @BeforeEach
+    void weave() {
+        // metrics are merged by method, the calls of another test must not count
+        MethodMetrics.reset();
+        loader = WeavingClassLoader.of(MeterMixin.class);
+        meter = loader.newInstance(METER);
+    }
+    
+    @Test
+    void timesEveryReturn() {
+        assertEquals(4, WeavingClassLoader.invoke(meter, "work", 2));
+        assertEquals(3, WeavingClassLoader.invoke(meter, "work", -3));
+        
+        MethodMetrics.Snapshot work = MethodMetrics.snapshot(METER + ".work(I)I");
+        
+        assertEquals(2, work.count());
+        assertTrue(work.maxNanos() <= work.totalNanos());
+    }
+    
+    @Test
+    void timesThrownExceptions() {
+        assertThrows(IllegalStateException.class, () -> WeavingClassLoader.invoke(meter, "fail"));
+        
+        assertEquals(1, MethodMetrics.snapshot(METER + ".fail()V").count());
+    }
+    
+    @Test
+    void keepsTheHandlersOfTheMethod() {
+        assertEquals(5, WeavingClassLoader.invoke(meter, "guarded", "hello"));
+        assertEquals(-1, WeavingClassLoader.invoke(meter, "guarded", (Object) null));
+        
+        assertEquals(2, MethodMetrics.snapshot(METER + ".guarded(Ljava/lang/String;)I").count());
+    }
+    
+    @Test
+    void countsWithoutTiming() {
+        for (int i = 0; i < 3; i++) {
+            WeavingClassLoader.invoke(meter, "tick");
+        }
+        
+        MethodMetrics.Snapshot tick = MethodMetrics.snapshot(METER + ".tick()I");
+        
+        assertEquals(3, tick.count());
+        assertEquals(0, tick.totalNanos());
+        assertNull(MethodMetrics.snapshot(METER + ".unknown()V"));
+    }
+    
+    @Test
+    void recordsOutsideTheProtectedRanges() throws IOException {
+        ClassNode woven = new ClassNode();
+        new ClassReader(loader.transformer().weave(loader, METER.replace('.', '/'), classfile())).accept(woven, 0);
+        
+        for (MethodNode method : woven.methods) {
+            for (AbstractInsnNode insn : method.instructions) {
+                if (!(insn instanceof InvokeDynamicInsnNode indy) || !indy.name.equals("record")) continue;
+                
+                int index = method.instructions.indexOf(insn);
+                
+                // a record inside a range would be measured again when it throws
+                for (TryCatchBlockNode block : method.tryCatchBlocks) {
+                    int start = method.instructions.indexOf(block.start);
+                    int end = method.instructions.indexOf(block.end);
+                    
+                    assertTrue(index < start || index >= end, () -> "record protected in " + method.name);
+                }
+            }
+        }
+    }
+    
+    private static byte[] classfile() throws IOException {
+        try (InputStream in = Meter.class.getResourceAsStream("Meter.class")) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package net.echo.hypermixins.agent.offload;
+
+import java.util.function.Consumer;
+
+/**
+ * Target of {@link EmitterMixin}, every method hands its value to the sink it is given, through
+ * a call site offloaded with other settings.
+ *
+ * @author xEcho1337
+ */
+public class Emitter {
+    
+    public void discard(Consumer<String> sink, String value) {
+        sink.accept(value);
+    }
+    
+    public void callerRuns(Consumer<String> sink, String value) {
+        sink.accept(value);
+    }
+    
+    public void batch(Consumer<String> sink, String value) {
+        sink.accept(value);
+    }
+    
+    public void coalesce(Consumer<String> sink, String value) {
+        sink.accept(value);
+    }
+}
@@ -0,0 +1,49 @@
+package net.echo.hypermixins.agent.offload;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Offload;
+import net.echo.hypermixins.api.Redirect;
+
+import java.util.function.Consumer;
+
+/**
+ * Offloads each method of {@link Emitter} with other settings.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.offload.Emitter")
+public class EmitterMixin {
+    
+    /**
+     * Executor the tests run by hand.
+     */
+    public static final String EXECUTOR = "offload-test";
+    
+    private static final String ACCEPT = "java/util/function/Consumer.accept(Ljava/lang/Object;)V";
+    
+    @Redirect(method = "discard", at = @At(desc = ACCEPT, call = Call.INVOKEINTERFACE))
+    @Offload(executor = EXECUTOR, maxPending = 2)
+    public static void discarded(Consumer<Object> sink, Object value) {
+        sink.accept(value);
+    }
+    
+    @Redirect(method = "callerRuns", at = @At(desc = ACCEPT, call = Call.INVOKEINTERFACE))
+    @Offload(executor = EXECUTOR, maxPending = 1, overflow = Offload.Overflow.CALLER_RUNS)
+    public static void callerRun(Consumer<Object> sink, Object value) {
+        sink.accept(value);
+    }
+    
+    @Redirect(method = "batch", at = @At(desc = ACCEPT, call = Call.INVOKEINTERFACE))
+    @Offload(executor = EXECUTOR, batch = true)
+    public static void batched(Consumer<Object> sink, Object value) {
+        sink.accept(value);
+    }
+    
+    @Redirect(method = "coalesce", at = @At(desc = ACCEPT, call = Call.INVOKEINTERFACE))
+    @Offload(executor = EXECUTOR, coalesce = true)
+    public static void coalesced(Consumer<Object> sink, Object value) {
+        sink.accept(value);
+    }
+}
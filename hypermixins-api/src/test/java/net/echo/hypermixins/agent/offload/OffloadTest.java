@@ -0,0 +1,106 @@
+package net.echo.hypermixins.agent.offload;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.Offloads;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Overflow, batching and coalescing of offloaded call sites, on an executor run by hand.
+ *
+ * @author xEcho1337
+ */
+class OffloadTest {
+    
+    // tasks only run when the test drains them, so pending calls stay pending
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final List<String> values = new ArrayList<>();
+    private final Consumer<String> sink = values::add;
+    
+    private Object emitter;
+    
+    @BeforeEach
+    void weave() {
+        Offloads.setExecutor(EmitterMixin.EXECUTOR, tasks::add);
+        
+        emitter = WeavingClassLoader.of(EmitterMixin.class).newInstance(Emitter.class.getName());
+    }
+    
+    @AfterEach
+    void restoreExecutor() {
+        Offloads.setExecutor(EmitterMixin.EXECUTOR, null);
+    }
+    
+    @Test
+    void overflowDiscardsCallsBeyondMaxPending() {
+        WeavingClassLoader.invoke(emitter, "discard", sink, "a");
+        WeavingClassLoader.invoke(emitter, "discard", sink, "b");
+        WeavingClassLoader.invoke(emitter, "discard", sink, "c");
+        
+        assertEquals(List.of(), values);
+        assertEquals(2, runTasks());
+        assertEquals(List.of("a", "b"), values);
+    }
+    
+    @Test
+    void overflowRunsCallsBeyondMaxPendingOnTheCaller() {
+        WeavingClassLoader.invoke(emitter, "callerRuns", sink, "a");
+        WeavingClassLoader.invoke(emitter, "callerRuns", sink, "b");
+        
+        assertEquals(List.of("b"), values);
+        assertEquals(1, runTasks());
+        assertEquals(List.of("b", "a"), values);
+    }
+    
+    @Test
+    void batchRunsCallsInOrderFromOneTask() {
+        WeavingClassLoader.invoke(emitter, "batch", sink, "a");
+        WeavingClassLoader.invoke(emitter, "batch", sink, "b");
+        WeavingClassLoader.invoke(emitter, "batch", sink, "c");
+        
+        assertEquals(1, runTasks());
+        assertEquals(List.of("a", "b", "c"), values);
+    }
+    
+    @Test
+    void coalesceRunsTheLatestCallOnly() {
+        WeavingClassLoader.invoke(emitter, "coalesce", sink, "a");
+        WeavingClassLoader.invoke(emitter, "coalesce", sink, "b");
+        WeavingClassLoader.invoke(emitter, "coalesce", sink, "c");
+        
+        assertEquals(1, runTasks());
+        assertEquals(List.of("c"), values);
+        
+        WeavingClassLoader.invoke(emitter, "coalesce", sink, "d");
+        
+        assertEquals(1, runTasks());
+        assertEquals(List.of("c", "d"), values);
+    }
+    
+    @Test
+    void rejectsOverloadedHandlers() {
+        assertThrows(IllegalStateException.class, () -> new MixinMapping(OverloadedMixin.class));
+    }
+    
+    private int runTasks() {
+        int ran = 0;
+        
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+            ran++;
+        }
+        
+        return ran;
+    }
+}
@@ -0,0 +1,30 @@
+package net.echo.hypermixins.agent.offload;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Offload;
+import net.echo.hypermixins.api.Redirect;
+
+import java.util.function.Consumer;
+
+/**
+ * Two offloaded redirects sharing the name of their handler, so their sites cannot be told apart.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.offload.Emitter")
+public class OverloadedMixin {
+    
+    @Redirect(method = "discard", at = @At(desc = "java/util/function/Consumer.accept(Ljava/lang/Object;)V", call = Call.INVOKEINTERFACE))
+    @Offload
+    public static void emitted(Consumer<Object> sink, Object value) {
+        sink.accept(value);
+    }
+    
+    @Redirect(method = "batch", at = @At(desc = "java/lang/Runnable.run()V", call = Call.INVOKEINTERFACE))
+    @Offload
+    public static void emitted(Runnable task) {
+        task.run();
+    }
+}
@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.pattern;
+
+/**
+ * Direct implementation of {@link Engine}.
+ *
+ * @author xEcho1337
+ */
+public class Diesel implements Engine {
+    
+    @Override
+    public int power() {
+        return 1;
+    }
+}
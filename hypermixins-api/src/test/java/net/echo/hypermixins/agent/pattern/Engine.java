@@ -0,0 +1,11 @@
+package net.echo.hypermixins.agent.pattern;
+
+/**
+ * Supertype matched by {@link EngineMixin}, its method has no body to overwrite.
+ *
+ * @author xEcho1337
+ */
+public interface Engine {
+    
+    int power();
+}
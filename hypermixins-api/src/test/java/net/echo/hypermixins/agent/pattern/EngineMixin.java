@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.pattern;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Overwrites {@link Engine#power} in every implementation.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.pattern.Engine+")
+public class EngineMixin {
+    
+    @Overwrite("power")
+    public int power(Object self) {
+        return 9;
+    }
+}
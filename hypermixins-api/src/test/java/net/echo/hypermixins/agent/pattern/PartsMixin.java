@@ -0,0 +1,18 @@
+package net.echo.hypermixins.agent.pattern;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Overwrites the teeth of every class of the {@code parts} package, its subpackages aside.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.pattern.parts.*")
+public class PartsMixin {
+    
+    @Overwrite("teeth")
+    public int teeth(Object self) {
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package net.echo.hypermixins.agent.pattern;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeaveMetrics;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mixins targeting the subtypes of a class or the classes of a package.
+ *
+ * @author xEcho1337
+ */
+class PatternTest {
+    
+    private static final String PACKAGE = "net.echo.hypermixins.agent.pattern.";
+    
+    @Test
+    void overwritesEverySubtype() {
+        WeavingClassLoader loader = load(EngineMixin.class, "Engine", "Diesel", "Turbo", "Pump");
+        
+        assertEquals(9, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "Diesel"), "power"));
+        assertEquals(9, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "Turbo"), "power"));
+        assertEquals(3, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "Pump"), "power"));
+    }
+    
+    @Test
+    void overwritesTheClassesOfAPackage() {
+        WeavingClassLoader loader = load(PartsMixin.class, "parts.Gear", "parts.Spacer", "parts.deep.Cog");
+        
+        assertEquals(0, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "parts.Gear"), "teeth"));
+        assertEquals(8, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "parts.deep.Cog"), "teeth"));
+        assertEquals(4, WeavingClassLoader.invoke(loader.newInstance(PACKAGE + "parts.Spacer"), "width"));
+        
+        // a matched class declaring none of the target methods is left as it is and reports nothing
+        Set<String> woven = loader.transformer().weaveStats().stream()
+            .map(WeaveMetrics.Stats::className)
+            .collect(Collectors.toSet());
+        
+        assertEquals(Set.of(PACKAGE + "parts.Gear", PartsMixin.class.getName()), woven);
+    }
+    
+    private static WeavingClassLoader load(Class<?> mixin, String... classes) {
+        MixinTransformer transformer = new MixinTransformer(List.of(new MixinMapping(mixin)));
+        Set<String> classNames = new HashSet<>(Set.of(mixin.getName().replace('.', '/')));
+        
+        for (String name : classes) {
+            classNames.add((PACKAGE + name).replace('.', '/'));
+        }
+        
+        return new WeavingClassLoader(mixin.getClassLoader(), transformer, classNames);
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.pattern;
+
+/**
+ * Declares the method of {@link Engine} without implementing it, so no pattern matches it.
+ *
+ * @author xEcho1337
+ */
+public class Pump {
+    
+    public int power() {
+        return 3;
+    }
+}
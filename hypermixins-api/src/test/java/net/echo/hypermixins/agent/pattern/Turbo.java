@@ -0,0 +1,14 @@
+package net.echo.hypermixins.agent.pattern;
+
+/**
+ * Implements {@link Engine} through {@link Diesel}.
+ *
+ * @author xEcho1337
+ */
+public class Turbo extends Diesel {
+    
+    @Override
+    public int power() {
+        return 2;
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.pattern.parts;
+
+/**
+ * Class of the package matched by {@code PartsMixin}.
+ *
+ * @author xEcho1337
+ */
+public class Gear {
+    
+    public int teeth() {
+        return 12;
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.pattern.parts;
+
+/**
+ * Matched by {@code PartsMixin} but declaring none of its methods.
+ *
+ * @author xEcho1337
+ */
+public class Spacer {
+    
+    public int width() {
+        return 4;
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.agent.pattern.parts.deep;
+
+/**
+ * Class of a subpackage, which a single {@code *} does not match.
+ *
+ * @author xEcho1337
+ */
+public class Cog {
+    
+    public int teeth() {
+        return 8;
+    }
+}
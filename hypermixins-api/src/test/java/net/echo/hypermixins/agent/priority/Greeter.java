@@ -0,0 +1,17 @@
+package net.echo.hypermixins.agent.priority;
+
+/**
+ * Target of {@link LowMixin} and {@link HighMixin}, which both overwrite and redirect the same members.
+ *
+ * @author xEcho1337
+ */
+public class Greeter {
+    
+    public String greet() {
+        return "hello";
+    }
+    
+    public String name() {
+        return "world".toUpperCase();
+    }
+}
@@ -0,0 +1,26 @@
+package net.echo.hypermixins.agent.priority;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Replaces both members of {@link Greeter} with priority 2000.
+ *
+ * @author xEcho1337
+ */
+@Mixin(value = "net.echo.hypermixins.agent.priority.Greeter", priority = 2000)
+public class HighMixin {
+    
+    @Overwrite("greet")
+    public String greet(Object self) {
+        return "high";
+    }
+    
+    @Redirect(method = "name", at = @At(desc = "java/lang/String.toUpperCase()Ljava/lang/String;", call = Call.INVOKEVIRTUAL))
+    public static String name(String value) {
+        return "high";
+    }
+}
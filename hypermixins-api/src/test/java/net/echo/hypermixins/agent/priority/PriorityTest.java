@@ -0,0 +1,54 @@
+package net.echo.hypermixins.agent.priority;
+
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mixins of the same target overwriting and redirecting the same members.
+ *
+ * @author xEcho1337
+ */
+class PriorityTest {
+    
+    private static final String CONFLICT = "Conflicting %s on net.echo.hypermixins.agent.priority.Greeter: "
+        + "net.echo.hypermixins.agent.priority.HighMixin (priority 2000) overrides "
+        + "net.echo.hypermixins.agent.priority.LowMixin (priority 100)";
+    
+    @Test
+    void higherPriorityWins() {
+        // the registration order does not matter
+        List<WeavingClassLoader> loaders = List.of(
+            WeavingClassLoader.of(LowMixin.class, HighMixin.class),
+            WeavingClassLoader.of(HighMixin.class, LowMixin.class)
+        );
+        
+        for (WeavingClassLoader loader : loaders) {
+            Object greeter = loader.newInstance(Greeter.class.getName());
+            
+            assertEquals("high", WeavingClassLoader.invoke(greeter, "greet"));
+            assertEquals("high", WeavingClassLoader.invoke(greeter, "name"));
+        }
+    }
+    
+    @Test
+    void conflictsAreWarnedOnce() {
+        MixinTransformer transformer = WeavingClassLoader.of(LowMixin.class, HighMixin.class).transformer();
+        List<String> conflicts = List.of(
+            CONFLICT.formatted("@Overwrite of greet()Ljava/lang/String;"),
+            CONFLICT.formatted("@Redirect of java/lang/String.toUpperCase()Ljava/lang/String; in name")
+        );
+        
+        assertEquals(conflicts, transformer.conflicts());
+        assertEquals(conflicts, transformer.warnings());
+        
+        // registering the same mixins again finds the same conflicts, they are not warned twice
+        transformer.setMappings(List.copyOf(transformer.mappings()));
+        
+        assertEquals(conflicts, transformer.warnings());
+    }
+}
@@ -0,0 +1,22 @@
+package net.echo.hypermixins.agent.redirect;
+
+/**
+ * Target calling {@link Math#abs(int)} three times per method, so each redirect of
+ * {@link SumsMixin} is told apart by the occurrences it replaced.
+ *
+ * @author xEcho1337
+ */
+public class AbsoluteSums {
+    
+    public int second(int a, int b, int c) {
+        return Math.abs(a) + Math.abs(b) + Math.abs(c);
+    }
+    
+    public int fromSecond(int a, int b, int c) {
+        return Math.abs(a) + Math.abs(b) + Math.abs(c);
+    }
+    
+    public int outOfRange(int a, int b, int c) {
+        return Math.abs(a) + Math.abs(b) + Math.abs(c);
+    }
+}
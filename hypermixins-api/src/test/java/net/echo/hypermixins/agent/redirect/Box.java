@@ -0,0 +1,20 @@
+package net.echo.hypermixins.agent.redirect;
+
+/**
+ * Built by the new expressions of {@link Packer}, printed with what it holds.
+ *
+ * @author xEcho1337
+ */
+public class Box {
+    
+    private final Object content;
+    
+    public Box(Object content) {
+        this.content = content;
+    }
+    
+    @Override
+    public String toString() {
+        return "Box(" + content + ")";
+    }
+}
@@ -0,0 +1,54 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * GETFIELD, PUTFIELD, GETSTATIC and PUTSTATIC redirects, see {@link Tally}.
+ *
+ * @author xEcho1337
+ */
+class FieldRedirectTest {
+    
+    private WeavingClassLoader loader;
+    private Object tally;
+    
+    @BeforeEach
+    void weave() {
+        loader = WeavingClassLoader.of(TallyMixin.class);
+        tally = loader.newInstance(Tally.class.getName());
+    }
+    
+    @Test
+    void redirectsFieldReads() {
+        WeavingClassLoader.invoke(tally, "bump");
+        
+        assertEquals(20, WeavingClassLoader.invoke(tally, "read"));
+    }
+    
+    @Test
+    void redirectsFieldWrites() {
+        WeavingClassLoader.invoke(tally, "write", 3);
+        
+        assertEquals(-3, WeavingClassLoader.invoke(tally, "count"));
+    }
+    
+    @Test
+    void redirectsTheWriteOfAReadModifyWrite() {
+        WeavingClassLoader.invoke(tally, "bump");
+        WeavingClassLoader.invoke(tally, "bump");
+        
+        assertEquals(6, WeavingClassLoader.invoke(tally, "count"));
+    }
+    
+    @Test
+    void redirectsStaticFieldAccesses() {
+        WeavingClassLoader.invoke(tally, "writeTotal", 5);
+        
+        assertEquals(105, loader.invokeStatic(Tally.class.getName(), "total"));
+        assertEquals(7, WeavingClassLoader.invoke(tally, "readTotal"));
+    }
+}
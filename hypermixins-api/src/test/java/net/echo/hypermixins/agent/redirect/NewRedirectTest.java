@@ -0,0 +1,46 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * NEW redirects of constructions nested in the arguments of another, see {@link Packer}.
+ *
+ * @author xEcho1337
+ */
+class NewRedirectTest {
+    
+    private Object packer;
+    
+    @BeforeEach
+    void weave() {
+        packer = WeavingClassLoader.of(PackerMixin.class).newInstance(Packer.class.getName());
+    }
+    
+    @Test
+    void redirectsTheInnerConstruction() {
+        assertEquals("Box(Box(wrapped gift))", call("inner"));
+    }
+    
+    @Test
+    void redirectsTheOuterConstructionAroundTheInnerOne() {
+        assertEquals("Box(wrapped Box(gift))", call("outer"));
+    }
+    
+    @Test
+    void redirectsEveryConstruction() {
+        assertEquals("Box(wrapped Box(wrapped gift))", call("every"));
+    }
+    
+    @Test
+    void redirectsAroundAnInvokeInTheArguments() {
+        assertEquals("Box(wrapped Box(gift))", call("argument"));
+    }
+    
+    private String call(String method) {
+        return WeavingClassLoader.invoke(packer, method).toString();
+    }
+}
@@ -0,0 +1,20 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects an occurrence past the last one, which matches nothing.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.redirect.AbsoluteSums")
+public class OutOfRangeMixin {
+    
+    @Redirect(method = "outOfRange", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC, index = 3))
+    public static int zeroFourth(int x) {
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Two redirects claiming the second occurrence of the same invoke.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.redirect.AbsoluteSums")
+public class OverlappingMixin {
+    
+    @Redirect(method = "second", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC, index = 1))
+    public static int zero(int x) {
+        return 0;
+    }
+    
+    @Redirect(
+        method = "second",
+        at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC, index = 0, count = 2)
+    )
+    public static int one(int x) {
+        return 1;
+    }
+}
@@ -0,0 +1,26 @@
+package net.echo.hypermixins.agent.redirect;
+
+/**
+ * Target building a {@link Box} inside another, so the constructions redirected by
+ * {@link PackerMixin} are told apart by what the result prints.
+ *
+ * @author xEcho1337
+ */
+public class Packer {
+    
+    public Box inner() {
+        return new Box(new Box("gift"));
+    }
+    
+    public Box outer() {
+        return new Box(new Box("gift"));
+    }
+    
+    public Box every() {
+        return new Box(new Box("gift"));
+    }
+    
+    public Box argument() {
+        return new Box(String.valueOf(new Box("gift")));
+    }
+}
@@ -0,0 +1,37 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects the nested constructions of {@link Packer}, the inner one being the first occurrence.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.redirect.Packer")
+public class PackerMixin {
+    
+    private static final String BOX = "net/echo/hypermixins/agent/redirect/Box.<init>(Ljava/lang/Object;)V";
+    
+    @Redirect(method = "inner", at = @At(desc = BOX, call = Call.NEW))
+    public static Box wrapInner(Object content) {
+        return new Box("wrapped " + content);
+    }
+    
+    @Redirect(method = "outer", at = @At(desc = BOX, call = Call.NEW, index = 1))
+    public static Box wrapOuter(Object content) {
+        return new Box("wrapped " + content);
+    }
+    
+    @Redirect(method = "every", at = @At(desc = BOX, call = Call.NEW, count = At.ALL))
+    public static Box wrapEvery(Object content) {
+        return new Box("wrapped " + content);
+    }
+    
+    @Redirect(method = "argument", at = @At(desc = BOX, call = Call.NEW, index = 1))
+    public static Box wrapArgument(Object content) {
+        return new Box("wrapped " + content);
+    }
+}
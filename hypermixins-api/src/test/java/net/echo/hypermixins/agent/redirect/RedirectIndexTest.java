@@ -0,0 +1,51 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Occurrences selected by {@link net.echo.hypermixins.api.At#index()} and {@link net.echo.hypermixins.api.At#count()}.
+ *
+ * @author xEcho1337
+ */
+class RedirectIndexTest {
+    
+    @Test
+    void redirectsTheIndexedOccurrenceOnly() {
+        Object sums = WeavingClassLoader.of(SumsMixin.class).newInstance(AbsoluteSums.class.getName());
+        
+        assertEquals(1 + 0 + 3, WeavingClassLoader.invoke(sums, "second", -1, -2, -3));
+    }
+    
+    @Test
+    void redirectsEveryOccurrenceFromTheIndex() {
+        Object sums = WeavingClassLoader.of(SumsMixin.class).newInstance(AbsoluteSums.class.getName());
+        
+        assertEquals(1 + 0 + 0, WeavingClassLoader.invoke(sums, "fromSecond", -1, -2, -3));
+    }
+    
+    @Test
+    void reportsAnIndexPastTheLastOccurrence() {
+        WeavingClassLoader loader = WeavingClassLoader.of(OutOfRangeMixin.class);
+        Object sums = loader.newInstance(AbsoluteSums.class.getName());
+        
+        assertEquals(6, WeavingClassLoader.invoke(sums, "outOfRange", -1, -2, -3));
+        
+        List<String> unmatched = loader.transformer().weaveStats().stream()
+            .flatMap(stats -> stats.unmatched().stream())
+            .toList();
+        
+        assertEquals(1, unmatched.size(), unmatched::toString);
+    }
+    
+    @Test
+    void rejectsOverlappingOccurrences() {
+        assertThrows(IllegalStateException.class, () -> new MixinMapping(OverlappingMixin.class));
+    }
+}
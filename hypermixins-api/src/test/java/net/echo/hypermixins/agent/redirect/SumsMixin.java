@@ -0,0 +1,28 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects one occurrence, then every occurrence from an index on.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.redirect.AbsoluteSums")
+public class SumsMixin {
+    
+    @Redirect(method = "second", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC, index = 1))
+    public static int zeroSecond(int x) {
+        return 0;
+    }
+    
+    @Redirect(
+        method = "fromSecond",
+        at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC, index = 1, count = At.ALL)
+    )
+    public static int zeroFromSecond(int x) {
+        return 0;
+    }
+}
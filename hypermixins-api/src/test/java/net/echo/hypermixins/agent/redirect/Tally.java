@@ -0,0 +1,41 @@
+package net.echo.hypermixins.agent.redirect;
+
+/**
+ * Target reading and writing a field and a static field, redirected by {@link TallyMixin}.
+ *
+ * @author xEcho1337
+ */
+public class Tally {
+    
+    public static int total;
+    
+    public int count;
+    
+    public int read() {
+        return count;
+    }
+    
+    public void write(int value) {
+        count = value;
+    }
+    
+    public void bump() {
+        count = count + 1;
+    }
+    
+    public int readTotal() {
+        return total;
+    }
+    
+    public void writeTotal(int value) {
+        total = value;
+    }
+    
+    public int count() {
+        return count;
+    }
+    
+    public static int total() {
+        return total;
+    }
+}
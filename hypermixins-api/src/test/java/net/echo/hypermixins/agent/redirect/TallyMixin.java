@@ -0,0 +1,44 @@
+package net.echo.hypermixins.agent.redirect;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects the field accesses of {@link Tally}, handlers take the receiver then the stored value.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.redirect.Tally")
+public class TallyMixin {
+    
+    private static final String COUNT = "net/echo/hypermixins/agent/redirect/Tally.count:I";
+    private static final String TOTAL = "net/echo/hypermixins/agent/redirect/Tally.total:I";
+    
+    @Redirect(method = "read", at = @At(desc = COUNT, call = Call.GETFIELD))
+    public static int readCount(Tally self) {
+        return self.count * 10;
+    }
+    
+    @Redirect(method = "write", at = @At(desc = COUNT, call = Call.PUTFIELD))
+    public static void writeCount(Tally self, int value) {
+        self.count = -value;
+    }
+    
+    // the read of the same field is another occurrence kind, it is left alone
+    @Redirect(method = "bump", at = @At(desc = COUNT, call = Call.PUTFIELD))
+    public static void bumpCount(Tally self, int value) {
+        self.count = value * 2;
+    }
+    
+    @Redirect(method = "readTotal", at = @At(desc = TOTAL, call = Call.GETSTATIC))
+    public static int readTotal() {
+        return 7;
+    }
+    
+    @Redirect(method = "writeTotal", at = @At(desc = TOTAL, call = Call.PUTSTATIC))
+    public static void writeTotal(int value) {
+        Tally.total = value + 100;
+    }
+}
@@ -0,0 +1,95 @@
+package net.echo.hypermixins.agent.shadow;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shadow members, accessors and invokers on the private, instance and static members of {@link Vault}.
+ *
+ * @author xEcho1337
+ */
+class ShadowTest {
+    
+    private static final String VAULT = Vault.class.getName();
+    
+    private WeavingClassLoader loader;
+    private Object vault;
+    
+    @BeforeEach
+    void weave() {
+        loader = WeavingClassLoader.of(VaultMixin.class, VaultAccess.class);
+        vault = loader.newInstance(VAULT);
+    }
+    
+    @Test
+    void shadowMembersActOnSelf() {
+        assertEquals("hoard 3 of 8", WeavingClassLoader.invoke(vault, "describe"));
+        assertEquals(8, WeavingClassLoader.invoke(vault, "gold"));
+        assertEquals(1, loader.invokeStatic(VAULT, "opened"));
+    }
+    
+    @Test
+    void inlineOverwriteReadsShadowFields() {
+        WeavingClassLoader.invoke(vault, "describe");
+        
+        assertEquals(9, WeavingClassLoader.invoke(vault, "peek"));
+    }
+    
+    @Test
+    void staticOverwriteUsesStaticShadows() {
+        assertEquals("hoard #1", loader.invokeStatic(VAULT, "label"));
+        assertEquals("hoard #2", loader.invokeStatic(VAULT, "label"));
+    }
+    
+    @Test
+    void targetImplementsTheAccessInterface() throws ClassNotFoundException {
+        assertTrue(loader.loadClass(VaultAccess.class.getName()).isInstance(vault));
+    }
+    
+    @Test
+    void accessorsReachPrivateFields() {
+        access("setGold", 42);
+        
+        assertEquals(42, access("getGold"));
+        assertEquals(42, WeavingClassLoader.invoke(vault, "gold"));
+    }
+    
+    @Test
+    void accessorsReachStaticFields() {
+        access("setOpened", 5);
+        
+        assertEquals(5, access("getOpened"));
+        assertEquals(5, loader.invokeStatic(VAULT, "opened"));
+    }
+    
+    @Test
+    void invokersCallPrivateMethods() {
+        assertEquals(4, access("callTake", 4));
+        assertEquals(6, WeavingClassLoader.invoke(vault, "gold"));
+        assertEquals("hoard", access("callMotto"));
+    }
+    
+    // called through the interface of the woven loader, as code cast to it would
+    private Object access(String method, Object... args) {
+        try {
+            Class<?> access = loader.loadClass(VaultAccess.class.getName());
+            
+            for (Method candidate : access.getMethods()) {
+                if (candidate.getName().equals(method)) return candidate.invoke(vault, args);
+            }
+            
+            throw new IllegalStateException("No method " + method + " in " + access.getName());
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
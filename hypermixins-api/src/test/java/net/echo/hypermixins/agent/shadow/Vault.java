@@ -0,0 +1,42 @@
+package net.echo.hypermixins.agent.shadow;
+
+/**
+ * Target keeping its state in private members, reached by {@link VaultMixin} and {@link VaultAccess}.
+ *
+ * @author xEcho1337
+ */
+public class Vault {
+    
+    private static int opened;
+    
+    private int gold = 10;
+    
+    private int take(int amount) {
+        gold -= amount;
+        return amount;
+    }
+    
+    private static String motto() {
+        return "hoard";
+    }
+    
+    public String describe() {
+        return "vault";
+    }
+    
+    public int peek() {
+        return 0;
+    }
+    
+    public static String label() {
+        return "vault";
+    }
+    
+    public int gold() {
+        return gold;
+    }
+    
+    public static int opened() {
+        return opened;
+    }
+}
@@ -0,0 +1,32 @@
+package net.echo.hypermixins.agent.shadow;
+
+import net.echo.hypermixins.api.Accessor;
+import net.echo.hypermixins.api.Invoker;
+import net.echo.hypermixins.api.Mixin;
+
+/**
+ * Typed access to the private members of {@link Vault}, which implements it once woven.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.shadow.Vault")
+public interface VaultAccess {
+    
+    @Accessor("gold")
+    int getGold();
+    
+    @Accessor("gold")
+    void setGold(int gold);
+    
+    @Accessor("opened")
+    int getOpened();
+    
+    @Accessor("opened")
+    void setOpened(int opened);
+    
+    @Invoker("take")
+    int callTake(int amount);
+    
+    @Invoker("motto")
+    String callMotto();
+}
@@ -0,0 +1,43 @@
+package net.echo.hypermixins.agent.shadow;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+import net.echo.hypermixins.api.Shadow;
+
+/**
+ * Overwrites {@link Vault} through shadows of its private fields and methods, static ones included.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.shadow.Vault")
+public class VaultMixin {
+    
+    @Shadow
+    private static int opened;
+    
+    @Shadow
+    private int gold;
+    
+    @Shadow
+    private native int take(int amount);
+    
+    @Shadow
+    private static native String motto();
+    
+    @Overwrite("describe")
+    public String describe(Object self) {
+        gold++;
+        opened++;
+        return motto() + " " + take(3) + " of " + gold;
+    }
+    
+    @Overwrite(value = "peek", inline = true)
+    public int peek(Object self) {
+        return gold + opened;
+    }
+    
+    @Overwrite("label")
+    public static String label() {
+        return motto() + " #" + ++opened;
+    }
+}
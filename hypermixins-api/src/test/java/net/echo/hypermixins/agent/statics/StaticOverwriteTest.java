@@ -0,0 +1,49 @@
+package net.echo.hypermixins.agent.statics;
+
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Static overwrites of static target methods, without any mixin instance, see {@link Units}.
+ *
+ * @author xEcho1337
+ */
+class StaticOverwriteTest {
+    
+    private static final String UNITS = Units.class.getName();
+    
+    private WeavingClassLoader loader;
+    
+    @BeforeEach
+    void weave() {
+        loader = WeavingClassLoader.of(UnitsMixin.class);
+    }
+    
+    @Test
+    void replacesTheStaticMethod() {
+        assertEquals("meter", loader.invokeStatic(UNITS, "unit"));
+    }
+    
+    @Test
+    void originalReachesTheOriginalBody() {
+        assertEquals(3001, loader.invokeStatic(UNITS, "meters", 3));
+    }
+    
+    @Test
+    void inlineOriginalReachesTheOriginalBody() {
+        assertEquals(-2000L, loader.invokeStatic(UNITS, "grams", 2L));
+    }
+    
+    @Test
+    void addsNoMixinInstance() throws ClassNotFoundException {
+        for (Field field : loader.loadClass(UNITS).getDeclaredFields()) {
+            assertFalse(field.getName().startsWith("__mixin$"), field::getName);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.echo.hypermixins.agent.statics;
+
+/**
+ * Target with static methods only, overwritten by {@link UnitsMixin}.
+ *
+ * @author xEcho1337
+ */
+public class Units {
+    
+    public static int meters(int kilometers) {
+        return kilometers * 1000;
+    }
+    
+    public static long grams(long kilograms) {
+        return kilograms * 1000;
+    }
+    
+    public static String unit() {
+        return "m";
+    }
+}
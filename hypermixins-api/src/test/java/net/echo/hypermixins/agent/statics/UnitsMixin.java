@@ -0,0 +1,36 @@
+package net.echo.hypermixins.agent.statics;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Original;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Static overwrites of {@link Units}, trampolines and inline, calling the original bodies.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.agent.statics.Units")
+public class UnitsMixin {
+    
+    @Original("meters")
+    public static native int originalMeters(int kilometers);
+    
+    @Original("grams")
+    public static native long originalGrams(long kilograms);
+    
+    @Overwrite("meters")
+    public static int meters(int kilometers) {
+        return originalMeters(kilometers) + 1;
+    }
+    
+    @Overwrite(value = "grams", inline = true)
+    public static long grams(long kilograms) {
+        long grams = originalGrams(kilograms);
+        return -grams;
+    }
+    
+    @Overwrite("unit")
+    public static String unit() {
+        return "meter";
+    }
+}
@@ -0,0 +1,108 @@
+package net.echo.hypermixins.jar;
+
+import net.echo.hypermixins.JarWeaver;
+import net.echo.hypermixins.agent.MixinMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Weaves a small jar ahead of time and runs the woven classes without the agent, see {@link JarWeaver}.
+ *
+ * @author xEcho1337
+ */
+class JarWeaverTest {
+    
+    private static final String LAMP = "net/echo/hypermixins/jar/Lamp.class";
+    private static final String MIXIN = "net/echo/hypermixins/jar/LampMixin.class";
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void weavesTheJarAndAddsTheMixins() throws Exception {
+        Path input = jar("input.jar", Map.of(
+            LAMP, classfile(LAMP),
+            "lamp.txt", "bulb".getBytes(StandardCharsets.UTF_8),
+            "META-INF/LAMP.SF", new byte[0]
+        ));
+        Path output = directory.resolve("out/output.jar");
+        
+        JarWeaver.Result result = JarWeaver.weave(input, output, getClass().getClassLoader(), mappings());
+        
+        assertEquals(new JarWeaver.Result(1, 2), result);
+        
+        try (ZipFile jar = new ZipFile(output.toFile())) {
+            assertNotNull(jar.getEntry(MIXIN));
+            assertNull(jar.getEntry("META-INF/LAMP.SF"));
+            
+            try (InputStream in = jar.getInputStream(jar.getEntry("lamp.txt"))) {
+                assertEquals("bulb", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        
+        // only the output jar and HyperMixins, the unwoven classes of the test are out of reach
+        URL hyperMixins = JarWeaver.class.getProtectionDomain().getCodeSource().getLocation();
+        
+        try (URLClassLoader loader = new URLClassLoader(
+            new URL[]{output.toUri().toURL(), hyperMixins},
+            ClassLoader.getPlatformClassLoader()
+        )) {
+            Object lamp = loader.loadClass("net.echo.hypermixins.jar.Lamp").getConstructor().newInstance();
+            
+            assertEquals("on", lamp.getClass().getMethod("light").invoke(lamp));
+        }
+    }
+    
+    @Test
+    void rejectsAJarWithoutTheTargets() throws IOException {
+        Path input = jar("input.jar", Map.of("lamp.txt", "bulb".getBytes(StandardCharsets.UTF_8)));
+        Path output = directory.resolve("output.jar");
+        
+        assertThrows(
+            IllegalStateException.class,
+            () -> JarWeaver.weave(input, output, getClass().getClassLoader(), mappings())
+        );
+    }
+    
+    private static List<MixinMapping> mappings() {
+        return List.of(new MixinMapping(LampMixin.class));
+    }
+    
+    private Path jar(String name, Map<String, byte[]> entries) throws IOException {
+        Path jar = directory.resolve(name);
+        
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        
+        return jar;
+    }
+    
+    private static byte[] classfile(String name) throws IOException {
+        try (InputStream in = JarWeaverTest.class.getClassLoader().getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.jar;
+
+/**
+ * Target packed into the jar woven by {@link JarWeaverTest}.
+ *
+ * @author xEcho1337
+ */
+public class Lamp {
+    
+    public String light() {
+        return "off";
+    }
+}
@@ -0,0 +1,18 @@
+package net.echo.hypermixins.jar;
+
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Overwrite;
+
+/**
+ * Overwrites {@link Lamp#light}, added woven to the output jar.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.jar.Lamp")
+public class LampMixin {
+    
+    @Overwrite("light")
+    public String light(Object self) {
+        return "on";
+    }
+}
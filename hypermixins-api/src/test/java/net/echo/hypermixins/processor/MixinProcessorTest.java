@@ -0,0 +1,185 @@
+package net.echo.hypermixins.processor;
+
+import net.echo.hypermixins.agent.MixinIndex;
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import net.echo.hypermixins.api.Mixin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles mixins with the {@link MixinProcessor} and reads back the {@link MixinIndex} it generates.
+ *
+ * @author xEcho1337
+ */
+class MixinProcessorTest {
+    
+    private static final String BELL = """
+        package sample;
+        
+        public class Bell {
+            
+            public String ring() {
+                return "ding";
+            }
+            
+            public int volume() {
+                return Math.abs(-3);
+            }
+        }
+        """;
+    
+    private static final String BELL_MIXIN = """
+        package sample;
+        
+        import net.echo.hypermixins.api.*;
+        
+        @Mixin(value = "sample.Bell", priority = 1500)
+        @Timed("ring")
+        @Counted("volume")
+        public class BellMixin {
+            
+            @Original("ring")
+            public native String originalRing(Object self);
+            
+            @Overwrite("ring")
+            public String ring(Object self) {
+                return originalRing(self) + " dong";
+            }
+            
+            @Redirect(method = "volume", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC))
+            public static int louder(int value) {
+                return 11;
+            }
+        }
+        """;
+    
+    private static final String SELFLESS_MIXIN = """
+        package sample;
+        
+        import net.echo.hypermixins.api.*;
+        
+        @Mixin("sample.Bell")
+        public class SelflessMixin {
+            
+            @Overwrite("ring")
+            public String ring() {
+                return "silence";
+            }
+        }
+        """;
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void indexMatchesTheAnnotations() throws Exception {
+        Path classes = compile(Map.of("Bell", BELL, "BellMixin", BELL_MIXIN)).classes();
+        
+        assertTrue(Files.exists(classes.resolve(MixinIndex.RESOURCE)));
+        
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            MixinMapping indexed = indexed(loader);
+            MixinMapping reflected = new MixinMapping(loader.loadClass("sample.BellMixin"));
+            
+            assertEquals("sample/BellMixin", indexed.mixinName);
+            assertEquals("sample.Bell", indexed.targetClass);
+            assertEquals(1500, indexed.priority);
+            assertEquals(reflected.overwrites, indexed.overwrites);
+            assertEquals(reflected.originals, indexed.originals);
+            assertEquals(reflected.redirects, indexed.redirects);
+            assertEquals(reflected.timed, indexed.timed);
+            assertEquals(reflected.counted, indexed.counted);
+            assertEquals(reflected.stateless, indexed.stateless);
+        }
+    }
+    
+    @Test
+    void indexedMixinsWeave() throws Exception {
+        Path classes = compile(Map.of("Bell", BELL, "BellMixin", BELL_MIXIN)).classes();
+        
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            MixinTransformer transformer = new MixinTransformer(List.of(indexed(loader)));
+            Object bell = new WeavingClassLoader(loader, transformer, Set.of("sample/Bell", "sample/BellMixin"))
+                .newInstance("sample.Bell");
+            
+            assertEquals("ding dong", WeavingClassLoader.invoke(bell, "ring"));
+            assertEquals(11, WeavingClassLoader.invoke(bell, "volume"));
+        }
+    }
+    
+    @Test
+    void reportsInvalidMixins() throws Exception {
+        Compilation compilation = compile(Map.of("Bell", BELL, "SelflessMixin", SELFLESS_MIXIN));
+        
+        assertFalse(compilation.success());
+        assertTrue(compilation.errors().stream().anyMatch(error -> error.contains("Object self")), compilation::toString);
+    }
+    
+    // the index of the compiled mixins only, the loader may see others on the class path
+    private static MixinMapping indexed(ClassLoader loader) {
+        return MixinIndex.load(loader).stream()
+            .filter(mapping -> mapping.mixinName.startsWith("sample/"))
+            .findFirst()
+            .orElseThrow();
+    }
+    
+    private Compilation compile(Map<String, String> sources) throws IOException, URISyntaxException {
+        Path source = Files.createDirectories(directory.resolve("src/sample"));
+        Path classes = Files.createDirectories(directory.resolve("classes"));
+        
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            Files.writeString(source.resolve(entry.getKey() + ".java"), entry.getValue());
+        }
+        
+        // the sources only need the annotations of HyperMixins
+        Path api = Path.of(Mixin.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                null,
+                files,
+                diagnostics,
+                List.of("-d", classes.toString(), "-cp", api.toString()),
+                null,
+                files.getJavaFileObjectsFromPaths(sources.keySet().stream().map(name -> source.resolve(name + ".java")).toList())
+            );
+            
+            task.setProcessors(List.of(new MixinProcessor()));
+            
+            boolean success = task.call();
+            List<String> errors = diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+            
+            return new Compilation(success, classes, errors);
+        }
+    }
+    
+    private record Compilation(boolean success, Path classes, List<String> errors) {
+    }
+}
@@ -0,0 +1,13 @@
+package net.echo.hypermixins.reweave;
+
+/**
+ * Loaded target reweaved by {@link ReweaveTest}.
+ *
+ * @author xEcho1337
+ */
+public class First {
+    
+    public String name() {
+        return "first".toUpperCase();
+    }
+}
@@ -0,0 +1,20 @@
+package net.echo.hypermixins.reweave;
+
+import net.echo.hypermixins.api.At;
+import net.echo.hypermixins.api.Call;
+import net.echo.hypermixins.api.Mixin;
+import net.echo.hypermixins.api.Redirect;
+
+/**
+ * Redirects {@link First} again, added with {@link SecondMixin} in the failing reweave.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.reweave.First")
+public class ReplacingMixin {
+    
+    @Redirect(method = "name", at = @At(desc = "java/lang/String.toUpperCase()Ljava/lang/String;", call = Call.INVOKEVIRTUAL))
+    public static String renameAgain(String name) {
+        return "uno";
+    }
+}
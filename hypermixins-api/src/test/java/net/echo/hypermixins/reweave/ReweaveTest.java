@@ -0,0 +1,127 @@
+package net.echo.hypermixins.reweave;
+
+import net.echo.hypermixins.HyperMixins;
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * All or nothing reweaves of loaded classes through {@link HyperMixins#addMixins}, against an
+ * {@link Instrumentation} that transforms a batch like the JVM and can reject one of its classes.
+ *
+ * @author xEcho1337
+ */
+class ReweaveTest {
+    
+    private static final String FIRST = "net/echo/hypermixins/reweave/First";
+    private static final String SECOND = "net/echo/hypermixins/reweave/Second";
+    
+    // HyperMixins keeps the instrumentation of its first registration, shared by every test
+    private static final Jvm JVM = new Jvm();
+    private static final Instrumentation INSTRUMENTATION = (Instrumentation) Proxy.newProxyInstance(
+        ReweaveTest.class.getClassLoader(),
+        new Class<?>[]{Instrumentation.class},
+        (proxy, method, args) -> JVM.invoke(method, args)
+    );
+    
+    @AfterEach
+    void unregister() {
+        JVM.failing = null;
+        HyperMixins.removeMixins(FirstMixin.class.getName(), ReplacingMixin.class.getName(), SecondMixin.class.getName());
+    }
+    
+    @Test
+    void reweavesEveryChangedClassInOneBatch() {
+        HyperMixins.register(INSTRUMENTATION, FirstMixin.class);
+        JVM.batches.clear();
+        
+        HyperMixins.addMixins(ReplacingMixin.class, SecondMixin.class);
+        
+        assertEquals(List.of(List.of(First.class, Second.class)), JVM.batches);
+        assertNotNull(transformer().applied(First.class.getClassLoader(), SECOND));
+    }
+    
+    @Test
+    void restoresTheFirstClassWhenTheSecondFails() {
+        HyperMixins.register(INSTRUMENTATION, FirstMixin.class);
+        
+        MixinTransformer transformer = transformer();
+        List<MixinMapping> mappings = transformer.mappings();
+        MixinTransformer.Applied first = transformer.applied(First.class.getClassLoader(), FIRST);
+        
+        assertNotNull(first);
+        
+        JVM.failing = Second.class;
+        
+        assertThrows(VerifyError.class, () -> HyperMixins.addMixins(ReplacingMixin.class, SecondMixin.class));
+        
+        // the JVM redefined neither class, the first one keeps the bytes of the previous mixins
+        assertSame(mappings, transformer.mappings());
+        assertSame(first, transformer.applied(First.class.getClassLoader(), FIRST));
+        assertNull(transformer.applied(Second.class.getClassLoader(), SECOND));
+    }
+    
+    private static MixinTransformer transformer() {
+        return (MixinTransformer) JVM.transformers.getFirst();
+    }
+    
+    private static final class Jvm {
+        
+        private final List<ClassFileTransformer> transformers = new ArrayList<>();
+        private final List<List<Class<?>>> batches = new ArrayList<>();
+        private volatile Class<?> failing;
+        
+        private Object invoke(Method method, Object[] args) throws IllegalClassFormatException {
+            return switch (method.getName()) {
+                case "addTransformer" -> transformers.add((ClassFileTransformer) args[0]);
+                case "getAllLoadedClasses" -> new Class<?>[]{First.class, Second.class};
+                case "isModifiableClass" -> true;
+                case "retransformClasses" -> retransform((Class<?>[]) args[0]);
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+        
+        // every class of the batch goes through the transformers before any is redefined
+        private Object retransform(Class<?>[] classes) throws IllegalClassFormatException {
+            batches.add(List.of(classes));
+            
+            for (Class<?> type : classes) {
+                String className = type.getName().replace('.', '/');
+                
+                for (ClassFileTransformer transformer : transformers) {
+                    transformer.transform(type.getModule(), type.getClassLoader(), className, type, type.getProtectionDomain(), classfile(className));
+                }
+                
+                if (type == failing) throw new VerifyError("Bad woven class " + type.getName());
+            }
+            
+            return null;
+        }
+        
+        private static byte[] classfile(String className) {
+            try (InputStream in = ReweaveTest.class.getClassLoader().getResourceAsStream(className + ".class")) {
+                return in.readAllBytes();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net.echo.hypermixins.agent;
+
+import net.echo.hypermixins.api.Mixin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the targets and mixins of a {@link MixinTransformer} woven, without any agent, so the
+ * JVM verifies the woven classes as it defines them. The tests and the benchmarks share it.
+ * <p>
+ * Every other class is delegated to the parent, so the woven classes can be called through
+ * types of the application, and the unwoven classes stay available next to them as a baseline.
+ *
+ * @author xEcho1337
+ */
+public class WeavingClassLoader extends ClassLoader {
+    
+    private final MixinTransformer transformer;
+    private final Set<String> classNames; // internal names defined woven by this loader
+    
+    public WeavingClassLoader(ClassLoader parent, MixinTransformer transformer) {
+        this(parent, transformer, transformer.classNames());
+    }
+    
+    public WeavingClassLoader(ClassLoader parent, MixinTransformer transformer, Set<String> classNames) {
+        super(parent);
+        this.transformer = transformer;
+        this.classNames = Set.copyOf(classNames);
+    }
+    
+    /**
+     * Weaves the given mixins and their targets into a loader of their own, the parent being the
+     * loader of the first mixin.
+     */
+    public static WeavingClassLoader of(Class<?>... mixins) {
+        List<MixinMapping> mappings = new ArrayList<>();
+        Set<String> classNames = new HashSet<>();
+        
+        for (Class<?> mixin : mixins) {
+            mappings.add(new MixinMapping(mixin));
+            classNames.add(mixin.getName().replace('.', '/'));
+            classNames.add(mixin.getAnnotation(Mixin.class).value().replace('.', '/'));
+        }
+        
+        return new WeavingClassLoader(mixins[0].getClassLoader(), new MixinTransformer(mappings), classNames);
+    }
+    
+    public MixinTransformer transformer() {
+        return transformer;
+    }
+    
+    /**
+     * Loads a class woven and creates an instance with its public no-arg constructor.
+     *
+     * @throws IllegalStateException if a mixin found nothing to replace, the caller would run unwoven code
+     */
+    public <T> T newInstance(Class<T> type, String className) throws ReflectiveOperationException {
+        Object instance = loadClass(className).getConstructor().newInstance();
+        
+        for (WeaveMetrics.Stats stats : transformer.weaveStats()) {
+            if (!stats.unmatched().isEmpty()) {
+                throw new IllegalStateException("Unmatched in " + stats.className() + ": " + stats.unmatched());
+            }
+        }
+        
+        return type.cast(instance);
+    }
+    
+    /**
+     * Loads a class woven and creates an instance with its no-arg constructor, whatever its access.
+     */
+    public Object newInstance(String className) {
+        try {
+            Constructor<?> constructor = loadClass(className).getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (InvocationTargetException ex) {
+            throw rethrow(ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to instantiate " + className, ex);
+        }
+    }
+    
+    /**
+     * Calls a method of a woven instance, picked by name and number of arguments.
+     */
+    public static Object invoke(Object receiver, String method, Object... args) {
+        return invoke(receiver.getClass(), receiver, method, args);
+    }
+    
+    /**
+     * Calls a static method of a woven class, picked by name and number of arguments.
+     */
+    public Object invokeStatic(String className, String method, Object... args) {
+        try {
+            return invoke(loadClass(className), null, method, args);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        String internalName = name.replace('.', '/');
+        
+        if (!classNames.contains(internalName)) {
+            return super.loadClass(name, resolve);
+        }
+        
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            
+            if (loaded == null) {
+                byte[] classfile = readClass(internalName);
+                byte[] woven = transformer.weave(this, internalName, classfile);
+                byte[] bytes = woven != null ? woven : classfile;
+                
+                loaded = defineClass(name, bytes, 0, bytes.length);
+            }
+            
+            if (resolve) resolveClass(loaded);
+            
+            return loaded;
+        }
+    }
+    
+    private byte[] readClass(String internalName) throws ClassNotFoundException {
+        try (InputStream in = getParent().getResourceAsStream(internalName + ".class")) {
+            if (in == null) throw new ClassNotFoundException(internalName.replace('/', '.'));
+            
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    private static Object invoke(Class<?> owner, Object receiver, String name, Object[] args) {
+        for (Class<?> type = owner; type != null; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!method.getName().equals(name) || method.getParameterCount() != args.length) continue;
+                
+                try {
+                    method.setAccessible(true);
+                    return method.invoke(receiver, args);
+                } catch (InvocationTargetException ex) {
+                    throw rethrow(ex.getCause());
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException("Unable to call " + name, ex);
+                }
+            }
+        }
+        
+        throw new IllegalStateException("No method " + name + " taking " + args.length + " arguments in " + owner.getName());
+    }
+    
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error error) throw error;
+        if (cause instanceof RuntimeException ex) return ex;
+        
+        return new IllegalStateException(cause);
+    }
+}
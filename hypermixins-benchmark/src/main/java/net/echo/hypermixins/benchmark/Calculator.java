@@ -0,0 +1,44 @@
+package net.echo.hypermixins.benchmark;
+
+/**
+ * Target of the call overhead benchmarks. {@link CalculatorMixin} replaces every method with the
+ * same computation, so a woven call only differs from the baseline by the weaving itself.
+ *
+ * @author xEcho1337
+ */
+public class Calculator implements Operations {
+    
+    @Override
+    public int add(int a, int b) {
+        return a + b;
+    }
+    
+    @Override
+    public int addInline(int a, int b) {
+        return a + b;
+    }
+    
+    @Override
+    public int twice(int x) {
+        return x * 2;
+    }
+    
+    @Override
+    public int distance(int a, int b) {
+        return Math.abs(a - b);
+    }
+    
+    @Override
+    public int distanceDynamic(int a, int b) {
+        return Math.abs(a - b);
+    }
+    
+    @Override
+    public int squareOf(int x) {
+        return square(x);
+    }
+    
+    public static int square(int x) {
+        return x * x;
+    }
+}
@@ -0,0 +1,49 @@
+package net.echo.hypermixins.benchmark;
+
+import net.echo.hypermixins.api.*;
+
+/**
+ * One member of each kind whose call overhead is measured, see {@link CallBenchmark}.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.benchmark.Calculator")
+public class CalculatorMixin {
+    
+    @Overwrite("add")
+    public int add(Object self, int a, int b) {
+        return a + b;
+    }
+    
+    @Overwrite(value = "addInline", inline = true)
+    public int addInline(Object self, int a, int b) {
+        return a + b;
+    }
+    
+    @Original("twice")
+    public native int twiceOriginal(Object self, int x);
+    
+    @Overwrite("twice")
+    public int twice(Object self, int x) {
+        return twiceOriginal(self, x);
+    }
+    
+    @Redirect(method = "distance", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC))
+    public static int abs(int x) {
+        return Math.abs(x);
+    }
+    
+    @Redirect(
+        method = "distanceDynamic",
+        at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC),
+        dynamic = true
+    )
+    public static int absDynamic(int x) {
+        return Math.abs(x);
+    }
+    
+    @Overwrite("square")
+    public static int square(int x) {
+        return x * x;
+    }
+}
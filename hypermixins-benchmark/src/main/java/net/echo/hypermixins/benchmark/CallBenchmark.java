@@ -0,0 +1,91 @@
+package net.echo.hypermixins.benchmark;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import net.echo.hypermixins.agent.WeavingClassLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state cost of calling woven members, compared with the same calls on the unwoven
+ * {@link Calculator}. The woven calculator comes from a {@link WeavingClassLoader}.
+ *
+ * @author xEcho1337
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CallBenchmark {
+    
+    @Param({"baseline", "woven"})
+    public String variant;
+    
+    // not final, so the calls are not folded into constants
+    private int a = 7;
+    private int b = 42;
+    
+    private Operations operations;
+    
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        if (variant.equals("baseline")) {
+            operations = new Calculator();
+            return;
+        }
+        
+        MixinTransformer transformer = new MixinTransformer(List.of(new MixinMapping(CalculatorMixin.class)));
+        WeavingClassLoader loader = new WeavingClassLoader(CallBenchmark.class.getClassLoader(), transformer);
+        
+        operations = loader.newInstance(Operations.class, Calculator.class.getName());
+    }
+    
+    /**
+     * Trampoline to the mixin instance.
+     */
+    @Benchmark
+    public int overwrite() {
+        return operations.add(a, b);
+    }
+    
+    /**
+     * Mixin bytecode copied into the target.
+     */
+    @Benchmark
+    public int inlineOverwrite() {
+        return operations.addInline(a, b);
+    }
+    
+    /**
+     * Trampoline to the mixin, calling back the original body through {@code @Original}.
+     */
+    @Benchmark
+    public int original() {
+        return operations.twice(a);
+    }
+    
+    /**
+     * Direct call of the mixin, without any instance.
+     */
+    @Benchmark
+    public int staticOverwrite() {
+        return operations.squareOf(a);
+    }
+    
+    @Benchmark
+    public int redirect() {
+        return operations.distance(a, b);
+    }
+    
+    /**
+     * Redirect through a mutable call site, so it can be switched at runtime.
+     */
+    @Benchmark
+    public int dynamicRedirect() {
+        return operations.distanceDynamic(a, b);
+    }
+}
@@ -0,0 +1,23 @@
+package net.echo.hypermixins.benchmark;
+
+import net.echo.hypermixins.api.*;
+
+/**
+ * Applied to the classes generated by {@link TargetCorpus}, touching two methods whatever
+ * the size of the class, like most real targets.
+ *
+ * @author xEcho1337
+ */
+@Mixin("net.echo.hypermixins.benchmark.CorpusTarget")
+public class CorpusMixin {
+    
+    @Overwrite("m0")
+    public int m0(Object self, int x) {
+        return x;
+    }
+    
+    @Redirect(method = "m1", at = @At(desc = "java/lang/Math.abs(I)I", call = Call.INVOKESTATIC))
+    public static int abs(int x) {
+        return x < 0 ? -x : x;
+    }
+}
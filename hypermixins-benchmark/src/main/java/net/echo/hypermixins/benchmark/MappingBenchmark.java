@@ -0,0 +1,40 @@
+package net.echo.hypermixins.benchmark;
+
+import net.echo.hypermixins.agent.MixinIndex;
+import net.echo.hypermixins.agent.MixinMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the mappings of a mixin, through reflection or from the index generated
+ * at compile time by the processor for this module.
+ *
+ * @author xEcho1337
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    
+    private ClassLoader loader;
+    
+    @Setup
+    public void setup() {
+        loader = MappingBenchmark.class.getClassLoader();
+    }
+    
+    @Benchmark
+    public MixinMapping reflection() {
+        return new MixinMapping(CalculatorMixin.class);
+    }
+    
+    @Benchmark
+    public List<MixinMapping> index() {
+        return MixinIndex.load(loader);
+    }
+}
@@ -0,0 +1,24 @@
+package net.echo.hypermixins.benchmark;
+
+/**
+ * Calls measured by {@link CallBenchmark}, implemented by {@link Calculator}.
+ * <p>
+ * The interface is loaded by the application class loader, so the woven and the unwoven
+ * calculator are called through the same type.
+ *
+ * @author xEcho1337
+ */
+public interface Operations {
+    
+    int add(int a, int b);
+    
+    int addInline(int a, int b);
+    
+    int twice(int x);
+    
+    int distance(int a, int b);
+    
+    int distanceDynamic(int a, int b);
+    
+    int squareOf(int x);
+}
@@ -0,0 +1,104 @@
+package net.echo.hypermixins.benchmark;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generates synthetic classes of any size, so weaving can be measured without an external jar.
+ * <p>
+ * Each generated method {@code m<i>} is a small loop calling {@link Math#abs(int)}, with branches
+ * and therefore stack map frames, like the methods of a real target:
+ * <pre>
+ * int m&lt;i&gt;(int x) {
+ *     int s = x + state;
+ *     for (int j = 0; j &lt; i % 8 + 1; j++) s += Math.abs(s ^ j);
+ *     return s;
+ * }
+ * </pre>
+ *
+ * @author xEcho1337
+ */
+public final class TargetCorpus {
+    
+    /**
+     * Internal name of the class {@link CorpusMixin} applies to.
+     */
+    public static final String TARGET = "net/echo/hypermixins/benchmark/CorpusTarget";
+    
+    /**
+     * Internal name of a class no mixin applies to.
+     */
+    public static final String UNTARGETED = "net/echo/hypermixins/benchmark/CorpusOther";
+    
+    private TargetCorpus() {
+    }
+    
+    /**
+     * Returns the bytes of a class with the given number of methods.
+     *
+     * @param name the internal name of the class
+     * @param methods the number of methods besides the constructor
+     */
+    public static byte[] generate(String name, int methods) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V21, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PRIVATE, "state", "I", null, null).visitEnd();
+        
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        
+        for (int i = 0; i < methods; i++) {
+            addMethod(writer, name, i);
+        }
+        
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    private static void addMethod(ClassWriter writer, String owner, int index) {
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "m" + index, "(I)I", null, null);
+        Label loop = new Label();
+        Label end = new Label();
+        
+        method.visitCode();
+        
+        // s = x + state, j = 0
+        method.visitVarInsn(Opcodes.ILOAD, 1);
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitFieldInsn(Opcodes.GETFIELD, owner, "state", "I");
+        method.visitInsn(Opcodes.IADD);
+        method.visitVarInsn(Opcodes.ISTORE, 2);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ISTORE, 3);
+        
+        // while (j < index % 8 + 1)
+        method.visitLabel(loop);
+        method.visitVarInsn(Opcodes.ILOAD, 3);
+        method.visitIntInsn(Opcodes.BIPUSH, index % 8 + 1);
+        method.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        
+        // s += Math.abs(s ^ j), j++
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitVarInsn(Opcodes.ILOAD, 3);
+        method.visitInsn(Opcodes.IXOR);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "abs", "(I)I", false);
+        method.visitInsn(Opcodes.IADD);
+        method.visitVarInsn(Opcodes.ISTORE, 2);
+        method.visitIincInsn(3, 1);
+        method.visitJumpInsn(Opcodes.GOTO, loop);
+        
+        method.visitLabel(end);
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+}
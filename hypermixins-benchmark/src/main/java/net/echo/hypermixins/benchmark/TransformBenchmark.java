@@ -0,0 +1,53 @@
+package net.echo.hypermixins.benchmark;
+
+import net.echo.hypermixins.agent.MixinMapping;
+import net.echo.hypermixins.agent.MixinTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link MixinTransformer#transform} on {@link TargetCorpus} classes of growing size,
+ * for a target of {@link CorpusMixin} and for a class that only goes through the target lookup.
+ *
+ * @author xEcho1337
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+    
+    @Param({"10", "100", "1000"})
+    public int methods;
+    
+    private MixinTransformer transformer;
+    private ClassLoader loader;
+    private byte[] target;
+    private byte[] untargeted;
+    
+    @Setup
+    public void setup() {
+        transformer = new MixinTransformer(List.of(new MixinMapping(CorpusMixin.class)));
+        loader = TransformBenchmark.class.getClassLoader();
+        target = TargetCorpus.generate(TargetCorpus.TARGET, methods);
+        untargeted = TargetCorpus.generate(TargetCorpus.UNTARGETED, methods);
+        
+        if (transform() == null || untargeted() != null) {
+            throw new IllegalStateException("The corpus is not woven as expected");
+        }
+    }
+    
+    @Benchmark
+    public byte[] transform() {
+        return transformer.transform(null, loader, TargetCorpus.TARGET, null, null, target);
+    }
+    
+    @Benchmark
+    public byte[] untargeted() {
+        return transformer.transform(null, loader, TargetCorpus.UNTARGETED, null, null, untargeted);
+    }
+}
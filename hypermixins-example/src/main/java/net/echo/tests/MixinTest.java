@@ -7,6 +7,7 @@ import java.lang.instrument.Instrumentation;
 public class MixinTest {
     
     public static void premain(String args, Instrumentation inst) {
-        HyperMixins.register(inst, WorldMixin.class);
+        // mappings come from the index generated by the annotation processor
+        HyperMixins.register(inst, MixinTest.class.getClassLoader());
     }
 }
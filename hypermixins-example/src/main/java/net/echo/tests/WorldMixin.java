@@ -16,6 +16,7 @@ public class WorldMixin {
         method = "run",
         at = @At(
             desc = "java/lang/Thread.sleep(J)V",
+            call = Call.INVOKESTATIC,
             index = 1 // takes the second Thread.sleep
         )
     )